@@ -2,10 +2,12 @@ package com.project;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.session.data.redis.config.annotation.web.http.EnableRedisHttpSession;
 
 @SpringBootApplication
 @EnableRedisHttpSession  // Включаем поддержку Redis сессий
+@EnableScheduling // Фоновая очистка брошенных загрузок
 public class FileStorage {
 
     public static void main(String[] args) {
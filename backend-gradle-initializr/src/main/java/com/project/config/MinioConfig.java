@@ -1,10 +1,14 @@
 package com.project.config;
 
+import com.project.storage.util.InstrumentedMinioClient;
+import io.micrometer.observation.ObservationRegistry;
 import io.minio.*;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,8 +25,19 @@ public class MinioConfig {
     private String secretKey;
     private String bucket;
 
+    // Адрес MinIO, доступный браузеру (для presigned URL). Пусто — используется url:port
+    private String publicUrl;
+
+    // Регион для подписи ссылок: клиент с публичным адресом не должен ходить за ним в MinIO
+    private String region = "us-east-1";
+
+    /**
+     * Клиент для запросов в MinIO. Каждый вызов — наблюдение Micrometer:
+     * метрика и span трассировки (см. InstrumentedMinioClient)
+     */
     @Bean
-    public MinioClient minioClient() {
+    @Primary
+    public MinioClient minioClient(ObservationRegistry observationRegistry) {
         try {
             logger.info("=== Initializing MinIO Client ===");
             logger.info("URL: {}", url);
@@ -41,7 +56,7 @@ public class MinioConfig {
             // Инициализируем бакет
             initBucket(client);
             
-            return client;
+            return new InstrumentedMinioClient(client, observationRegistry);
             
         } catch (Exception e) {
             logger.error("Failed to initialize MinIO client", e);
@@ -49,6 +64,26 @@ public class MinioConfig {
         }
     }
 
+    /**
+     * Клиент только для подписи ссылок на скачивание. Подпись presigned URL
+     * включает хост, поэтому ссылка должна подписываться тем адресом, по
+     * которому к MinIO обратится браузер, а не внутренним адресом сервиса.
+     * Запросов в MinIO этот клиент не делает.
+     */
+    @Bean
+    public MinioClient presignMinioClient(ObservationRegistry observationRegistry) {
+        if (!StringUtils.hasText(publicUrl)) {
+            return minioClient(observationRegistry);
+        }
+
+        logger.info("Presigned URLs will use public MinIO endpoint: {}", publicUrl);
+        return MinioClient.builder()
+                .endpoint(publicUrl)
+                .region(region)
+                .credentials(accessKey, secretKey)
+                .build();
+    }
+
     private void initBucket(MinioClient client) throws Exception {
         boolean found = client.bucketExists(
                 BucketExistsArgs.builder()
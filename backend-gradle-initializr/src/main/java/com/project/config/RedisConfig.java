@@ -2,8 +2,12 @@ package com.project.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import com.project.storage.util.ListingCache;
+import com.project.storage.util.StatCache;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -17,4 +21,18 @@ public class RedisConfig {
         template.setHashKeySerializer(new StringRedisSerializer());
         return template;
     }
+
+    /**
+     * Подписка на инвалидации кэшей хранилища от других экземпляров
+     */
+    @Bean
+    public RedisMessageListenerContainer storageCacheInvalidations(RedisConnectionFactory connectionFactory,
+                                                                   ListingCache listingCache,
+                                                                   StatCache statCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(listingCache, new ChannelTopic(ListingCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(statCache, new ChannelTopic(StatCache.INVALIDATION_CHANNEL));
+        return container;
+    }
 }
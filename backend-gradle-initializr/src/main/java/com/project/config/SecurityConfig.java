@@ -51,6 +51,8 @@ public class SecurityConfig {
                 ).permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/health/**").permitAll()
+                // Actuator слушает отдельный порт management.server.port, наружу не публикуется
+                .requestMatchers("/actuator/**").permitAll()
                 .requestMatchers("/api/user/**").authenticated()
                 .anyRequest().authenticated()
                 )
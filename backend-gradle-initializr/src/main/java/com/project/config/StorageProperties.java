@@ -0,0 +1,238 @@
+package com.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Настройки файлового хранилища (app.storage.*)
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.storage")
+public class StorageProperties {
+
+    // Размер общего пула потоков для параллельных запросов к MinIO
+    private int ioThreads = 32;
+
+    // path — ключ объекта в MinIO равен пути пользователя; indexed — файлы лежат под
+    // неизменяемыми ключами blobs/{uuid}, дерево путей хранится в PostgreSQL
+    private Layout layout = Layout.PATH;
+
+    private Download download = new Download();
+
+    private Upload upload = new Upload();
+
+    private Delete delete = new Delete();
+
+    private Move move = new Move();
+
+    private Jobs jobs = new Jobs();
+
+    private Index index = new Index();
+
+    private Search search = new Search();
+
+    private Listing listing = new Listing();
+
+    private Stat stat = new Stat();
+
+    private DebugLog debugLog = new DebugLog();
+
+    @Data
+    public static class Download {
+
+        // proxy — байты файла идут через приложение, redirect — 302 на presigned URL MinIO
+        private DownloadMode mode = DownloadMode.PROXY;
+
+        // Время жизни presigned URL в режиме redirect
+        private Duration presignedUrlExpiry = Duration.ofMinutes(5);
+
+        // Сколько объектов ZIP-архива скачивается из MinIO параллельно (1 — последовательно)
+        private int zipPrefetchParallelism = 8;
+
+        // Сколько байт предзагруженных объектов может одновременно находиться в памяти
+        private DataSize zipPrefetchBudget = DataSize.ofMegabytes(64);
+
+        // Объекты крупнее не предзагружаются, а копируются потоком в момент записи
+        private DataSize zipPrefetchMaxEntrySize = DataSize.ofMegabytes(8);
+    }
+
+    @Data
+    public static class Upload {
+
+        // Размер части multipart-загрузки в MinIO при потоковой загрузке (минимум 5MB).
+        // Столько памяти занимает одна загрузка с неизвестным размером
+        private DataSize partSize = DataSize.ofMegabytes(16);
+
+        // Сколько файлов одного запроса POST /api/resource загружается в MinIO одновременно
+        private int concurrency = 8;
+
+        // Размер чанка возобновляемой загрузки по умолчанию (клиент может задать свой, от 5MB)
+        private DataSize chunkSize = DataSize.ofMegabytes(8);
+
+        // Сколько живёт неактивная сессия возобновляемой загрузки (продлевается каждым чанком)
+        private Duration sessionTtl = Duration.ofHours(24);
+
+        // Как часто удаляются чанки сессий, которых больше нет в Redis
+        private Duration gcInterval = Duration.ofHours(1);
+
+        // Чанки моложе этого сборщик не удаляет, даже если сессии уже нет
+        private Duration orphanGrace = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Delete {
+
+        // Ключей в одном запросе removeObjects (максимум S3 — 1000)
+        private int batchSize = 1000;
+
+        // Сколько запросов removeObjects одной операции выполняется одновременно
+        private int parallelism = 4;
+
+        // Папки, в которых больше объектов, удаляются фоновой задачей (202 + id задачи)
+        private int asyncThreshold = 1000;
+    }
+
+    @Data
+    public static class Move {
+
+        // Сколько серверных copyObject одного переименования папки выполняется одновременно
+        private int parallelism = 16;
+
+        // Через сколько скопированных объектов сохраняется точка продолжения в журнале
+        private int checkpointEvery = 500;
+
+        // Переименование без отметок в журнале дольше этого считается прерванным
+        private Duration journalLease = Duration.ofMinutes(5);
+
+        // Как часто ищутся прерванные переименования
+        private Duration recoveryInterval = Duration.ofMinutes(1);
+
+        // resume — докопировать с точки продолжения, rollback — удалить скопированное.
+        // Если исходники уже начали удаляться, переименование всегда доводится до конца
+        private MoveRecovery recovery = MoveRecovery.RESUME;
+
+        // Сколько раз пытаться восстановить переименование, прежде чем оставить его администратору
+        private int maxRecoveryAttempts = 3;
+    }
+
+    @Data
+    public static class Jobs {
+
+        // Сколько фоновых задач (удаление больших папок) выполняется одновременно
+        private int threads = 2;
+
+        // Сколько хранится статус задачи после последнего обновления
+        private Duration ttl = Duration.ofHours(24);
+    }
+
+    @Data
+    public static class Index {
+
+        // Сверять дерево путей (раскладка indexed) с бакетом при старте приложения
+        private boolean reconcileOnStartup = true;
+
+        // Как часто дерево путей сверяется с бакетом
+        private Duration reconcileInterval = Duration.ofHours(6);
+
+        // Объекты и строки моложе этого не считаются потерянными: запись может быть в процессе
+        private Duration orphanGrace = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Search {
+
+        // Максимум результатов на страницу поиска (и размер страницы по умолчанию)
+        private int maxResults = 500;
+    }
+
+    @Data
+    public static class Listing {
+
+        // Размер страницы GET /api/directory, если limit не задан
+        private int pageSize = 200;
+
+        // Максимальный limit одной страницы
+        private int maxPageSize = 1000;
+
+        private Cache cache = new Cache();
+
+        /**
+         * Кэш полных листингов папок (раскладка path): локально в памяти и,
+         * если включено, вторым уровнем в Redis
+         */
+        @Data
+        public static class Cache {
+
+            private boolean enabled = true;
+
+            // Сколько элементов листингов всего держится в памяти экземпляра
+            private long maxObjects = 200_000;
+
+            // Папки больше этого не кэшируются — они вытеснили бы всё остальное
+            private int maxListingSize = 10_000;
+
+            // Страховка на случай пропущенной инвалидации (запись в бакет в обход приложения)
+            private Duration ttl = Duration.ofMinutes(5);
+
+            // Второй уровень в Redis: листинг, прочитанный одним экземпляром, видят остальные
+            private boolean redis = false;
+
+            private Duration redisTtl = Duration.ofMinutes(10);
+        }
+    }
+
+    /**
+     * Кэш statObject (раскладка path): существование и метаданные объектов
+     */
+    @Data
+    public static class Stat {
+
+        private boolean enabled = true;
+
+        private Duration ttl = Duration.ofSeconds(5);
+
+        // Отсутствие ключа живёт меньше: его чаще меняют запись с другого экземпляра
+        private Duration negativeTtl = Duration.ofSeconds(2);
+
+        private long maxEntries = 100_000;
+    }
+
+    /**
+     * Подробные логи (DEBUG/TRACE com.project.*) для отдельных запросов при
+     * уровне INFO в остальном (см. DebugLogInterceptor)
+     */
+    @Data
+    public static class DebugLog {
+
+        // Пользователи, все запросы которых логируются подробно
+        private Set<Long> userIds = new HashSet<>();
+
+        // Значение заголовка X-Debug-Log, включающее подробные логи запроса. Пусто — заголовок игнорируется
+        private String headerToken = "";
+
+        // Доля запросов (0..1), логируемых подробно
+        private double sampleRate = 0.0;
+    }
+
+    public enum MoveRecovery {
+        RESUME,
+        ROLLBACK
+    }
+
+    public enum Layout {
+        PATH,
+        INDEXED
+    }
+
+    public enum DownloadMode {
+        PROXY,
+        REDIRECT
+    }
+}
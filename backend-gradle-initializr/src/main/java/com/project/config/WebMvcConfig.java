@@ -0,0 +1,36 @@
+package com.project.config;
+
+import com.project.storage.util.DebugLogInterceptor;
+import com.project.storage.util.StorageOperation;
+import com.project.storage.util.StorageOperationInterceptor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final StorageProperties storageProperties;
+
+    public WebMvcConfig(StorageProperties storageProperties) {
+        this.storageProperties = storageProperties;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new StorageOperationInterceptor()).addPathPatterns("/api/**");
+        registry.addInterceptor(new DebugLogInterceptor(storageProperties)).addPathPatterns("/api/**");
+    }
+
+    /**
+     * Spring Boot применяет декоратор к applicationTaskExecutor, в котором
+     * MVC выполняет StreamingResponseBody: скачивание и NDJSON-листинги
+     * учитываются за своим эндпоинтом
+     */
+    @Bean
+    public TaskDecorator storageOperationTaskDecorator() {
+        return task -> StorageOperation.wrap(task);
+    }
+}
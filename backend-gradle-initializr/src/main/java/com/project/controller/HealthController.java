@@ -1,34 +1,34 @@
 package com.project.controller;
 
-import org.springframework.boot.availability.ApplicationAvailability;
+import com.project.storage.util.StorageHealthIndicator;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api")
 public class HealthController {
     
-    private final ApplicationAvailability availability;
+    private final StorageHealthIndicator storageHealthIndicator;
     
-    public HealthController(ApplicationAvailability availability) {
-        this.availability = availability;
+    public HealthController(StorageHealthIndicator storageHealthIndicator) {
+        this.storageHealthIndicator = storageHealthIndicator;
     }
     
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
-        Map<String, Object> health = new HashMap<>();
-        health.put("status", "UP");
-        health.put("service", "Spring Boot Application");
-        health.put("timestamp", System.currentTimeMillis());
-        health.put("livenessState", availability.getLivenessState());
-        health.put("readinessState", availability.getReadinessState());
-        
-        return ResponseEntity.ok(health);
+        // Эндпоинт открыт без авторизации: наружу только UP/DOWN, подробности
+        // по зависимостям и метрики — на порту управления (/actuator/health/storage)
+        Status status = storageHealthIndicator.health().getStatus();
+        boolean up = Status.UP.equals(status);
+
+        return ResponseEntity.status(up ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("status", status.getCode()));
     }
     
     @GetMapping("/health/simple")
@@ -17,4 +17,8 @@ public class MinioObject {
     private Long size;
     private boolean isDirectory;
     private Instant lastModified;
+    private String etag;
+    private String contentType;
+    private String error; // ошибка операции над этим объектом (частичный успех загрузки)
+    private String objectKey; // ключ содержимого файла в бакете (в раскладке indexed не совпадает с path)
 }
@@ -0,0 +1,30 @@
+package com.project.repository;
+
+import com.project.storage.model.MoveJournalEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MoveJournalRepository extends JpaRepository<MoveJournalEntry, Long> {
+
+    List<MoveJournalEntry> findByPhaseInAndHeartbeatAtBeforeOrderByCreatedAt(
+            Collection<MoveJournalEntry.Phase> phases, Instant heartbeatBefore);
+
+    // Только отметка жизни, без @Version: не конфликтует с отметками хода переименования
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE MoveJournalEntry e SET e.heartbeatAt = :now
+            WHERE e.id = :id AND e.phase IN :phases
+            """)
+    int touch(@Param("id") Long id, @Param("phases") Collection<MoveJournalEntry.Phase> phases,
+              @Param("now") Instant now);
+}
@@ -0,0 +1,197 @@
+package com.project.repository;
+
+import com.project.storage.model.StorageNode;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StorageNodeRepository extends JpaRepository<StorageNode, Long> {
+
+    // Все потомки узла :rootId с путями относительно него (папки — со слешем на конце)
+    String SUBTREE = """
+            WITH RECURSIVE tree(id, name, type, object_key, size, path) AS (
+                SELECT n.id, n.name, n.type, n.object_key, n.size,
+                       CAST(n.name || CASE WHEN n.type = 'DIRECTORY' THEN '/' ELSE '' END AS VARCHAR)
+                FROM storage_nodes n
+                WHERE n.parent_id = :rootId
+                UNION ALL
+                SELECT c.id, c.name, c.type, c.object_key, c.size,
+                       CAST(t.path || c.name || CASE WHEN c.type = 'DIRECTORY' THEN '/' ELSE '' END AS VARCHAR)
+                FROM storage_nodes c
+                JOIN tree t ON c.parent_id = t.id
+            )
+            """;
+
+    /**
+     * Поиск по имени среди всех узлов пользователя: совпадения берутся по
+     * триграммному индексу lower(name) (см. StorageIndexSchema), страница
+     * отрезается до вычисления путей, поэтому пути строятся подъёмом к :rootId
+     * только для limit найденных узлов, а не обходом всего дерева. Совпадения
+     * с начала имени (:prefixPattern) идут первыми.
+     */
+    String SEARCH_BY_NAME = """
+            WITH RECURSIVE hits AS (
+                SELECT n.id, n.parent_id, n.name, n.type, n.object_key, n.size,
+                       lower(n.name) LIKE lower(:prefixPattern) ESCAPE '\\' AS prefix_match
+                FROM storage_nodes n
+                WHERE n.user_id = :userId
+                  AND n.parent_id <> 0
+                  AND lower(n.name) LIKE lower(:pattern) ESCAPE '\\'
+                ORDER BY prefix_match DESC, lower(n.name), n.id
+                LIMIT :limit OFFSET :offset
+            ),
+            up(hit_id, node_id, path) AS (
+                SELECT h.id, h.parent_id,
+                       CAST(h.name || CASE WHEN h.type = 'DIRECTORY' THEN '/' ELSE '' END AS VARCHAR)
+                FROM hits h
+                UNION ALL
+                SELECT u.hit_id, p.parent_id, CAST(p.name || '/' || u.path AS VARCHAR)
+                FROM up u
+                JOIN storage_nodes p ON p.id = u.node_id
+                WHERE u.node_id <> :rootId
+            )
+            SELECT h.id, u.path, h.type, h.object_key AS "objectKey", h.size
+            FROM hits h
+            JOIN up u ON u.hit_id = h.id AND u.node_id = :rootId
+            ORDER BY h.prefix_match DESC, lower(h.name), h.id
+            """;
+
+    Optional<StorageNode> findByParentIdAndName(Long parentId, String name);
+
+    List<StorageNode> findByParentIdOrderByName(Long parentId);
+
+    // Постраничный листинг папки (keyset): следующие :limit детей после позиции курсора
+    List<StorageNode> findByParentIdAndNameGreaterThanOrderByName(Long parentId, String name, Limit limit);
+
+    @Query(value = """
+            SELECT * FROM storage_nodes
+            WHERE parent_id = :parentId AND (COALESCE(size, 0), name) > (:size, :name)
+            ORDER BY COALESCE(size, 0), name
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<StorageNode> findChildrenBySizeAfter(@Param("parentId") Long parentId, @Param("size") long size,
+                                              @Param("name") String name, @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT * FROM storage_nodes
+            WHERE parent_id = :parentId AND (updated_at, name) > (:updatedAt, :name)
+            ORDER BY updated_at, name
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<StorageNode> findChildrenByUpdatedAtAfter(@Param("parentId") Long parentId,
+                                                   @Param("updatedAt") Instant updatedAt,
+                                                   @Param("name") String name, @Param("limit") int limit);
+
+    /**
+     * Узел по пути одним запросом: спуск от корня rootName по сегментам path
+     * (через /, без корня) на depth уровней, каждый шаг — поиск по
+     * уникальному индексу (parent_id, name)
+     */
+    @Query(value = """
+            WITH RECURSIVE walk(id, depth) AS (
+                SELECT n.id, 0
+                FROM storage_nodes n
+                WHERE n.parent_id = 0 AND n.name = :rootName
+                UNION ALL
+                SELECT c.id, w.depth + 1
+                FROM walk w
+                JOIN storage_nodes c ON c.parent_id = w.id AND c.name = split_part(:path, '/', w.depth + 1)
+                WHERE w.depth < :depth
+            )
+            SELECT n.*
+            FROM storage_nodes n
+            JOIN walk w ON w.id = n.id
+            WHERE w.depth = :depth
+            """, nativeQuery = true)
+    Optional<StorageNode> findByPath(
+            @Param("rootName") String rootName, @Param("path") String path, @Param("depth") int depth);
+
+    /**
+     * Страница ссылок на содержимое с ключами под :prefix после :after, в
+     * побайтовом порядке — том же, в котором MinIO отдаёт листинг. stale —
+     * строка не менялась с :staleBefore
+     */
+    @Query(value = """
+            SELECT id, object_key AS "objectKey", updated_at < :staleBefore AS "stale"
+            FROM storage_nodes
+            WHERE object_key LIKE :prefix || '%' AND object_key COLLATE "C" > :after
+            ORDER BY object_key COLLATE "C"
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<BlobRef> findBlobRefsAfter(@Param("prefix") String prefix, @Param("after") String after,
+                                    @Param("staleBefore") Instant staleBefore, @Param("limit") int limit);
+
+    @Query(value = SUBTREE + """
+            SELECT id, path, type, object_key AS "objectKey", size
+            FROM tree
+            ORDER BY path
+            """, nativeQuery = true)
+    List<TreeEntry> findSubtree(@Param("rootId") Long rootId);
+
+    @Query(value = SUBTREE + """
+            SELECT id, path, type, object_key AS "objectKey", size
+            FROM tree
+            WHERE lower(name) LIKE lower(:pattern) ESCAPE '\\'
+            ORDER BY path
+            LIMIT :limit OFFSET :offset
+            """, nativeQuery = true)
+    List<TreeEntry> searchSubtree(@Param("rootId") Long rootId, @Param("pattern") String pattern,
+                                  @Param("offset") int offset, @Param("limit") int limit);
+
+    // Поиск от корня пользователя — rootId должен быть его корнем
+    @Query(value = SEARCH_BY_NAME, nativeQuery = true)
+    List<TreeEntry> searchByName(@Param("userId") Long userId, @Param("rootId") Long rootId,
+                                 @Param("pattern") String pattern, @Param("prefixPattern") String prefixPattern,
+                                 @Param("offset") int offset, @Param("limit") int limit);
+
+    // Рекурсивный CTE вычисляется лениво: подсчёт останавливается на :limit
+    @Query(value = "SELECT count(*) FROM (" + SUBTREE + " SELECT 1 FROM tree LIMIT :limit) limited",
+            nativeQuery = true)
+    long countSubtree(@Param("rootId") Long rootId, @Param("limit") long limit);
+
+    // Удаление узла вместе со всем поддеревом одним запросом
+    @Transactional
+    @Modifying
+    @Query(value = SUBTREE + """
+            DELETE FROM storage_nodes
+            WHERE id = :rootId OR id IN (SELECT id FROM tree)
+            """, nativeQuery = true)
+    int deleteSubtree(@Param("rootId") Long rootId);
+
+    /**
+     * Ссылка узла на содержимое в бакете
+     */
+    interface BlobRef {
+
+        Long getId();
+
+        String getObjectKey();
+
+        Boolean getStale();
+    }
+
+    /**
+     * Строка поддерева: путь относительно корня поддерева
+     */
+    interface TreeEntry {
+
+        Long getId();
+
+        String getPath();
+
+        String getType();
+
+        String getObjectKey();
+
+        Long getSize();
+    }
+}
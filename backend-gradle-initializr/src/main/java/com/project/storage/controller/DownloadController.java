@@ -1,15 +1,27 @@
 package com.project.storage.controller;
 
+import com.project.config.StorageProperties;
 import com.project.entity.User;
 import com.project.storage.service.DownloadService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.net.URI;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api")
@@ -19,20 +31,46 @@ public class DownloadController {
     private static final Logger logger = LoggerFactory.getLogger(DownloadController.class);
 
     private final DownloadService downloadService;
+    private final StorageProperties storageProperties;
 
-    public DownloadController(DownloadService downloadService) {
+    public DownloadController(DownloadService downloadService, StorageProperties storageProperties) {
         this.downloadService = downloadService;
+        this.storageProperties = storageProperties;
     }
 
     /**
      * GET /api/download - Скачивание файла/папки
+     *
+     * Для файлов поддерживаются условные запросы (If-None-Match,
+     * If-Modified-Since) по ETag и дате изменения из MinIO, а также один
+     * диапазон байт (Range, If-Range) с ответом 206. Несколько диапазонов в
+     * одном запросе не поддерживаются — в этом случае отдаётся весь файл.
+     *
+     * В режиме app.storage.download.mode=redirect на файлы отвечает 302 на
+     * presigned URL MinIO: Range и кэширование тогда обрабатывает сам MinIO.
+     * Папки всегда собираются в ZIP приложением.
      */
     @GetMapping("/resource/download")
-    public ResponseEntity<?> downloadResource(
+    public ResponseEntity<StreamingResponseBody> downloadResource(
             @AuthenticationPrincipal User user,
-            @RequestParam(required = true) String path) {
+            @RequestParam(required = true) String path,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRangeHeader,
+            WebRequest webRequest) {
+
+        logger.debug("User {} requesting download for: {}", user.getId(), path);
+
+        if (storageProperties.getDownload().getMode() == StorageProperties.DownloadMode.REDIRECT
+                && !path.endsWith("/")) {
+            String url = downloadService.getDirectDownloadUrl(user.getId(), path);
+            logger.debug("User {}: Redirecting download of {} to presigned URL", user.getId(), path);
+            // Ссылка короткоживущая, кэшировать сам редирект нельзя
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(url))
+                    .cacheControl(CacheControl.noStore())
+                    .build();
+        }
 
-        logger.info("User {} requesting download for: {}", user.getId(), path);
         DownloadService.DownloadResult result
                 = downloadService.getDownloadResource(user.getId(), path);
 
@@ -43,8 +81,101 @@ public class DownloadController {
                 ? MediaType.valueOf("application/zip")
                 : MediaType.APPLICATION_OCTET_STREAM);
 
-        return ResponseEntity.ok()
+        if (result.isZip() || !result.isRangeSupported()) {
+            if (result.getContentLength() != null) {
+                headers.setContentLength(result.getContentLength());
+            }
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(result.getBody());
+        }
+
+        String etag = result.getEtag() != null ? "\"" + result.getEtag() + "\"" : null;
+        long lastModified = result.getLastModified() != null ? result.getLastModified().toEpochMilli() : -1;
+
+        // 304: выставляет статус и заголовки ETag/Last-Modified сам, тело не нужно
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            logger.debug("User {}: Not modified: {}", user.getId(), path);
+            return null;
+        }
+
+        long length = result.getContentLength();
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+        if (lastModified >= 0) {
+            headers.setLastModified(lastModified);
+        }
+
+        HttpRange range = resolveRange(rangeHeader, ifRangeHeader, etag, lastModified);
+        if (range == null) {
+            headers.setContentLength(length);
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(result.getBody());
+        }
+
+        long start = range.getRangeStart(length);
+        long end = range.getRangeEnd(length);
+        if (start >= length || end < start) {
+            logger.debug("User {}: Unsatisfiable range '{}' for {} ({} bytes)", user.getId(), rangeHeader, path, length);
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            headers.setContentLength(0);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .headers(headers)
+                    .build();
+        }
+
+        long rangeLength = end - start + 1;
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        headers.setContentLength(rangeLength);
+
+        logger.debug("User {}: Serving range {}-{}/{} of {}", user.getId(), start, end, length, path);
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
                 .headers(headers)
-                .body(result.getResource());
+                .body(result.getBody(start, rangeLength));
+    }
+
+    /**
+     * Разбор Range с учётом If-Range. Возвращает null, если нужно отдать весь
+     * файл: заголовка нет, он некорректен, диапазонов несколько или If-Range не
+     * совпал с текущей версией файла.
+     */
+    private HttpRange resolveRange(String rangeHeader, String ifRangeHeader, String etag, long lastModified) {
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return null;
+        }
+        if (ifRangeHeader != null && !ifRangeMatches(ifRangeHeader.trim(), etag, lastModified)) {
+            return null;
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring malformed Range header '{}': {}", rangeHeader, e.getMessage());
+            return null;
+        }
+        return ranges.size() == 1 ? ranges.get(0) : null;
+    }
+
+    /**
+     * If-Range: сильное сравнение ETag либо точное совпадение даты изменения
+     */
+    private boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return etag != null && !ifRange.startsWith("W/") && ifRange.equals(etag);
+        }
+        try {
+            long ifRangeMillis = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant()
+                    .toEpochMilli();
+            // Дата в HTTP-заголовках с точностью до секунды
+            return lastModified >= 0 && lastModified / 1000 == ifRangeMillis / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
     }
 }
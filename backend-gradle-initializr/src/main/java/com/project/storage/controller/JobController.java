@@ -0,0 +1,42 @@
+package com.project.storage.controller;
+
+import com.project.entity.User;
+import com.project.storage.dto.StorageJobInfo;
+import com.project.storage.service.StorageJobService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Статус фоновых задач (удаление больших папок)
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@PreAuthorize("isAuthenticated()")
+public class JobController {
+
+    private final StorageJobService storageJobService;
+
+    public JobController(StorageJobService storageJobService) {
+        this.storageJobService = storageJobService;
+    }
+
+    /**
+     * GET /api/jobs/{jobId} - Статус и прогресс задачи
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<StorageJobInfo> getJob(
+            @AuthenticationPrincipal User user,
+            @PathVariable String jobId) {
+
+        // Статус опрашивается периодически, кэшировать его нельзя
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(storageJobService.getJob(user.getId(), jobId));
+    }
+}
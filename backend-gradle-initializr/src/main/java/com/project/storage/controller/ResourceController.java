@@ -1,20 +1,33 @@
 package com.project.storage.controller;
 
 import com.project.entity.User;
+import com.project.storage.dto.DirectoryPage;
 import com.project.storage.dto.ResourceInfo;
+import com.project.storage.dto.StorageJobInfo;
 import com.project.storage.service.StorageService;
 import com.project.storage.dto.MoveResourceRequest;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Iterator;
 import java.util.List;
 
 @RestController
@@ -24,10 +37,19 @@ public class ResourceController {
 
     private static final Logger logger = LoggerFactory.getLogger(ResourceController.class);
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final StorageService storageService;
+    // Маппер приложения, чтобы элементы NDJSON сериализовались так же, как
+    // обычные JSON-ответы. Без flush после каждого элемента: генератор сам
+    // сбрасывает заполненный буфер
+    private final ObjectWriter ndjsonWriter;
 
-    public ResourceController(StorageService storageService) {
+    public ResourceController(StorageService storageService, JsonMapper jsonMapper) {
         this.storageService = storageService;
+        this.ndjsonWriter = jsonMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator((String) null);
     }
 
     /**
@@ -38,7 +60,7 @@ public class ResourceController {
             @AuthenticationPrincipal User user,
             @RequestParam String path) {
 
-        logger.info("User {} requested /resource with path: {}", user.getId(), path);
+        logger.debug("User {} requested /resource with path: {}", user.getId(), path);
 
         ResourceInfo info = storageService.getResourceInfo(user.getId(), path);
 
@@ -48,16 +70,24 @@ public class ResourceController {
     }
 
     /**
-     * DELETE /api/resource - Удаление ресурса
+     * DELETE /api/resource - Удаление ресурса (большая папка удаляется фоном: 202 и id задачи)
      */
     @DeleteMapping("/resource")
     public ResponseEntity<?> deleteResource(
             @AuthenticationPrincipal User user,
             @RequestParam String path) {
 
-        logger.info("User {} requested DELETE /resource with path: {}", user.getId(), path);
+        logger.debug("User {} requested DELETE /resource with path: {}", user.getId(), path);
+
+        StorageJobInfo job = storageService.deleteResource(user.getId(), path);
 
-        storageService.deleteResource(user.getId(), path);
+        if (job != null) {
+            logger.info("User {} delete of {} continues in background job {}",
+                    user.getId(), path, job.getJobId());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/jobs/" + job.getJobId()))
+                    .body(job);
+        }
 
         logger.info("User {} successfully deleted resource: {}",
                 user.getId(), path);
@@ -72,7 +102,7 @@ public class ResourceController {
             @AuthenticationPrincipal User user,
             @RequestBody MoveResourceRequest request) {
 
-        logger.info("User {} requested PATCH /resource/move from: {} to: {}",
+        logger.debug("User {} requested PATCH /resource/move from: {} to: {}",
                 user.getId(), request.getFrom(), request.getTo());
 
         ResourceInfo movedResource = storageService.moveResource(user.getId(), request.getFrom(), request.getTo());
@@ -84,15 +114,27 @@ public class ResourceController {
 
     /**
      * GET /api/resource/search - Поиск ресурсов по имени
+     *
+     * Подстрока без учёта регистра. Постранично: limit результатов (не больше
+     * app.storage.search.max-results) после первых offset. С Accept:
+     * application/x-ndjson результаты пишутся в ответ по одному.
      */
     @GetMapping("/resource/search")
     public ResponseEntity<?> searchResources(
             @AuthenticationPrincipal User user,
-            @RequestParam String query) {
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
 
-        logger.info("User {} requested GET /resource/search with query: {}",
-                user.getId(), query);
-        List<ResourceInfo> results = storageService.searchResources(user.getId(), query);
+        logger.debug("User {} requested GET /resource/search with query: {} (offset {}, limit {})",
+                user.getId(), query, offset, limit);
+
+        if (acceptsNdjson(accept)) {
+            return streamNdjson(user.getId(), "search " + query,
+                    storageService.iterateSearchResults(user.getId(), query, offset, limit));
+        }
+        List<ResourceInfo> results = storageService.searchResources(user.getId(), query, offset, limit);
 
         logger.info("User {} found {} results for query: {}",
                 user.getId(), results.size(), query);
@@ -102,6 +144,10 @@ public class ResourceController {
 
     /**
      * POST /api/resource - Загрузка файлов и папки с файлами
+     *
+     * 201 — загружены все файлы, 207 — часть файлов не загрузилась (у них
+     * заполнено поле error), 409 — хотя бы один файл уже существует (тогда не
+     * загружается ни один).
      */
     @PostMapping("/resource")
     public ResponseEntity<?> uploadResource(
@@ -109,26 +155,91 @@ public class ResourceController {
             @RequestParam String path,
             @RequestParam("files") MultipartFile[] files) {
 
-        logger.info("User {} requested POST /resource to path: {} with {} files",
+        logger.debug("User {} requested POST /resource to path: {} with {} files",
                 user.getId(), path, files != null ? files.length : 0);
 
         List<ResourceInfo> uploaded = storageService.uploadFiles(user.getId(), path, files);
 
+        long failed = uploaded.stream().filter(info -> info.getError() != null).count();
+        if (failed > 0) {
+            // Часть файлов не загрузилась: статус по каждому файлу в поле error
+            logger.warn("User {} uploaded {} of {} files to path: {}",
+                    user.getId(), uploaded.size() - failed, uploaded.size(), path);
+            return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(uploaded);
+        }
+
         logger.info("User {} successfully uploaded {} files to path: {}",
                 user.getId(), uploaded.size(), path);
 
         return ResponseEntity.status(HttpStatus.CREATED).body(uploaded);
     }
 
+    /**
+     * PUT /api/resource/stream - Потоковая загрузка одного файла
+     *
+     * Тело запроса — содержимое файла как есть (не multipart), path — полный
+     * путь файла. Данные передаются в MinIO по мере чтения, без буферизации
+     * на диске, поэтому ограничения spring.servlet.multipart здесь не
+     * действуют. Content-Length необязателен.
+     */
+    @PutMapping("/resource/stream")
+    public ResponseEntity<ResourceInfo> uploadResourceStream(
+            @AuthenticationPrincipal User user,
+            @RequestParam String path,
+            HttpServletRequest request) throws IOException {
+
+        logger.debug("User {} requested PUT /resource/stream to path: {} ({} bytes)",
+                user.getId(), path, request.getContentLengthLong());
+
+        ResourceInfo uploaded = storageService.uploadStream(
+                user.getId(),
+                path,
+                request.getInputStream(),
+                request.getContentLengthLong(),
+                request.getContentType());
+
+        logger.info("User {} successfully uploaded file by stream: {}", user.getId(), path);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(uploaded);
+    }
+
     /**
      * GET /api/directory - Получение содержимого папки
+     *
+     * Без limit, cursor и sort возвращается вся папка. С любым из них —
+     * одна страница (sort: name, size, modified); курсор следующей страницы
+     * приходит в заголовке X-Next-Cursor, на последней странице его нет.
+     * Вся папка с Accept: application/x-ndjson пишется в ответ по одному
+     * элементу на строку, не собираясь в памяти.
      */
     @GetMapping("/directory")
     public ResponseEntity<?> getDirectoryContents(
             @AuthenticationPrincipal User user,
-            @RequestParam String path) {
+            @RequestParam String path,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        logger.debug("User {} requested GET /directory with path: {}", user.getId(), path);
+
+        if (limit != null || cursor != null || sort != null) {
+            DirectoryPage page = storageService.getDirectoryPage(user.getId(), path, cursor, limit, sort);
+
+            logger.info("User {} retrieved a page of {} items from directory: {}",
+                    user.getId(), page.getItems().size(), path);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        }
+
+        if (acceptsNdjson(accept)) {
+            return streamNdjson(user.getId(), "directory " + path,
+                    storageService.iterateDirectoryContents(user.getId(), path));
+        }
 
-        logger.info("User {} requested GET /directory with path: {}", user.getId(), path);
         List<ResourceInfo> contents = storageService.getDirectoryContents(user.getId(), path);
 
         logger.info("User {} retrieved {} items from directory: {}",
@@ -144,7 +255,7 @@ public class ResourceController {
             @AuthenticationPrincipal User user,
             @RequestParam String path) {
 
-        logger.info("User {} requested POST /directory with path: {}", user.getId(), path);
+        logger.debug("User {} requested POST /directory with path: {}", user.getId(), path);
 
         ResourceInfo created = storageService.createDirectory(user.getId(), path);
 
@@ -152,4 +263,34 @@ public class ResourceController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    private boolean acceptsNdjson(String accept) {
+        return accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+    }
+
+    /**
+     * Ответ в NDJSON: каждый элемент сериализуется и пишется в поток сразу,
+     * как только прочитан из хранилища. Ошибка посреди обхода обрывает
+     * ответ — статус к этому моменту уже отправлен.
+     */
+    private ResponseEntity<StreamingResponseBody> streamNdjson(Long userId, String source,
+                                                               Iterator<ResourceInfo> items) {
+        StreamingResponseBody body = outputStream -> {
+            long written = 0;
+            try (JsonGenerator generator = ndjsonWriter.createGenerator(outputStream)) {
+                while (items.hasNext()) {
+                    ndjsonWriter.writeValue(generator, items.next());
+                    generator.writeRaw('\n');
+                    written++;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Streaming {} for user {} failed after {} items", source, userId, written, e);
+                throw e;
+            }
+            logger.info("User {} streamed {} items from {}", userId, written, source);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 }
@@ -0,0 +1,112 @@
+package com.project.storage.controller;
+
+import com.project.entity.User;
+import com.project.storage.dto.ResourceInfo;
+import com.project.storage.dto.UploadSessionInfo;
+import com.project.storage.service.ChunkedUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Возобновляемая загрузка больших файлов:
+ * начать сессию → загрузить чанки (в любом порядке, с повторами) → завершить.
+ * При обрыве клиент запрашивает состояние сессии и догружает недостающие чанки.
+ */
+@RestController
+@RequestMapping("/api/upload")
+@PreAuthorize("isAuthenticated()")
+public class UploadController {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadController.class);
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    public UploadController(ChunkedUploadService chunkedUploadService) {
+        this.chunkedUploadService = chunkedUploadService;
+    }
+
+    /**
+     * POST /api/upload - Начало загрузки файла
+     */
+    @PostMapping
+    public ResponseEntity<UploadSessionInfo> initiateUpload(
+            @AuthenticationPrincipal User user,
+            @RequestParam String path,
+            @RequestParam long size,
+            @RequestParam(required = false) Long chunkSize,
+            @RequestParam(required = false) String contentType) {
+
+        logger.debug("User {} requested POST /upload for path: {} ({} bytes)", user.getId(), path, size);
+
+        UploadSessionInfo session = chunkedUploadService.initiate(user.getId(), path, size, chunkSize, contentType);
+        return ResponseEntity.status(HttpStatus.CREATED).body(session);
+    }
+
+    /**
+     * GET /api/upload/{uploadId} - Состояние загрузки
+     */
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionInfo> getUploadStatus(
+            @AuthenticationPrincipal User user,
+            @PathVariable String uploadId) {
+
+        return ResponseEntity.ok(chunkedUploadService.getStatus(user.getId(), uploadId));
+    }
+
+    /**
+     * PUT /api/upload/{uploadId}/parts/{partNumber} - Загрузка чанка (тело — байты чанка)
+     */
+    @PutMapping("/{uploadId}/parts/{partNumber}")
+    public ResponseEntity<UploadSessionInfo> uploadPart(
+            @AuthenticationPrincipal User user,
+            @PathVariable String uploadId,
+            @PathVariable int partNumber,
+            HttpServletRequest request) throws IOException {
+
+        logger.debug("User {} uploading part {} of {}", user.getId(), partNumber, uploadId);
+
+        UploadSessionInfo session = chunkedUploadService.uploadPart(
+                user.getId(),
+                uploadId,
+                partNumber,
+                request.getInputStream(),
+                request.getContentLengthLong());
+        return ResponseEntity.ok(session);
+    }
+
+    /**
+     * POST /api/upload/{uploadId}/complete - Сборка файла из чанков
+     */
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<ResourceInfo> completeUpload(
+            @AuthenticationPrincipal User user,
+            @PathVariable String uploadId) {
+
+        logger.debug("User {} requested completion of upload {}", user.getId(), uploadId);
+
+        ResourceInfo resource = chunkedUploadService.complete(user.getId(), uploadId);
+        return ResponseEntity.status(HttpStatus.CREATED).body(resource);
+    }
+
+    /**
+     * DELETE /api/upload/{uploadId} - Отмена загрузки
+     */
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abortUpload(
+            @AuthenticationPrincipal User user,
+            @PathVariable String uploadId) {
+
+        logger.debug("User {} requested abort of upload {}", user.getId(), uploadId);
+
+        chunkedUploadService.abort(user.getId(), uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,16 @@
+package com.project.storage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectoryPage {
+
+    private List<ResourceInfo> items;
+    private String nextCursor; // null — страница последняя
+}
@@ -1,5 +1,6 @@
 package com.project.storage.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.project.storage.model.ResourceType;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -22,4 +23,8 @@ public class ResourceInfo {
     private Instant lastModified;
     private String downloadUrl;
     private String contentType;
+
+    // Заполняется только для файлов, которые не удалось загрузить
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
 }
\ No newline at end of file
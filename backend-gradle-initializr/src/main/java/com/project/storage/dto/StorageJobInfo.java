@@ -0,0 +1,26 @@
+package com.project.storage.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StorageJobInfo {
+
+    private String jobId;
+    private String type;
+    private String path;
+    private String status; // PENDING, RUNNING, COMPLETED, FAILED
+    private Long processed; // сколько объектов уже удалено
+    private String error;
+    private Instant createdAt;
+    private Instant finishedAt;
+}
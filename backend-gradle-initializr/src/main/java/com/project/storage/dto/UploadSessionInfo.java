@@ -0,0 +1,22 @@
+package com.project.storage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionInfo {
+
+    private String uploadId;
+    private String path;
+    private Long size;
+    private Long chunkSize;
+    private Integer totalParts;
+    private List<Integer> uploadedParts; // номера уже загруженных чанков, для продолжения загрузки
+}
@@ -0,0 +1,18 @@
+package com.project.storage.model;
+
+import com.project.entity.MinioObject;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Страница листинга папки. nextCursor = null — страница последняя
+ */
+@Getter
+@AllArgsConstructor
+public class ListingPage {
+
+    private final List<MinioObject> items;
+    private final String nextCursor;
+}
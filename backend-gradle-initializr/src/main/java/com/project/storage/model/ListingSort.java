@@ -0,0 +1,10 @@
+package com.project.storage.model;
+
+/**
+ * Порядок постраничного листинга папки (по возрастанию, при равенстве — по имени)
+ */
+public enum ListingSort {
+    NAME,
+    SIZE,
+    MODIFIED
+}
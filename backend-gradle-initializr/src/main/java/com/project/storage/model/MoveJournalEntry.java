@@ -0,0 +1,86 @@
+package com.project.storage.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Запись журнала переименования папки в раскладке path.
+ *
+ * Пишется до первого copyObject и переживает падение приложения: по ней
+ * восстановление решает, докопировать папку с точки продолжения или удалить
+ * уже созданные копии. checkpointKey — последний исходный ключ, до которого
+ * (в порядке листинга) всё скопировано; листинг MinIO лексикографический,
+ * поэтому продолжение — листинг с startAfter = checkpointKey.
+ */
+@Entity
+@Table(name = "move_journal",
+        indexes = @Index(name = "idx_move_journal_phase", columnList = "phase, heartbeat_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class MoveJournalEntry {
+
+    public enum Phase {
+        COPYING,     // копии создаются, исходники не тронуты
+        DELETING,    // копия полная, удаляются исходники — только вперёд
+        COMPLETED,
+        ROLLED_BACK,
+        FAILED       // восстановление не удалось, нужен администратор
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "source_prefix", nullable = false, length = 1024)
+    private String sourcePrefix;
+
+    @Column(name = "target_prefix", nullable = false, length = 1024)
+    private String targetPrefix;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Phase phase;
+
+    @Column(name = "checkpoint_key", length = 1024)
+    private String checkpointKey;
+
+    @Column(name = "copied_count", nullable = false)
+    private long copiedCount;
+
+    @Column(name = "deleted_count", nullable = false)
+    private long deletedCount;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(length = 1024)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    // Обновляется на каждой контрольной точке: устаревшая отметка — признак прерванного переименования
+    @Column(name = "heartbeat_at", nullable = false)
+    private Instant heartbeatAt;
+
+    // Защищает от двух экземпляров, одновременно подхвативших одну запись
+    @Version
+    private long version;
+
+    public MoveJournalEntry(String sourcePrefix, String targetPrefix) {
+        this.sourcePrefix = sourcePrefix;
+        this.targetPrefix = targetPrefix;
+        this.phase = Phase.COPYING;
+        this.createdAt = Instant.now();
+        this.heartbeatAt = this.createdAt;
+    }
+
+    public boolean isFinished() {
+        return phase == Phase.COMPLETED || phase == Phase.ROLLED_BACK || phase == Phase.FAILED;
+    }
+}
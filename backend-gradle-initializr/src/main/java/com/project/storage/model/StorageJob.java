@@ -0,0 +1,40 @@
+package com.project.storage.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Фоновая задача над ресурсами пользователя (удаление большой папки).
+ * Хранится в Redis, поэтому статус доступен с любого экземпляра приложения.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageJob {
+
+    private String jobId;
+    private Long userId;
+    private Type type;
+    private String path; // относительный путь ресурса
+    private Status status;
+    private long processed; // сколько объектов уже обработано
+    private String error;
+    private Instant createdAt;
+    private Instant finishedAt;
+
+    public enum Type {
+        DELETE
+    }
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,86 @@
+package com.project.storage.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Узел дерева путей в раскладке indexed (app.storage.layout=indexed).
+ *
+ * Путь ресурса не хранится целиком: узел знает только родителя и своё имя,
+ * поэтому переименование или перемещение папки — обновление одной строки
+ * независимо от размера поддерева. Содержимое файла лежит в MinIO под
+ * неизменяемым ключом objectKey. Корень пользователя — узел с parentId = 0
+ * и именем user-{id}-files.
+ */
+@Entity
+@Table(name = "storage_nodes",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"parent_id", "name"}),
+        indexes = {
+                @Index(name = "idx_storage_nodes_user", columnList = "user_id"),
+                @Index(name = "idx_storage_nodes_object_key", columnList = "object_key")
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+public class StorageNode {
+
+    public static final long ROOT_PARENT_ID = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "parent_id", nullable = false)
+    private Long parentId;
+
+    @Column(nullable = false)
+    private String name; // имя без слеша на конце
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ResourceType type;
+
+    @Column(name = "object_key")
+    private String objectKey; // только для файлов
+
+    private Long size;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    private String etag;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public StorageNode(Long userId, Long parentId, String name, ResourceType type) {
+        this.userId = userId;
+        this.parentId = parentId;
+        this.name = name;
+        this.type = type;
+    }
+
+    public boolean isDirectory() {
+        return type == ResourceType.DIRECTORY;
+    }
+
+    // При импорте из бакета сохраняется время изменения объекта
+    @PrePersist
+    protected void created() {
+        if (updatedAt == null) {
+            updatedAt = Instant.now();
+        }
+    }
+
+    @PreUpdate
+    protected void touch() {
+        updatedAt = Instant.now();
+    }
+}
@@ -0,0 +1,41 @@
+package com.project.storage.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Сессия возобновляемой загрузки. Хранится в Redis, поэтому следующий чанк
+ * может принять любой экземпляр приложения.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+
+    private String uploadId;
+    private Long userId;
+    private String path; // относительный путь итогового файла
+    private long size; // размер файла целиком
+    private long chunkSize; // размер каждого чанка, кроме последнего
+    private String contentType;
+    private Instant createdAt;
+
+    /**
+     * Количество чанков (пустой файл — один пустой чанк)
+     */
+    public int getTotalParts() {
+        return size == 0 ? 1 : (int) ((size + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Ожидаемый размер чанка с номером partNumber (нумерация с 1)
+     */
+    public long getPartLength(int partNumber) {
+        return Math.min(chunkSize, size - (partNumber - 1) * chunkSize);
+    }
+}
@@ -0,0 +1,36 @@
+package com.project.storage.service;
+
+import com.project.storage.dto.ResourceInfo;
+import com.project.storage.dto.UploadSessionInfo;
+
+import java.io.InputStream;
+
+public interface ChunkedUploadService {
+
+    /**
+     * Начало возобновляемой загрузки файла размером size (chunkSize = null —
+     * размер чанка по умолчанию)
+     */
+    UploadSessionInfo initiate(Long userId, String path, long size, Long chunkSize, String contentType);
+
+    /**
+     * Состояние загрузки: какие чанки уже приняты
+     */
+    UploadSessionInfo getStatus(Long userId, String uploadId);
+
+    /**
+     * Загрузка чанка partNumber (нумерация с 1). Повторная загрузка того же
+     * номера заменяет чанк (contentLength = -1, если неизвестен)
+     */
+    UploadSessionInfo uploadPart(Long userId, String uploadId, int partNumber, InputStream content, long contentLength);
+
+    /**
+     * Сборка файла из загруженных чанков
+     */
+    ResourceInfo complete(Long userId, String uploadId);
+
+    /**
+     * Отмена загрузки с удалением принятых чанков
+     */
+    void abort(Long userId, String uploadId);
+}
@@ -1,6 +1,8 @@
 package com.project.storage.service;
 
-import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
 
 public interface DownloadService {
 
@@ -17,22 +19,65 @@ public interface DownloadService {
     }
 
     /**
-     * Результат скачивания
+     * Тело ответа для диапазона байт [offset, offset + length)
+     */
+    @FunctionalInterface
+    interface RangedBody {
+
+        StreamingResponseBody open(long offset, long length);
+    }
+
+    /**
+     * Результат скачивания. Тело не материализуется в памяти: данные пишутся
+     * прямо в ответ в момент отдачи.
      */
     class DownloadResult {
 
-        private final Resource resource;
+        private final StreamingResponseBody body;
+        private final RangedBody rangedBody; // null, если диапазоны не поддерживаются (zip)
         private final String filename;
         private final boolean isZip; // true если это zip-архив папки
+        private final Long contentLength; // null, если размер заранее неизвестен (zip)
+        private final String etag;
+        private final Instant lastModified;
+
+        public DownloadResult(StreamingResponseBody body, String filename, boolean isZip) {
+            this(body, null, filename, isZip, null, null, null);
+        }
 
-        public DownloadResult(Resource resource, String filename, boolean isZip) {
-            this.resource = resource;
+        public DownloadResult(
+                StreamingResponseBody body,
+                RangedBody rangedBody,
+                String filename,
+                boolean isZip,
+                Long contentLength,
+                String etag,
+                Instant lastModified) {
+            this.body = body;
+            this.rangedBody = rangedBody;
             this.filename = filename;
             this.isZip = isZip;
+            this.contentLength = contentLength;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public StreamingResponseBody getBody() {
+            return body;
+        }
+
+        /**
+         * Тело только для запрошенного диапазона байт
+         */
+        public StreamingResponseBody getBody(long offset, long length) {
+            if (rangedBody == null) {
+                throw new UnsupportedOperationException("Byte ranges not supported for " + filename);
+            }
+            return rangedBody.open(offset, length);
         }
 
-        public Resource getResource() {
-            return resource;
+        public boolean isRangeSupported() {
+            return rangedBody != null && contentLength != null;
         }
 
         public String getFilename() {
@@ -42,5 +87,17 @@ public interface DownloadService {
         public boolean isZip() {
             return isZip;
         }
+
+        public Long getContentLength() {
+            return contentLength;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public Instant getLastModified() {
+            return lastModified;
+        }
     }
 }
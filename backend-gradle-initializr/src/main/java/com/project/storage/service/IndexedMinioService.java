@@ -0,0 +1,792 @@
+package com.project.storage.service;
+
+import com.project.config.StorageProperties;
+import com.project.entity.MinioObject;
+import com.project.repository.StorageNodeRepository;
+import com.project.storage.model.ListingPage;
+import com.project.storage.model.ListingSort;
+import com.project.storage.model.ResourceType;
+import com.project.storage.model.StorageNode;
+import com.project.storage.util.ListingCursor;
+import com.project.storage.util.StorageTaskRunner;
+
+import io.minio.*;
+import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import lombok.RequiredArgsConstructor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Раскладка indexed: содержимое файлов лежит в MinIO под неизменяемыми
+ * ключами blobs/{uuid}, а дерево путей пользователя — в PostgreSQL
+ * (storage_nodes, см. {@link StorageNode}). Переименование и перемещение
+ * папки любого размера — обновление одной строки, без copyObject.
+ *
+ * Интерфейс тот же, что у MinioServiceImpl: на вход приходят полные пути
+ * user-{id}-files/..., поэтому адаптер и сервисы выше не знают о раскладке.
+ * Метаданные меняются раньше содержимого: при удалении строки удаляются
+ * одной транзакцией, а объекты — после неё; если удаление объектов не
+ * удалось, остаются недоступные пользователю объекты, но не ссылки на
+ * несуществующие.
+ */
+@RequiredArgsConstructor
+@Service
+@ConditionalOnProperty(prefix = "app.storage", name = "layout", havingValue = "indexed")
+public class IndexedMinioService implements MinioService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexedMinioService.class);
+
+    // Содержимое файлов лежит вне префиксов пользователей
+    private static final String BLOB_PREFIX = "blobs/";
+
+    private static final Pattern FULL_PATH = Pattern.compile("^(user-(\\d+)-files)/(.*)$");
+
+    @Value("${spring.minio.bucket}")
+    private String bucket;
+
+    private final MinioClient minioClient;
+    private final StorageProperties storageProperties;
+    private final StorageTaskRunner taskRunner;
+    private final StorageNodeRepository nodeRepository;
+
+    // Подписывает ссылки публичным адресом MinIO (см. MinioConfig.presignMinioClient)
+    @Autowired
+    @Qualifier("presignMinioClient")
+    private MinioClient presignClient;
+
+    @Override
+    public void createFolder(String fullPath) {
+        createFolder(fullPath, true);
+    }
+
+    @Override
+    public void createFolder(String fullPath, boolean strict) {
+        try {
+            if (!createFolderNode(NodePath.parse(ensureTrailingSlash(fullPath)))) {
+                if (strict) {
+                    throw new RuntimeException("Folder already exists: " + fullPath);
+                }
+                logger.debug("Folder already exists (non-strict mode): {}", fullPath);
+                return;
+            }
+            logger.debug("Folder created: {}", fullPath);
+        } catch (Exception e) {
+            if (strict) {
+                throw new RuntimeException("createFolder: " + e.getMessage(), e);
+            }
+            logger.warn("Error creating folder (non-strict mode): {} — {}", fullPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Создание набора папок, начиная с верхних уровней. Одна строка на
+     * папку, поэтому параллелить запросы не нужно
+     */
+    @Override
+    public int createFolders(Collection<String> fullPaths) {
+        List<String> folders = new ArrayList<>();
+        for (String path : new LinkedHashSet<>(fullPaths)) {
+            folders.add(ensureTrailingSlash(path));
+        }
+        folders.sort(Comparator.comparingInt(this::depth));
+
+        int created = 0;
+        for (String folder : folders) {
+            try {
+                if (createFolderNode(NodePath.parse(folder))) {
+                    created++;
+                }
+            } catch (Exception e) {
+                logger.warn("Error creating folder (non-strict mode): {} — {}", folder, e.getMessage());
+            }
+        }
+        return created;
+    }
+
+    @Override
+    public List<MinioObject> listObjects(String fullPath) {
+        String prefix = ensureTrailingSlash(fullPath);
+        StorageNode folder = resolve(NodePath.parse(prefix))
+                .orElseThrow(() -> new RuntimeException("Ресурс не найден: " + prefix));
+
+        List<MinioObject> objects = new ArrayList<>();
+        for (StorageNode child : nodeRepository.findByParentIdOrderByName(folder.getId())) {
+            objects.add(toMinioObject(child, prefix + child.getName() + (child.isDirectory() ? "/" : "")));
+        }
+        return objects;
+    }
+
+    /**
+     * Содержимое папки пачками по listing.page-size строк, каждая следующая —
+     * по индексу (parent_id, name) от последнего имени предыдущей
+     */
+    @Override
+    public Iterator<MinioObject> iterateObjects(String fullPath) {
+        String prefix = ensureTrailingSlash(fullPath);
+        StorageNode folder = resolve(NodePath.parse(prefix))
+                .orElseThrow(() -> new RuntimeException("Ресурс не найден: " + prefix));
+
+        int batchSize = storageProperties.getListing().getPageSize();
+        return inBatches(batchSize,
+                (StorageNode last, Integer loaded) -> nodeRepository.findByParentIdAndNameGreaterThanOrderByName(
+                        folder.getId(), last != null ? last.getName() : "", Limit.of(batchSize)),
+                child -> toMinioObject(child, prefix + child.getName() + (child.isDirectory() ? "/" : "")));
+    }
+
+    /**
+     * Страница листинга папки по индексу (parent_id, ...): курсор хранит
+     * значение ключа сортировки и имя последнего элемента
+     */
+    @Override
+    public ListingPage listObjects(String fullPath, String cursor, int limit, ListingSort sort) {
+        String prefix = ensureTrailingSlash(fullPath);
+        StorageNode folder = resolve(NodePath.parse(prefix))
+                .orElseThrow(() -> new RuntimeException("Ресурс не найден: " + prefix));
+
+        // Берём на один элемент больше, чтобы знать, есть ли следующая страница
+        int fetch = limit + 1;
+        List<StorageNode> children = switch (sort) {
+            case NAME -> nodeRepository.findByParentIdAndNameGreaterThanOrderByName(folder.getId(),
+                    cursor != null ? ListingCursor.decode(cursor, sort, 1)[0] : "", Limit.of(fetch));
+            case SIZE -> {
+                String[] position = cursor != null ? ListingCursor.decode(cursor, sort, 2) : new String[]{"-1", ""};
+                yield nodeRepository.findChildrenBySizeAfter(folder.getId(), parseLong(position[0]), position[1], fetch);
+            }
+            case MODIFIED -> {
+                String[] position = cursor != null
+                        ? ListingCursor.decode(cursor, sort, 2)
+                        : new String[]{Instant.EPOCH.toString(), ""};
+                yield nodeRepository.findChildrenByUpdatedAtAfter(folder.getId(), parseInstant(position[0]), position[1], fetch);
+            }
+        };
+
+        boolean hasMore = children.size() > limit;
+        List<MinioObject> objects = new ArrayList<>(Math.min(children.size(), limit));
+        for (StorageNode child : children.subList(0, Math.min(children.size(), limit))) {
+            objects.add(toMinioObject(child, prefix + child.getName() + (child.isDirectory() ? "/" : "")));
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            StorageNode last = children.get(limit - 1);
+            nextCursor = switch (sort) {
+                case NAME -> ListingCursor.encode(sort, last.getName());
+                case SIZE -> ListingCursor.encode(sort, String.valueOf(last.isDirectory() || last.getSize() == null
+                        ? 0L : last.getSize()), last.getName());
+                case MODIFIED -> ListingCursor.encode(sort, last.getUpdatedAt().toString(), last.getName());
+            };
+        }
+        return new ListingPage(objects, nextCursor);
+    }
+
+    @Override
+    public List<MinioObject> uploadFiles(String destinationFullPath, MultipartFile[] files) {
+        try {
+            String destination = ensureTrailingSlash(destinationFullPath);
+
+            // При загрузке папки имя файла — относительный путь (sub/a.txt):
+            // родитель у каждого файла свой, подпапки к этому моменту уже созданы
+            Map<NodePath, StorageNode> folders = new HashMap<>();
+            Map<MultipartFile, StorageNode> parents = new IdentityHashMap<>();
+            for (MultipartFile file : files) {
+                NodePath path = NodePath.parse(destination + file.getOriginalFilename());
+                StorageNode parent = folders.get(path.parent());
+                if (parent == null) {
+                    parent = resolve(path.parent())
+                            .orElseThrow(() -> new NoSuchElementException(
+                                    "Parent directory does not exist: " + path.parent()));
+                    folders.put(path.parent(), parent);
+                }
+                if (nodeRepository.findByParentIdAndName(parent.getId(), path.name()).isPresent()) {
+                    throw new RuntimeException("File already exists: " + destination + file.getOriginalFilename());
+                }
+                parents.put(file, parent);
+            }
+
+            int concurrency = storageProperties.getUpload().getConcurrency();
+            List<StorageTaskRunner.Outcome<MinioObject>> outcomes = taskRunner.runAll(List.of(files), concurrency,
+                    file -> storeFile(parents.get(file), destination + file.getOriginalFilename(),
+                            file.getInputStream(), file.getSize(), file.getContentType()));
+
+            List<MinioObject> uploadedObjects = new ArrayList<>(files.length);
+            Throwable firstError = null;
+            int failed = 0;
+
+            for (int i = 0; i < files.length; i++) {
+                StorageTaskRunner.Outcome<MinioObject> outcome = outcomes.get(i);
+                if (outcome.isSuccess()) {
+                    uploadedObjects.add(outcome.getResult());
+                    continue;
+                }
+
+                MultipartFile file = files[i];
+                String objectName = destination + file.getOriginalFilename();
+                logger.warn("Failed to upload {}: {}", objectName, outcome.getError().getMessage());
+
+                failed++;
+                if (firstError == null) {
+                    firstError = outcome.getError();
+                }
+                uploadedObjects.add(MinioObject.builder()
+                        .name(file.getOriginalFilename())
+                        .path(objectName)
+                        .size(file.getSize())
+                        .isDirectory(false)
+                        .error(outcome.getError().getMessage())
+                        .build());
+            }
+
+            if (failed == files.length) {
+                throw new RuntimeException("all " + failed + " files failed: " + firstError.getMessage(), firstError);
+            }
+            return uploadedObjects;
+        } catch (Exception e) {
+            throw new RuntimeException("uploadFiles: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public MinioObject uploadStream(String fullPath, InputStream content, long size, String contentType) {
+        try {
+            NodePath path = NodePath.parse(fullPath);
+            StorageNode parent = resolve(path.parent())
+                    .orElseThrow(() -> new NoSuchElementException("Parent directory does not exist: " + fullPath));
+            if (nodeRepository.findByParentIdAndName(parent.getId(), path.name()).isPresent()) {
+                throw new RuntimeException("File already exists: " + fullPath);
+            }
+
+            return storeFile(parent, fullPath, content, size, contentType);
+        } catch (Exception e) {
+            throw new RuntimeException("uploadStream: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Переименование и перемещение — смена родителя и имени одной строки,
+     * для папки любого размера
+     */
+    @Override
+    public void renameObject(String oldFullPath, String newFullPath) {
+        try {
+            StorageNode node = resolve(NodePath.parse(oldFullPath))
+                    .orElseThrow(() -> new RuntimeException("Ресурс не найден: " + oldFullPath));
+
+            NodePath target = NodePath.parse(newFullPath);
+            // Перемещение в ещё не существующую папку создаёт её, как при загрузке
+            createFolders(target.parent().ancestorsAndSelf());
+            StorageNode newParent = resolve(target.parent())
+                    .orElseThrow(() -> new RuntimeException("Ресурс не найден: " + target.parent()));
+
+            if (nodeRepository.findByParentIdAndName(newParent.getId(), target.name()).isPresent()) {
+                throw new RuntimeException("Ресурс уже существует: " + newFullPath);
+            }
+
+            node.setParentId(newParent.getId());
+            node.setName(target.name());
+            try {
+                nodeRepository.save(node);
+            } catch (DataIntegrityViolationException e) {
+                throw new RuntimeException("Ресурс уже существует: " + newFullPath, e);
+            }
+
+            logger.debug("Object renamed: {} -> {}", oldFullPath, newFullPath);
+        } catch (Exception e) {
+            logger.error("Error renaming {} -> {}: {}", oldFullPath, newFullPath, e.getMessage(), e);
+            throw new RuntimeException("renameObject: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Поиск от корня пользователя идёт по триграммному индексу имён; поиск
+     * внутри папки обходит её поддерево
+     */
+    @Override
+    public List<MinioObject> searchFiles(String rootFullPath, String query, int offset, int limit) {
+        try {
+            String prefix = ensureTrailingSlash(rootFullPath);
+            Optional<StorageNode> root = resolve(NodePath.parse(prefix));
+            if (root.isEmpty()) {
+                return List.of();
+            }
+
+            String escaped = query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            StorageNode folder = root.get();
+            List<StorageNodeRepository.TreeEntry> entries = folder.getParentId() == StorageNode.ROOT_PARENT_ID
+                    ? nodeRepository.searchByName(folder.getUserId(), folder.getId(),
+                            "%" + escaped + "%", escaped + "%", offset, limit)
+                    : nodeRepository.searchSubtree(folder.getId(), "%" + escaped + "%", offset, limit);
+
+            List<MinioObject> results = new ArrayList<>();
+            for (StorageNodeRepository.TreeEntry entry : entries) {
+                results.add(toMinioObject(entry, prefix + entry.getPath()));
+            }
+            return results;
+        } catch (Exception e) {
+            throw new RuntimeException("searchFiles: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Iterator<MinioObject> iterateSearchResults(String rootFullPath, String query, int offset, int limit) {
+        String prefix = ensureTrailingSlash(rootFullPath);
+        Optional<StorageNode> root = resolve(NodePath.parse(prefix));
+        if (root.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+
+        String escaped = query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        StorageNode folder = root.get();
+        int batchSize = storageProperties.getListing().getPageSize();
+        return inBatches(batchSize, (StorageNodeRepository.TreeEntry last, Integer loaded) -> {
+            int size = Math.min(batchSize, limit - loaded);
+            if (size <= 0) {
+                return List.of();
+            }
+            return folder.getParentId() == StorageNode.ROOT_PARENT_ID
+                    ? nodeRepository.searchByName(folder.getUserId(), folder.getId(),
+                            "%" + escaped + "%", escaped + "%", offset + loaded, size)
+                    : nodeRepository.searchSubtree(folder.getId(), "%" + escaped + "%", offset + loaded, size);
+        }, entry -> toMinioObject(entry, prefix + entry.getPath()));
+    }
+
+    @Override
+    public String getDownloadUrl(String fullPath) {
+        return getDownloadUrl(fullPath, null, 60 * 60);
+    }
+
+    @Override
+    public String getDownloadUrl(String fullPath, String contentDisposition, int expirySeconds) {
+        try {
+            GetPresignedObjectUrlArgs.Builder args = GetPresignedObjectUrlArgs.builder()
+                    .method(Method.GET)
+                    .bucket(bucket)
+                    .object(resolveObjectKey(fullPath))
+                    .expiry(expirySeconds);
+
+            if (contentDisposition != null) {
+                args.extraQueryParams(Map.of("response-content-disposition", contentDisposition));
+            }
+
+            return presignClient.getPresignedObjectUrl(args.build());
+        } catch (Exception e) {
+            throw new RuntimeException("getDownloadUrl: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isObjectExists(String fullPath) {
+        return resolve(NodePath.parse(fullPath)).isPresent();
+    }
+
+    @Override
+    public MinioObject getObjectInfo(String fullPath) {
+        return resolveResource(fullPath)
+                .orElseThrow(() -> new RuntimeException("getObjectInfo Not Found: NoSuchKey " + fullPath));
+    }
+
+    @Override
+    public Optional<MinioObject> resolveResource(String fullPath) {
+        return resolve(NodePath.parse(fullPath)).map(node -> toMinioObject(node, fullPath));
+    }
+
+    @Override
+    public void deleteObject(String fullPath) {
+        deleteObject(fullPath, deleted -> {
+        });
+    }
+
+    @Override
+    public void deleteObject(String fullPath, LongConsumer onDeleted) {
+        try {
+            StorageNode node = resolve(NodePath.parse(fullPath))
+                    .orElseThrow(() -> new RuntimeException("Ресурс не найден: " + fullPath));
+
+            if (!node.isDirectory()) {
+                nodeRepository.delete(node);
+                removeBlobs(List.of(node.getObjectKey()), onDeleted);
+                logger.debug("File deleted: {}", fullPath);
+                return;
+            }
+
+            List<StorageNodeRepository.TreeEntry> subtree = nodeRepository.findSubtree(node.getId());
+            List<String> blobKeys = new ArrayList<>();
+            for (StorageNodeRepository.TreeEntry entry : subtree) {
+                if (entry.getObjectKey() != null) {
+                    blobKeys.add(entry.getObjectKey());
+                }
+            }
+
+            // Папка исчезает для пользователя сразу, содержимое удаляется следом
+            int deletedNodes = nodeRepository.deleteSubtree(node.getId());
+            onDeleted.accept(deletedNodes - blobKeys.size());
+            removeBlobs(blobKeys, onDeleted);
+
+            logger.debug("Folder and contents deleted: {}. Nodes deleted: {}", fullPath, deletedNodes);
+        } catch (Exception e) {
+            throw new RuntimeException("deleteObject: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long countObjects(String fullPath, long limit) {
+        StorageNode folder = resolve(NodePath.parse(ensureTrailingSlash(fullPath)))
+                .orElseThrow(() -> new RuntimeException("Ресурс не найден: " + fullPath));
+        return nodeRepository.countSubtree(folder.getId(), limit);
+    }
+
+    @Override
+    public String resolveObjectKey(String fullPath) {
+        return resolve(NodePath.parse(fullPath))
+                .filter(node -> !node.isDirectory())
+                .map(StorageNode::getObjectKey)
+                .orElseThrow(() -> new RuntimeException("Ресурс не найден: " + fullPath));
+    }
+
+    /**
+     * Папка и её содержимое в порядке путей. Дерево читается одним
+     * рекурсивным запросом; в памяти только пути и ключи, без содержимого
+     */
+    @Override
+    public Iterator<MinioObject> walkTree(String folderFullPath) {
+        String prefix = ensureTrailingSlash(folderFullPath);
+        StorageNode folder = resolve(NodePath.parse(prefix))
+                .orElseThrow(() -> new RuntimeException("Ресурс не найден: " + prefix));
+
+        List<MinioObject> entries = new ArrayList<>();
+        entries.add(toMinioObject(folder, prefix));
+        for (StorageNodeRepository.TreeEntry entry : nodeRepository.findSubtree(folder.getId())) {
+            entries.add(toMinioObject(entry, prefix + entry.getPath()));
+        }
+        return entries.iterator();
+    }
+
+    @Override
+    public String allocateObjectKey(String fullPath) {
+        return BLOB_PREFIX + UUID.randomUUID();
+    }
+
+    @Override
+    public void registerObject(String fullPath, String objectKey, long size, String contentType) {
+        NodePath path = NodePath.parse(fullPath);
+        StorageNode parent = resolve(path.parent())
+                .orElseThrow(() -> new NoSuchElementException("Parent directory does not exist: " + fullPath));
+
+        StorageNode node = new StorageNode(path.userId(), parent.getId(), path.name(), ResourceType.FILE);
+        node.setObjectKey(objectKey);
+        node.setSize(size);
+        node.setContentType(contentType);
+        insertFile(node, fullPath);
+    }
+
+    // ============= ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ =============
+    //
+    /**
+     * Поиск узла по пути одним рекурсивным запросом (спуск по уникальному
+     * индексу). Путь со слешем на конце — папка, без — файл, как у ключей в
+     * раскладке path
+     */
+    private Optional<StorageNode> resolve(NodePath path) {
+        Optional<StorageNode> node = nodeRepository.findByPath(
+                path.rootName(), String.join("/", path.segments()), path.segments().size());
+
+        ResourceType expected = path.directory() ? ResourceType.DIRECTORY : ResourceType.FILE;
+        return node.filter(found -> found.getType() == expected);
+    }
+
+    /**
+     * Создание узла папки; false, если ресурс с таким именем уже есть
+     */
+    private boolean createFolderNode(NodePath path) {
+        long parentId;
+        if (path.segments().isEmpty()) {
+            parentId = StorageNode.ROOT_PARENT_ID;
+        } else {
+            parentId = resolve(path.parent())
+                    .orElseThrow(() -> new RuntimeException("Родительская папка не существует: " + path.parent()))
+                    .getId();
+        }
+
+        String name = path.segments().isEmpty() ? path.rootName() : path.name();
+        if (nodeRepository.findByParentIdAndName(parentId, name).isPresent()) {
+            return false;
+        }
+
+        try {
+            nodeRepository.save(new StorageNode(path.userId(), parentId, name, ResourceType.DIRECTORY));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Папку параллельно создал другой запрос
+            return false;
+        }
+    }
+
+    /**
+     * Запись содержимого под новым ключом и регистрация файла в дереве. Если
+     * имя успели занять, записанный объект удаляется
+     */
+    private MinioObject storeFile(
+            StorageNode parent, String fullPath, InputStream content, long size, String contentType) throws Exception {
+
+        String objectKey = allocateObjectKey(fullPath);
+        long partSize = storageProperties.getUpload().getPartSize().toBytes();
+        ObjectWriteResponse response = minioClient.putObject(
+                PutObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectKey)
+                        .stream(content, size, partSize)
+                        .contentType(contentType != null && !contentType.isBlank()
+                                ? contentType
+                                : "application/octet-stream")
+                        .build()
+        );
+
+        // Без Content-Length размер известен только после загрузки
+        long storedSize = size >= 0
+                ? size
+                : minioClient.statObject(
+                        StatObjectArgs.builder()
+                                .bucket(bucket)
+                                .object(objectKey)
+                                .build()
+                ).size();
+
+        NodePath path = NodePath.parse(fullPath);
+        StorageNode node = new StorageNode(path.userId(), parent.getId(), path.name(), ResourceType.FILE);
+        node.setObjectKey(objectKey);
+        node.setSize(storedSize);
+        node.setContentType(contentType);
+        node.setEtag(response != null ? response.etag() : null);
+
+        try {
+            insertFile(node, fullPath);
+        } catch (RuntimeException e) {
+            removeBlobs(List.of(objectKey), deleted -> {
+            });
+            throw e;
+        }
+
+        logger.debug("File uploaded: {} -> {} ({} bytes)", fullPath, objectKey, storedSize);
+        return toMinioObject(node, fullPath);
+    }
+
+    private void insertFile(StorageNode node, String fullPath) {
+        try {
+            nodeRepository.save(node);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("File already exists: " + fullPath, e);
+        }
+    }
+
+    /**
+     * Удаление содержимого пакетами removeObjects. Строки к этому моменту уже
+     * удалены, поэтому ошибки только логируются
+     */
+    private void removeBlobs(List<String> keys, LongConsumer onDeleted) {
+        int batchSize = Math.min(1000, Math.max(1, storageProperties.getDelete().getBatchSize()));
+
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            List<DeleteObject> batch = new ArrayList<>();
+            for (String key : keys.subList(from, Math.min(keys.size(), from + batchSize))) {
+                batch.add(new DeleteObject(key));
+            }
+
+            int failed = 0;
+            try {
+                for (Result<DeleteError> result : minioClient.removeObjects(
+                        RemoveObjectsArgs.builder()
+                                .bucket(bucket)
+                                .objects(batch)
+                                .build())) {
+                    DeleteError error = result.get();
+                    failed++;
+                    logger.warn("Orphaned blob {} was not deleted: {}", error.objectName(), error.message());
+                }
+            } catch (Exception e) {
+                failed = batch.size();
+                logger.warn("Failed to delete {} orphaned blobs: {}", batch.size(), e.getMessage());
+            }
+            onDeleted.accept(batch.size() - failed);
+        }
+    }
+
+    private MinioObject toMinioObject(StorageNode node, String fullPath) {
+        return MinioObject.builder()
+                .name(node.getParentId() == StorageNode.ROOT_PARENT_ID ? "" : node.getName())
+                .path(fullPath)
+                .size(node.isDirectory() ? 0L : node.getSize())
+                .isDirectory(node.isDirectory())
+                .lastModified(node.getUpdatedAt())
+                .etag(node.getEtag())
+                .contentType(node.getContentType())
+                .objectKey(node.getObjectKey())
+                .build();
+    }
+
+    private MinioObject toMinioObject(StorageNodeRepository.TreeEntry entry, String fullPath) {
+        boolean directory = ResourceType.DIRECTORY.name().equals(entry.getType());
+        return MinioObject.builder()
+                .name(extractName(fullPath))
+                .path(fullPath)
+                .size(directory || entry.getSize() == null ? 0L : entry.getSize())
+                .isDirectory(directory)
+                .objectKey(entry.getObjectKey())
+                .build();
+    }
+
+    /**
+     * Ленивый обход, читающий строки пачками: fetch получает последнюю
+     * отданную строку (null — первая пачка) и число уже прочитанных строк.
+     * Пачка короче batchSize — последняя
+     */
+    private <T> Iterator<MinioObject> inBatches(int batchSize, BiFunction<T, Integer, List<T>> fetch,
+                                                Function<T, MinioObject> mapper) {
+        return new Iterator<>() {
+            private Iterator<T> batch = Collections.emptyIterator();
+            private T last;
+            private int loaded;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (!batch.hasNext() && !exhausted) {
+                    List<T> rows = fetch.apply(last, loaded);
+                    exhausted = rows.size() < batchSize;
+                    loaded += rows.size();
+                    batch = rows.iterator();
+                }
+                return batch.hasNext();
+            }
+
+            @Override
+            public MinioObject next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = batch.next();
+                return mapper.apply(last);
+            }
+        };
+    }
+
+    private long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private Instant parseInstant(String value) {
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private int depth(String folder) {
+        int depth = 0;
+        for (int i = 0; i < folder.length(); i++) {
+            if (folder.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    private String ensureTrailingSlash(String path) {
+        return path.endsWith("/") ? path : path + "/";
+    }
+
+    private String extractName(String fullPath) {
+        String path = fullPath.endsWith("/") ? fullPath.substring(0, fullPath.length() - 1) : fullPath;
+        int lastSlash = path.lastIndexOf('/');
+        return lastSlash != -1 ? path.substring(lastSlash + 1) : path;
+    }
+
+    /**
+     * Разобранный полный путь user-{id}-files/a/b/ (папка) или user-{id}-files/a/b (файл)
+     */
+    private record NodePath(String rootName, Long userId, List<String> segments, boolean directory) {
+
+        static NodePath parse(String fullPath) {
+            Matcher matcher = FULL_PATH.matcher(fullPath);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid path: " + fullPath);
+            }
+
+            String relative = matcher.group(3);
+            List<String> segments = new ArrayList<>();
+            for (String segment : relative.split("/")) {
+                if (!segment.isEmpty()) {
+                    segments.add(segment);
+                }
+            }
+            return new NodePath(
+                    matcher.group(1),
+                    Long.valueOf(matcher.group(2)),
+                    List.copyOf(segments),
+                    relative.isEmpty() || relative.endsWith("/"));
+        }
+
+        String name() {
+            return segments.get(segments.size() - 1);
+        }
+
+        NodePath parent() {
+            return new NodePath(rootName, userId, segments.subList(0, segments.size() - 1), true);
+        }
+
+        /**
+         * Полные пути папки и всех её предков, начиная с корня
+         */
+        List<String> ancestorsAndSelf() {
+            List<String> paths = new ArrayList<>();
+            StringBuilder current = new StringBuilder(rootName).append('/');
+            paths.add(current.toString());
+            for (String segment : segments) {
+                current.append(segment).append('/');
+                paths.add(current.toString());
+            }
+            return paths;
+        }
+
+        @Override
+        public String toString() {
+            return rootName + "/" + String.join("/", segments) + (directory && !segments.isEmpty() ? "/" : "");
+        }
+    }
+}
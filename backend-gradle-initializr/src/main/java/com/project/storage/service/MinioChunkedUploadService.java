@@ -0,0 +1,415 @@
+package com.project.storage.service;
+
+import com.project.config.StorageProperties;
+import com.project.exception.StorageException;
+import com.project.storage.dto.ResourceInfo;
+import com.project.storage.dto.UploadSessionInfo;
+import com.project.storage.model.ResourceType;
+import com.project.storage.model.UploadSession;
+import com.project.storage.util.PathValidator;
+import com.project.storage.util.StorageMetrics;
+import com.project.storage.util.UploadSessionStore;
+import io.minio.*;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Возобновляемая загрузка больших файлов чанками.
+ *
+ * Каждый чанк сохраняется в MinIO отдельным временным объектом
+ * {@code uploads-tmp/{uploadId}/part-NNNNN}, поэтому принятые чанки
+ * переживают обрыв соединения и рестарт приложения. При завершении чанки
+ * собираются в итоговый объект через composeObject — это серверная
+ * multipart-загрузка MinIO (UploadPartCopy), данные через приложение
+ * повторно не проходят. Ограничения те же, что у multipart в S3: все чанки,
+ * кроме последнего, не меньше 5MB, не больше 10000 чанков.
+ */
+@Service
+public class MinioChunkedUploadService implements ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MinioChunkedUploadService.class);
+
+    // Временные чанки лежат вне префиксов пользователей и не видны в листингах
+    private static final String TEMP_PREFIX = "uploads-tmp/";
+
+    private static final long MIN_CHUNK_SIZE = 5L * 1024 * 1024;
+    private static final long MAX_CHUNK_SIZE = 5L * 1024 * 1024 * 1024;
+    private static final int MAX_PARTS = 10000;
+
+    @Value("${spring.minio.bucket}")
+    private String bucket;
+    private final MinioClient minioClient;
+    private final MinioServiceAdapter minioServiceAdapter;
+    private final StorageService storageService;
+    private final PathValidator pathValidator;
+    private final UploadSessionStore sessionStore;
+    private final StorageProperties storageProperties;
+    private final StorageMetrics storageMetrics;
+
+    public MinioChunkedUploadService(
+            MinioClient minioClient,
+            MinioServiceAdapter minioServiceAdapter,
+            StorageService storageService,
+            PathValidator pathValidator,
+            UploadSessionStore sessionStore,
+            StorageProperties storageProperties,
+            StorageMetrics storageMetrics) {
+        this.minioClient = minioClient;
+        this.minioServiceAdapter = minioServiceAdapter;
+        this.storageService = storageService;
+        this.pathValidator = pathValidator;
+        this.sessionStore = sessionStore;
+        this.storageProperties = storageProperties;
+        this.storageMetrics = storageMetrics;
+    }
+
+    @Override
+    public UploadSessionInfo initiate(Long userId, String path, long size, Long chunkSize, String contentType) {
+        pathValidator.assertValidPathOrThrow(path, ResourceType.FILE, userId, "initiateUpload");
+
+        if (size < 0) {
+            throw new StorageException.InvalidPathException(
+                    "Не указан размер файла", userId, path, "initiateUpload");
+        }
+
+        long chunk = chunkSize != null ? chunkSize : storageProperties.getUpload().getChunkSize().toBytes();
+        if (chunk < MIN_CHUNK_SIZE || chunk > MAX_CHUNK_SIZE) {
+            throw new StorageException.InvalidPathException(
+                    "Размер чанка должен быть от 5MB до 5GB", userId, path, "initiateUpload");
+        }
+
+        UploadSession session = UploadSession.builder()
+                .uploadId(UUID.randomUUID().toString())
+                .userId(userId)
+                .path(path)
+                .size(size)
+                .chunkSize(chunk)
+                .contentType(contentType)
+                .createdAt(Instant.now())
+                .build();
+
+        if (session.getTotalParts() > MAX_PARTS) {
+            throw new StorageException.InvalidPathException(
+                    "Слишком много чанков (" + session.getTotalParts() + "), увеличьте размер чанка",
+                    userId, path, "initiateUpload");
+        }
+
+        assertNotExists(userId, path, "initiateUpload");
+
+        sessionStore.save(session);
+        logger.info("User {}: Upload session {} started for {} ({} bytes, {} parts)",
+                userId, session.getUploadId(), path, size, session.getTotalParts());
+
+        return toInfo(session, List.of());
+    }
+
+    @Override
+    public UploadSessionInfo getStatus(Long userId, String uploadId) {
+        UploadSession session = requireSession(userId, uploadId, "getUploadStatus");
+        return toInfo(session, new ArrayList<>(listParts(uploadId).keySet()));
+    }
+
+    @Override
+    public UploadSessionInfo uploadPart(
+            Long userId, String uploadId, int partNumber, InputStream content, long contentLength) {
+
+        UploadSession session = requireSession(userId, uploadId, "uploadPart");
+
+        if (partNumber < 1 || partNumber > session.getTotalParts()) {
+            throw new StorageException.InvalidPathException(
+                    "Номер чанка должен быть от 1 до " + session.getTotalParts(),
+                    userId, session.getPath(), "uploadPart");
+        }
+
+        long expectedLength = session.getPartLength(partNumber);
+        if (contentLength >= 0 && contentLength != expectedLength) {
+            throw new StorageException.InvalidPathException(
+                    "Чанк " + partNumber + " должен иметь размер " + expectedLength + " байт",
+                    userId, session.getPath(), "uploadPart");
+        }
+
+        storageMetrics.uploadStarted();
+        try {
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(partKey(uploadId, partNumber))
+                            .stream(content, expectedLength, -1)
+                            .build()
+            );
+            storageMetrics.recordBytesUploaded(expectedLength);
+        } catch (Exception e) {
+            logger.warn("User {}: Part {} of upload {} failed: {}", userId, partNumber, uploadId, e.getMessage());
+            throw new StorageException.StorageOperationException(
+                    "Ошибка при загрузке чанка " + partNumber + ": " + e.getMessage(),
+                    userId, session.getPath(), "uploadPart");
+        } finally {
+            storageMetrics.uploadFinished();
+        }
+
+        sessionStore.touch(uploadId);
+        logger.debug("User {}: Upload {} part {}/{} stored ({} bytes)",
+                userId, uploadId, partNumber, session.getTotalParts(), expectedLength);
+
+        return toInfo(session, new ArrayList<>(listParts(uploadId).keySet()));
+    }
+
+    @Override
+    public ResourceInfo complete(Long userId, String uploadId) {
+        UploadSession session = requireSession(userId, uploadId, "completeUpload");
+        String path = session.getPath();
+
+        // Все чанки на месте и нужного размера
+        Map<Integer, Long> parts = listParts(uploadId);
+        for (int partNumber = 1; partNumber <= session.getTotalParts(); partNumber++) {
+            Long partSize = parts.get(partNumber);
+            if (partSize == null || partSize != session.getPartLength(partNumber)) {
+                throw new StorageException.InvalidPathException(
+                        "Чанк " + partNumber + " не загружен или загружен не полностью",
+                        userId, path, "completeUpload");
+            }
+        }
+
+        assertNotExists(userId, path, "completeUpload");
+        createParentFoldersIfNeeded(userId, path);
+
+        List<ComposeSource> sources = new ArrayList<>();
+        for (int partNumber = 1; partNumber <= session.getTotalParts(); partNumber++) {
+            sources.add(ComposeSource.builder()
+                    .bucket(bucket)
+                    .object(partKey(uploadId, partNumber))
+                    .build());
+        }
+
+        // В раскладке indexed файл собирается под новым ключом и затем регистрируется в дереве путей
+        String objectKey = minioServiceAdapter.allocateObjectKey(userId, path);
+        try {
+            ComposeObjectArgs.Builder args = ComposeObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(objectKey)
+                    .sources(sources);
+            if (session.getContentType() != null && !session.getContentType().isBlank()) {
+                args.headers(Map.of("Content-Type", session.getContentType()));
+            }
+            minioClient.composeObject(args.build());
+        } catch (Exception e) {
+            logger.error("User {}: Failed to compose upload {} into {}", userId, uploadId, path, e);
+            throw new StorageException.StorageOperationException(
+                    "Ошибка при сборке файла: " + e.getMessage(),
+                    userId, path, "completeUpload");
+        }
+        minioServiceAdapter.registerObject(userId, path, objectKey, session.getSize(), session.getContentType());
+
+        sessionStore.delete(uploadId);
+        deleteParts(uploadId);
+
+        logger.info("User {}: Upload {} completed: {} ({} parts)", userId, uploadId, path, session.getTotalParts());
+        return storageService.getResourceInfo(userId, path);
+    }
+
+    @Override
+    public void abort(Long userId, String uploadId) {
+        UploadSession session = requireSession(userId, uploadId, "abortUpload");
+
+        sessionStore.delete(uploadId);
+        deleteParts(uploadId);
+
+        logger.info("User {}: Upload {} for {} aborted", userId, uploadId, session.getPath());
+    }
+
+    /**
+     * Удаление чанков брошенных сессий: ключ в Redis истёк, а временные
+     * объекты остались. Безопасно запускается на нескольких экземплярах
+     * одновременно — удаление идемпотентно.
+     */
+    @Scheduled(
+            initialDelayString = "${app.storage.upload.gc-interval:PT1H}",
+            fixedDelayString = "${app.storage.upload.gc-interval:PT1H}")
+    public void collectOrphanedParts() {
+        ZonedDateTime threshold = ZonedDateTime.now().minus(storageProperties.getUpload().getOrphanGrace());
+        List<DeleteObject> orphaned = new ArrayList<>();
+
+        try {
+            String lastChecked = null;
+            boolean lastAlive = true;
+
+            for (Result<Item> result : minioClient.listObjects(
+                    ListObjectsArgs.builder()
+                            .bucket(bucket)
+                            .prefix(TEMP_PREFIX)
+                            .recursive(true)
+                            .build())) {
+                Item item = result.get();
+                String uploadId = extractUploadId(item.objectName());
+                if (uploadId == null) {
+                    continue;
+                }
+
+                // Листинг отсортирован, чанки одной сессии идут подряд
+                if (!uploadId.equals(lastChecked)) {
+                    lastChecked = uploadId;
+                    lastAlive = sessionStore.exists(uploadId);
+                }
+
+                if (!lastAlive && item.lastModified() != null && item.lastModified().isBefore(threshold)) {
+                    orphaned.add(new DeleteObject(item.objectName()));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Orphaned upload parts scan failed: {}", e.getMessage());
+            return;
+        }
+
+        if (!orphaned.isEmpty()) {
+            removeObjects(orphaned);
+            logger.info("Removed {} orphaned upload parts", orphaned.size());
+        }
+    }
+
+    // ============= ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ =============
+    private UploadSession requireSession(Long userId, String uploadId, String operation) {
+        // Чужая сессия неотличима от несуществующей
+        return sessionStore.find(uploadId)
+                .filter(session -> session.getUserId().equals(userId))
+                .orElseThrow(() -> new StorageException.ResourceNotFoundException(
+                        "Сессия загрузки не найдена: " + uploadId,
+                        userId,
+                        uploadId,
+                        operation
+                ));
+    }
+
+    private void assertNotExists(Long userId, String path, String operation) {
+        boolean exists;
+        try {
+            exists = minioServiceAdapter.isObjectExists(userId, path);
+        } catch (Exception e) {
+            throw new StorageException.StorageOperationException(
+                    "Ошибка доступа к ресурсу: " + e.getMessage(), userId, path, operation);
+        }
+
+        if (exists) {
+            throw new StorageException.ResourceAlreadyExistsException(
+                    "Файл уже существует: " + path, userId, path, operation);
+        }
+    }
+
+    /**
+     * Номера и размеры уже загруженных чанков
+     */
+    private Map<Integer, Long> listParts(String uploadId) {
+        Map<Integer, Long> parts = new TreeMap<>();
+        try {
+            for (Result<Item> result : minioClient.listObjects(
+                    ListObjectsArgs.builder()
+                            .bucket(bucket)
+                            .prefix(TEMP_PREFIX + uploadId + "/")
+                            .recursive(true)
+                            .build())) {
+                Item item = result.get();
+                String name = item.objectName().substring(item.objectName().lastIndexOf('/') + 1);
+                if (name.startsWith("part-")) {
+                    parts.put(Integer.parseInt(name.substring("part-".length())), item.size());
+                }
+            }
+        } catch (Exception e) {
+            throw new StorageException.StorageOperationException(
+                    "Ошибка при получении списка чанков: " + e.getMessage(), "listUploadParts");
+        }
+        return parts;
+    }
+
+    /**
+     * Удаление чанков сессии. Ошибки не пробрасываются: оставшееся удалит
+     * сборщик брошенных чанков.
+     */
+    private void deleteParts(String uploadId) {
+        try {
+            List<DeleteObject> objects = new ArrayList<>();
+            for (Result<Item> result : minioClient.listObjects(
+                    ListObjectsArgs.builder()
+                            .bucket(bucket)
+                            .prefix(TEMP_PREFIX + uploadId + "/")
+                            .recursive(true)
+                            .build())) {
+                objects.add(new DeleteObject(result.get().objectName()));
+            }
+            removeObjects(objects);
+        } catch (Exception e) {
+            logger.warn("Failed to delete parts of upload {}: {}", uploadId, e.getMessage());
+        }
+    }
+
+    private void removeObjects(List<DeleteObject> objects) {
+        if (objects.isEmpty()) {
+            return;
+        }
+        // removeObjects ленивый: запросы уходят только при обходе результата
+        for (Result<DeleteError> result : minioClient.removeObjects(
+                RemoveObjectsArgs.builder()
+                        .bucket(bucket)
+                        .objects(objects)
+                        .build())) {
+            try {
+                DeleteError error = result.get();
+                logger.warn("Failed to delete {}: {}", error.objectName(), error.message());
+            } catch (Exception e) {
+                logger.warn("Failed to delete upload parts: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void createParentFoldersIfNeeded(Long userId, String path) {
+        int lastSlash = path.lastIndexOf('/');
+        if (lastSlash == -1) {
+            return;
+        }
+
+        List<String> folders = new ArrayList<>();
+        StringBuilder currentPath = new StringBuilder();
+        for (String part : path.substring(0, lastSlash).split("/")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            currentPath.append(part).append("/");
+            folders.add(currentPath.toString());
+        }
+        minioServiceAdapter.createFolders(userId, folders);
+    }
+
+    private String extractUploadId(String objectName) {
+        String rest = objectName.substring(TEMP_PREFIX.length());
+        int slash = rest.indexOf('/');
+        return slash > 0 ? rest.substring(0, slash) : null;
+    }
+
+    private String partKey(String uploadId, int partNumber) {
+        return String.format("%s%s/part-%05d", TEMP_PREFIX, uploadId, partNumber);
+    }
+
+    private UploadSessionInfo toInfo(UploadSession session, List<Integer> uploadedParts) {
+        return UploadSessionInfo.builder()
+                .uploadId(session.getUploadId())
+                .path(session.getPath())
+                .size(session.getSize())
+                .chunkSize(session.getChunkSize())
+                .totalParts(session.getTotalParts())
+                .uploadedParts(uploadedParts)
+                .build();
+    }
+}
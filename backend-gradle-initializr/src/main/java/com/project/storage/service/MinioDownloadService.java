@@ -1,26 +1,29 @@
 package com.project.storage.service;
 
+import com.project.config.StorageProperties;
 import com.project.entity.MinioObject;
 import com.project.exception.StorageException;
-import com.project.storage.dto.ResourceInfo;
+import com.project.storage.util.OrderedPrefetcher;
 import com.project.storage.util.PathValidator;
+import com.project.storage.util.StorageMetrics;
+import com.project.storage.util.StorageTaskRunner;
 import io.minio.*;
 import io.minio.errors.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.beans.factory.annotation.Value;
 import com.project.storage.model.ResourceType;
 
-import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -29,59 +32,54 @@ public class MinioDownloadService implements DownloadService {
 
     private static final Logger logger = LoggerFactory.getLogger(MinioDownloadService.class);
 
+    // Размер буфера при копировании потока MinIO -> ответ
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
     @Value("${spring.minio.bucket}")
     private String bucket;
-    private final StorageService storageService;
     private final MinioClient minioClient;
     private final MinioServiceAdapter minioServiceAdapter;
     private final PathValidator pathValidator;
+    private final StorageProperties storageProperties;
+    private final StorageTaskRunner taskRunner;
+    private final StorageMetrics storageMetrics;
 
     public MinioDownloadService(
-            StorageService storageService,
             MinioClient minioClient,
             MinioServiceAdapter minioServiceAdapter,
-            PathValidator pathValidator) {
-        this.storageService = storageService;
+            PathValidator pathValidator,
+            StorageProperties storageProperties,
+            StorageTaskRunner taskRunner,
+            StorageMetrics storageMetrics) {
         this.minioClient = minioClient;
         this.minioServiceAdapter = minioServiceAdapter;
         this.pathValidator = pathValidator;
+        this.storageProperties = storageProperties;
+        this.taskRunner = taskRunner;
+        this.storageMetrics = storageMetrics;
     }
 
     @Override
     public DownloadResult getDownloadResource(Long userId, String path) {
-        logger.info("User {}: Preparing download for path: {}", userId, path);
+        logger.debug("User {}: Preparing download for path: {}", userId, path);
 
         try {
             // 1. Валидация пути
             pathValidator.assertValidPathOrThrow(path, null, userId, "getDownloadResource");
 
-            // 2. Проверяем существование объекта
-            try {
-                if (!minioServiceAdapter.isObjectExists(userId, path)) {
-                    throw new StorageException.ResourceNotFoundException(
+            // 2. Существование, тип, размер и ключ содержимого — одним запросом
+            MinioObject objectInfo = minioServiceAdapter.resolveResource(userId, path)
+                    .orElseThrow(() -> new StorageException.ResourceNotFoundException(
                             "Ресурс не найден: " + path,
                             userId,
                             path,
                             "getDownloadResource"
-                    );
-                }
-            } catch (ErrorResponseException e) {
-                // Если это не NoSuchKey, а другая ошибка MinIO
-                throw new StorageException.InvalidPathException(
-                        "Ошибка доступа к ресурсу: " + e.getMessage(),
-                        userId,
-                        path,
-                        "getDownloadResource"
-                );
-            }
-
-            // 3. Получаем информацию о ресурсе через адаптер
-            MinioObject objectInfo = minioServiceAdapter.getObjectInfo(userId, path);
+                    ));
 
-            // 4. Определяем тип ресурса
+            // 3. Определяем тип ресурса
             boolean isDirectory = objectInfo.isDirectory() || path.endsWith("/");
 
-            // 5. Повторная строгая сверка типа (на случай рассинхрона с Minio)
+            // 4. Повторная строгая сверка типа (на случай рассинхрона с Minio)
             ResourceType requestedType = pathValidator.validateAndGetType(path);
             if (isDirectory && requestedType == ResourceType.FILE) {
                 throw new StorageException.InvalidPathException(
@@ -99,10 +97,10 @@ public class MinioDownloadService implements DownloadService {
                 );
             }
 
-            // 6. Скачивание
+            // 5. Скачивание
             if (!isDirectory) {
                 logger.debug("User {}: Downloading file: {}", userId, path);
-                return downloadFileFromMinio(userId, path, objectInfo.getName());
+                return downloadFileFromMinio(userId, path, objectInfo);
             } else {
                 logger.debug("User {}: Downloading directory as zip: {}", userId, path);
                 return downloadDirectoryAsZip(userId, path, objectInfo.getName());
@@ -122,192 +120,238 @@ public class MinioDownloadService implements DownloadService {
     }
 
     /**
-     * Скачивание файла из MinIO
+     * Скачивание файла из MinIO. Объект не буферизуется: поток GetObject
+     * копируется в ответ кусками по {@link #STREAM_BUFFER_SIZE} байт. Для
+     * запросов с Range из MinIO читается только запрошенный диапазон.
      */
-    private DownloadResult downloadFileFromMinio(Long userId, String relativePath, String originalName)
-            throws Exception {
+    private DownloadResult downloadFileFromMinio(Long userId, String relativePath, MinioObject objectInfo) {
+        String objectKey = objectInfo.getObjectKey() != null
+                ? objectInfo.getObjectKey()
+                : minioServiceAdapter.resolveObjectKey(userId, relativePath);
 
-        String fullPath = getFullPathForMinio(userId, relativePath);
-
-        try {
-            // Читаем весь файл в память
-            byte[] fileContent;
-            try (InputStream stream = minioClient.getObject(
-                    GetObjectArgs.builder()
-                            .bucket(bucket)
-                            .object(fullPath)
-                            .build()
-            )) {
-                fileContent = readAllBytes(stream);
-            }
-
-            // Используем ByteArrayResource вместо InputStreamResource
-            Resource resource = new ByteArrayResource(fileContent) {
-                @Override
-                public String getFilename() {
-                    return originalName;
-                }
-            };
+        StreamingResponseBody body = measured(outputStream -> streamObject(
+                GetObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectKey)
+                        .build(),
+                outputStream));
 
-            return new DownloadResult(resource, originalName, false);
+        RangedBody rangedBody = (offset, length) -> measured(outputStream -> streamObject(
+                GetObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectKey)
+                        .offset(offset)
+                        .length(length)
+                        .build(),
+                outputStream));
+
+        return new DownloadResult(
+                body,
+                rangedBody,
+                objectInfo.getName(),
+                false,
+                objectInfo.getSize(),
+                objectInfo.getEtag(),
+                objectInfo.getLastModified());
+    }
 
+    /**
+     * Копирование объекта (или его диапазона) из MinIO в поток ответа
+     */
+    private void streamObject(GetObjectArgs args, OutputStream outputStream) throws IOException {
+        try (InputStream stream = minioClient.getObject(args)) {
+            copyStream(stream, outputStream);
+        } catch (IOException e) {
+            logger.warn("Streaming of {} interrupted: {}", args.object(), e.getMessage());
+            throw e;
         } catch (Exception e) {
-            logger.error("Error downloading file from MinIO: {}", fullPath, e);
-            throw new StorageException.StorageOperationException(
-                    "Ошибка скачивания файла: " + e.getMessage(),
-                    userId,
-                    relativePath,
-                    "downloadFile"
-            );
+            logger.error("Error downloading file from MinIO: {}", args.object(), e);
+            throw new IOException("Ошибка скачивания файла: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Скачивание папки как ZIP архива из MinIO
+     * Скачивание папки как ZIP архива из MinIO. Архив пишется прямо в ответ:
+     * листинг читается лениво, следующие объекты скачиваются параллельно,
+     * пока текущий пишется в архив, без временных файлов.
      */
-    private DownloadResult downloadDirectoryAsZip(Long userId, String relativePath, String folderName)
-            throws Exception {
-
-        Path tempZip = null;
-        try {
-            // Получаем все файлы в папке рекурсивно
-            List<MinioFileInfo> files = getAllFilesInFolder(userId, relativePath);
-
-            // Создаем временный файл для ZIP архива
-            tempZip = Files.createTempFile(folderName + "_" + UUID.randomUUID(), ".zip");
-
-            try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(tempZip))) {
-                for (MinioFileInfo fileInfo : files) {
-                    addFileToZip(zos, fileInfo);
+    private DownloadResult downloadDirectoryAsZip(Long userId, String relativePath, String folderName) {
+        String userPrefix = getFullPathForMinio(userId, "");
+        String folderPrefix = getFullPathForMinio(userId, ensureTrailingSlash(relativePath));
+        String folderPath = ensureTrailingSlash(relativePath);
+        String zipFilename = folderName + ".zip";
+
+        StreamingResponseBody body = measured(outputStream -> {
+            // Не закрываем поток ответа — им управляет контейнер
+            ZipOutputStream zos = new ZipOutputStream(outputStream);
+            int entries = 0;
+            long started = System.nanoTime();
+            boolean success = false;
+            try (OrderedPrefetcher<MinioFileInfo> prefetcher = createPrefetcher(userId, userPrefix, folderPath)) {
+                while (prefetcher.hasNext()) {
+                    OrderedPrefetcher.Prefetched<MinioFileInfo> next = prefetcher.next();
+                    MinioFileInfo fileInfo = next.getItem();
+
+                    zos.putNextEntry(new ZipEntry(fileInfo.getEntryName()));
+                    if (next.isPrefetched()) {
+                        zos.write(next.getContent());
+                    } else if (!fileInfo.isDirectory()) {
+                        copyObjectToZip(zos, fileInfo);
+                    }
+                    zos.closeEntry();
+                    entries++;
                 }
+                zos.finish();
+                zos.flush();
+                success = true;
+                logger.debug("User {}: Zip for {} streamed, entries: {}", userId, relativePath, entries);
+            } catch (UncheckedIOException e) {
+                logger.error("Zip streaming of {} failed after {} entries", folderPrefix, entries, e);
+                throw e.getCause();
+            } catch (IOException e) {
+                logger.warn("Zip streaming of {} interrupted after {} entries: {}",
+                        folderPrefix, entries, e.getMessage());
+                throw e;
+            } finally {
+                storageMetrics.recordZipAssembly(System.nanoTime() - started, success);
             }
+        });
 
-            // Читаем ZIP файл в память
-            byte[] zipContent = Files.readAllBytes(tempZip);
-            String zipFilename = folderName + ".zip";
-
-            // Удаляем временный файл сразу после чтения
-            Files.deleteIfExists(tempZip);
-
-            // Используем ByteArrayResource
-            Resource resource = new ByteArrayResource(zipContent) {
-                @Override
-                public String getFilename() {
-                    return zipFilename;
-                }
-            };
-
-            return new DownloadResult(resource, zipFilename, true);
+        return new DownloadResult(body, zipFilename, true);
+    }
 
-        } catch (Exception e) {
-            // Очистка временного файла в случае ошибки
-            if (tempZip != null) {
-                try {
-                    Files.deleteIfExists(tempZip);
-                } catch (Exception ex) {
-                    logger.warn("Failed to delete temp file: {}", tempZip, ex);
-                }
+    /**
+     * Тело ответа с учётом в метриках: активные скачивания и отданные байты
+     */
+    private StreamingResponseBody measured(StreamingResponseBody body) {
+        return outputStream -> {
+            CountingOutputStream counting = new CountingOutputStream(outputStream);
+            storageMetrics.downloadStarted();
+            try {
+                body.writeTo(counting);
+            } finally {
+                storageMetrics.downloadFinished();
+                storageMetrics.recordBytesDownloaded(counting.getCount());
             }
-
-            logger.error("Error creating zip from MinIO folder: {}", relativePath, e);
-            throw new StorageException.StorageOperationException(
-                    "Ошибка создания ZIP архива: " + e.getMessage(),
-                    userId,
-                    relativePath,
-                    "createZip"
-            );
-        }
+        };
     }
 
     /**
-     * Чтение всех байт из InputStream
+     * Копирование потока через буфер фиксированного размера
      */
-    private byte[] readAllBytes(InputStream inputStream) throws Exception {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        byte[] data = new byte[8192];
-        int nRead;
-        while ((nRead = inputStream.read(data, 0, data.length)) != -1) {
-            buffer.write(data, 0, nRead);
+    private void copyStream(InputStream inputStream, OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, bytesRead);
         }
-        buffer.flush();
-        return buffer.toByteArray();
+        outputStream.flush();
     }
 
     /**
-     * Получение всех файлов в папке (рекурсивно)
+     * Ленивый рекурсивный обход папки: записи подгружаются по мере итерации,
+     * поэтому память не зависит от размера папки.
      */
-    private List<MinioFileInfo> getAllFilesInFolder(Long userId, String relativePath) {
-        List<MinioFileInfo> files = new ArrayList<>();
-
-        try {
-
-            List<ResourceInfo> contents = storageService.getDirectoryContents(userId, relativePath);
+    private Iterable<MinioFileInfo> listFolderEntries(Long userId, String userPrefix, String folderPath) {
+        return () -> new Iterator<>() {
+            private final Iterator<MinioObject> delegate = minioServiceAdapter.walkTree(userId, folderPath);
 
-            for (ResourceInfo item : contents) {
-                String itemPath = relativePath + (relativePath.endsWith("/") ? "" : "/") + item.getName();
+            @Override
+            public boolean hasNext() {
+                try {
+                    return delegate.hasNext();
+                } catch (RuntimeException e) {
+                    throw listingFailed(e);
+                }
+            }
 
-                if (item.getType() == ResourceType.FILE) {
-                    files.add(new MinioFileInfo(
-                            userId,
-                            itemPath,
-                            item.getName(),
-                            item.getSize()
-                    ));
-                } else {
-                    // Рекурсивно для подпапок
-                    files.addAll(getAllFilesInFolder(userId, itemPath));
+            @Override
+            public MinioFileInfo next() {
+                try {
+                    MinioObject object = delegate.next();
+                    return new MinioFileInfo(
+                            object.getObjectKey(),
+                            object.getPath().substring(userPrefix.length()),
+                            object.isDirectory() ? 0 : object.getSize(),
+                            object.isDirectory()
+                    );
+                } catch (RuntimeException e) {
+                    throw listingFailed(e);
                 }
             }
-        } catch (Exception e) {
-            logger.error("Error getting files in folder: {}", relativePath, e);
-            throw new StorageException.StorageOperationException(
-                    "Ошибка получения списка файлов: " + e.getMessage(),
-                    userId,
-                    relativePath,
-                    "listFiles"
-            );
-        }
 
-        return files;
+            private UncheckedIOException listingFailed(RuntimeException e) {
+                return new UncheckedIOException(
+                        new IOException("Error listing folder " + folderPath + ": " + e.getMessage(), e));
+            }
+        };
     }
 
     /**
-     * Добавление файла из MinIO в ZIP архив
+     * Предзагрузчик записей архива: мелкие объекты скачиваются параллельно
+     * заранее, крупные и папки отдаются потребителю без загрузки.
      */
-    private void addFileToZip(ZipOutputStream zos, MinioFileInfo fileInfo) throws Exception {
-        String fullPath = getFullPathForMinio(fileInfo.getUserId(), fileInfo.getRelativePath());
+    private OrderedPrefetcher<MinioFileInfo> createPrefetcher(Long userId, String userPrefix, String folderPath) {
+        StorageProperties.Download settings = storageProperties.getDownload();
+        long maxEntrySize = settings.getZipPrefetchMaxEntrySize().toBytes();
+
+        return new OrderedPrefetcher<>(
+                listFolderEntries(userId, userPrefix, folderPath).iterator(),
+                this::fetchObject,
+                new OrderedPrefetcher.Sizing<>() {
+                    @Override
+                    public long sizeOf(MinioFileInfo item) {
+                        return item.getSize();
+                    }
+
+                    @Override
+                    public boolean prefetchable(MinioFileInfo item) {
+                        return !item.isDirectory()
+                                && settings.getZipPrefetchParallelism() > 1
+                                && item.getSize() <= maxEntrySize;
+                    }
+                },
+                taskRunner,
+                settings.getZipPrefetchParallelism(),
+                settings.getZipPrefetchBudget().toBytes()
+        );
+    }
 
+    /**
+     * Загрузка небольшого объекта целиком (для предзагрузки)
+     */
+    private byte[] fetchObject(MinioFileInfo fileInfo) throws Exception {
         try (InputStream fileStream = minioClient.getObject(
                 GetObjectArgs.builder()
                         .bucket(bucket)
-                        .object(fullPath)
+                        .object(fileInfo.getObjectName())
                         .build()
         )) {
-            String zipEntryName = extractZipEntryName(fileInfo.getRelativePath());
-            ZipEntry zipEntry = new ZipEntry(zipEntryName);
-            zos.putNextEntry(zipEntry);
-
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = fileStream.read(buffer)) != -1) {
-                zos.write(buffer, 0, bytesRead);
-            }
-
-            zos.closeEntry();
-        } catch (Exception e) {
-            logger.error("Error adding file to zip: {}", fileInfo.getRelativePath(), e);
-            throw new RuntimeException("Failed to add file to zip: " + fileInfo.getRelativePath(), e);
+            return fileStream.readNBytes((int) fileInfo.getSize());
         }
     }
 
     /**
-     * Извлечение имени для записи в ZIP
+     * Потоковое копирование объекта из MinIO в текущую запись ZIP архива
      */
-    private String extractZipEntryName(String relativePath) {
-        if (relativePath.startsWith("/")) {
-            relativePath = relativePath.substring(1);
+    private void copyObjectToZip(ZipOutputStream zos, MinioFileInfo fileInfo) throws IOException {
+        try (InputStream fileStream = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(fileInfo.getObjectName())
+                        .build()
+        )) {
+            copyStream(fileStream, zos);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error adding file to zip: {}", fileInfo.getObjectName(), e);
+            throw new IOException("Failed to add file to zip: " + fileInfo.getObjectName(), e);
         }
-        return relativePath;
+    }
+
+    private String ensureTrailingSlash(String path) {
+        return path.endsWith("/") ? path : path + "/";
     }
 
     /**
@@ -319,12 +363,48 @@ public class MinioDownloadService implements DownloadService {
         return userPrefix + cleanPath;
     }
 
+    /**
+     * Короткоживущая presigned-ссылка на файл в MinIO. Браузер скачивает
+     * файл напрямую из MinIO, минуя приложение. Имя файла для сохранения
+     * передаётся через response-content-disposition. Для папок ссылок нет —
+     * ZIP собирается только приложением.
+     */
     @Override
     public String getDirectDownloadUrl(Long userId, String path) {
         try {
-            // Валидация пути (тип удаляемого ресурса не известен заранее, поэтому expectedType = null)
-            pathValidator.assertValidPathOrThrow(path, null, userId, "getDirectDownloadUrl");
-            return minioServiceAdapter.getDownloadUrl(userId, path);
+            pathValidator.assertValidPathOrThrow(path, ResourceType.FILE, userId, "getDirectDownloadUrl");
+
+            // Presign не обращается к MinIO, поэтому существование проверяем явно,
+            // иначе вместо 404 пользователь получит ссылку на несуществующий объект
+            MinioObject objectInfo = minioServiceAdapter.resolveResource(userId, path)
+                    .orElseThrow(() -> new StorageException.ResourceNotFoundException(
+                            "Ресурс не найден: " + path,
+                            userId,
+                            path,
+                            "getDirectDownloadUrl"
+                    ));
+
+            if (objectInfo.isDirectory()) {
+                throw new StorageException.InvalidPathException(
+                        "Ожидался файл, но найден каталог: " + path,
+                        userId,
+                        path,
+                        "getDirectDownloadUrl"
+                );
+            }
+
+            String contentDisposition = ContentDisposition.attachment()
+                    .filename(objectInfo.getName(), StandardCharsets.UTF_8)
+                    .build()
+                    .toString();
+
+            return minioServiceAdapter.getDownloadUrl(
+                    userId,
+                    path,
+                    contentDisposition,
+                    storageProperties.getDownload().getPresignedUrlExpiry());
+        } catch (StorageException.StorageBaseException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Unexpected error generating download URL", e);
             throw new StorageException.StorageOperationException(
@@ -337,37 +417,66 @@ public class MinioDownloadService implements DownloadService {
     }
 
     /**
-     * Внутренний класс для хранения информации о файле
+     * Считает байты, записанные в поток ответа. Запись массивов идёт в
+     * исходный поток напрямую (FilterOutputStream пишет по одному байту)
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Внутренний класс для хранения информации о записи архива
      */
     private static class MinioFileInfo {
 
-        private final Long userId;
-        private final String relativePath;
-        private final String name;
+        private final String objectName; // ключ содержимого в MinIO
+        private final String entryName; // путь внутри архива (относительно корня пользователя)
         private final long size;
+        private final boolean directory;
 
-        public MinioFileInfo(Long userId, String relativePath, String name, long size) {
-            this.userId = userId;
-            this.relativePath = relativePath;
-            this.name = name;
+        public MinioFileInfo(String objectName, String entryName, long size, boolean directory) {
+            this.objectName = objectName;
+            this.entryName = entryName;
             this.size = size;
+            this.directory = directory;
         }
 
-        public Long getUserId() {
-            return userId;
+        public String getObjectName() {
+            return objectName;
         }
 
-        public String getRelativePath() {
-            return relativePath;
-        }
-
-        public String getName() {
-            return name;
+        public String getEntryName() {
+            return entryName;
         }
 
         public long getSize() {
             return size;
         }
+
+        public boolean isDirectory() {
+            return directory;
+        }
     }
 
 }
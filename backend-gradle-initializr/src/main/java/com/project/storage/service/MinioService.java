@@ -1,8 +1,16 @@
 package com.project.storage.service;
 
 import com.project.entity.MinioObject;
+import com.project.storage.model.ListingPage;
+import com.project.storage.model.ListingSort;
 import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.LongConsumer;
 
 public interface MinioService {
 
@@ -10,20 +18,46 @@ public interface MinioService {
 
     void createFolder(String fullPath, boolean strict); // for "uploadFiles"
 
+    int createFolders(Collection<String> fullPaths); // non-strict, returns number of created folders
+
     List<MinioObject> listObjects(String fullPath);
 
+    ListingPage listObjects(String fullPath, String cursor, int limit, ListingSort sort); // cursor = null — первая страница
+
+    Iterator<MinioObject> iterateObjects(String fullPath); // то же, что listObjects, но лениво
+
     List<MinioObject> uploadFiles(String destinationFullPath, MultipartFile[] files);
 
+    MinioObject uploadStream(String fullPath, InputStream content, long size, String contentType); // size = -1, если неизвестен
+
     void renameObject(String oldFullPath, String newFullPath);
 
-    List<MinioObject> searchFiles(String rootFullPath, String query);
+    List<MinioObject> searchFiles(String rootFullPath, String query, int offset, int limit); // подстрока имени без учёта регистра, limit результатов после первых offset
+
+    Iterator<MinioObject> iterateSearchResults(String rootFullPath, String query, int offset, int limit); // то же, что searchFiles, но лениво
 
     String getDownloadUrl(String fullPath);
 
+    String getDownloadUrl(String fullPath, String contentDisposition, int expirySeconds);
+
     boolean isObjectExists(String fullPath) throws Exception;
 
     MinioObject getObjectInfo(String fullPath);
 
+    Optional<MinioObject> resolveResource(String fullPath); // тип, размер, etag и content-type одним запросом; empty — ресурса нет
+
     void deleteObject(String fullPath);
 
+    void deleteObject(String fullPath, LongConsumer onDeleted); // onDeleted — сколько объектов удалено очередным пакетом
+
+    long countObjects(String fullPath, long limit); // объекты под префиксом папки, но не больше limit
+
+    String resolveObjectKey(String fullPath); // ключ содержимого файла в бакете
+
+    Iterator<MinioObject> walkTree(String folderFullPath); // папка и всё её содержимое, лениво
+
+    String allocateObjectKey(String fullPath); // ключ для файла, который пишется в бакет в обход MinioService
+
+    void registerObject(String fullPath, String objectKey, long size, String contentType); // учёт такого файла
+
 }
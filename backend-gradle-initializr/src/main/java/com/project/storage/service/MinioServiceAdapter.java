@@ -1,8 +1,16 @@
 package com.project.storage.service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.LongConsumer;
 import com.project.entity.MinioObject;
 import com.project.exception.StorageException;
+import com.project.storage.model.ListingPage;
+import com.project.storage.model.ListingSort;
 import com.project.storage.model.ResourceType;
 import com.project.storage.util.PathValidator;
 import io.minio.errors.*;
@@ -10,6 +18,7 @@ import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.IOException;
+import java.io.InputStream;
 
 @Component
 public class MinioServiceAdapter {
@@ -44,6 +53,23 @@ public class MinioServiceAdapter {
         }
     }
 
+    /**
+     * Создание недостающих папок из набора (нестрогий режим).
+     * Возвращает количество созданных папок.
+     */
+    public int createFolders(Long userId, Collection<String> relativePaths) {
+        List<String> fullPaths = new ArrayList<>(relativePaths.size());
+        for (String relativePath : relativePaths) {
+            fullPaths.add(toFullPath(userId, relativePath));
+        }
+
+        try {
+            return minioService.createFolders(fullPaths);
+        } catch (Exception e) {
+            throw transformCreateFolderException(e, userId, String.join(", ", relativePaths));
+        }
+    }
+
     /**
      * Получение информации об объекте с преобразованием исключений
      */
@@ -57,6 +83,67 @@ public class MinioServiceAdapter {
         }
     }
 
+    /**
+     * Тип, размер, etag и content-type ресурса одним обращением к хранилищу;
+     * Optional.empty() — ресурса нет. Для файлов заполнен objectKey, так что
+     * отдельный resolveObjectKey не нужен
+     */
+    public Optional<MinioObject> resolveResource(Long userId, String relativePath) {
+        String fullPath = toFullPath(userId, relativePath);
+
+        try {
+            return minioService.resolveResource(fullPath);
+        } catch (Exception e) {
+            throw transformGetObjectInfoException(e, userId, relativePath);
+        }
+    }
+
+    /**
+     * Ключ содержимого файла в бакете (зависит от раскладки хранилища)
+     */
+    public String resolveObjectKey(Long userId, String relativePath) {
+        String fullPath = toFullPath(userId, relativePath);
+
+        try {
+            return minioService.resolveObjectKey(fullPath);
+        } catch (Exception e) {
+            throw transformGetObjectInfoException(e, userId, relativePath);
+        }
+    }
+
+    /**
+     * Ленивый обход папки и всего её содержимого (для ZIP-архива)
+     */
+    public Iterator<MinioObject> walkTree(Long userId, String relativePath) {
+        String fullPath = toFullPath(userId, relativePath);
+
+        try {
+            return minioService.walkTree(fullPath);
+        } catch (Exception e) {
+            throw transformGetObjectInfoException(e, userId, relativePath);
+        }
+    }
+
+    /**
+     * Ключ, по которому записывается содержимое нового файла
+     */
+    public String allocateObjectKey(Long userId, String relativePath) {
+        return minioService.allocateObjectKey(toFullPath(userId, relativePath));
+    }
+
+    /**
+     * Учёт файла, записанного в бакет по ключу из allocateObjectKey
+     */
+    public void registerObject(Long userId, String relativePath, String objectKey, long size, String contentType) {
+        String fullPath = toFullPath(userId, relativePath);
+
+        try {
+            minioService.registerObject(fullPath, objectKey, size, contentType);
+        } catch (Exception e) {
+            throw transformUploadFilesException(e, userId, relativePath);
+        }
+    }
+
     /**
      * Загрузка файлов с преобразованием исключений
      */
@@ -74,6 +161,25 @@ public class MinioServiceAdapter {
         }
     }
 
+    /**
+     * Потоковая загрузка файла с преобразованием исключений
+     */
+    public MinioObject uploadStream(
+            Long userId,
+            String relativePath,
+            InputStream content,
+            long size,
+            String contentType) {
+
+        String fullPath = toFullPath(userId, relativePath);
+
+        try {
+            return minioService.uploadStream(fullPath, content, size, contentType);
+        } catch (Exception e) {
+            throw transformUploadFilesException(e, userId, relativePath);
+        }
+    }
+
     /**
      * Удаление объекта с преобразованием исключений
      */
@@ -88,24 +194,65 @@ public class MinioServiceAdapter {
     }
 
     /**
-     * Переименование объекта с преобразованием исключений
+     * Удаление объекта с отчётом о прогрессе (для фоновых задач)
+     */
+    public void deleteObject(Long userId, String relativePath, LongConsumer onDeleted) {
+        String fullPath = toFullPath(userId, relativePath);
+
+        try {
+            minioService.deleteObject(fullPath, onDeleted);
+        } catch (Exception e) {
+            throw transformDeleteObjectException(e, userId, relativePath);
+        }
+    }
+
+    /**
+     * Количество объектов в папке, но не больше limit
+     */
+    public long countObjects(Long userId, String relativePath, long limit) {
+        String fullPath = toFullPath(userId, relativePath);
+
+        try {
+            return minioService.countObjects(fullPath, limit);
+        } catch (Exception e) {
+            throw new StorageException.StorageOperationException(
+                    "Ошибка при подсчёте объектов: " + e.getMessage(),
+                    userId,
+                    relativePath,
+                    "countObjects"
+            );
+        }
+    }
+
+    /**
+     * Переименование объекта с преобразованием исключений. Возвращает ресурс
+     * по новому пути — из сведений, полученных при проверке исходного, без
+     * повторного запроса
      */
-    public void renameObject(Long userId, String fromRelativePath, String toRelativePath) {
+    public MinioObject renameObject(Long userId, String fromRelativePath, String toRelativePath) {
 
         try {
-            isRenameAllowed(userId, fromRelativePath, toRelativePath);
+            MinioObject source = isRenameAllowed(userId, fromRelativePath, toRelativePath);
 
             String fromFullPath = toFullPath(userId, fromRelativePath);
             String toFullPath = toFullPath(userId, toRelativePath);
 
             minioService.renameObject(fromFullPath, toFullPath);
+
+            return MinioObject.builder()
+                    .path(toFullPath)
+                    .size(source.getSize())
+                    .isDirectory(source.isDirectory())
+                    .etag(source.getEtag())
+                    .contentType(source.getContentType())
+                    .build();
         } catch (Exception e) {
             throw transformRenameObjectException(e, userId, fromRelativePath, toRelativePath);
         }
     }
 
-    public void moveResource(Long userId, String fromRelativePath, String toRelativePath) {
-        renameObject(userId, fromRelativePath, toRelativePath);
+    public MinioObject moveResource(Long userId, String fromRelativePath, String toRelativePath) {
+        return renameObject(userId, fromRelativePath, toRelativePath);
     }
 
     /**
@@ -113,12 +260,32 @@ public class MinioServiceAdapter {
      */
     public List<MinioObject> searchFiles(
             Long userId,
-            String query) {
+            String query,
+            int offset,
+            int limit) {
+
+        String userFolder = "user-" + userId + "-files";
+
+        try {
+            return minioService.searchFiles(userFolder, query, offset, limit);
+        } catch (Exception e) {
+            throw transformSearchFilesException(e, userId, query);
+        }
+    }
+
+    /**
+     * Ленивый поиск файлов: результаты читаются по мере обхода
+     */
+    public Iterator<MinioObject> iterateSearchResults(
+            Long userId,
+            String query,
+            int offset,
+            int limit) {
 
         String userFolder = "user-" + userId + "-files";
 
         try {
-            return minioService.searchFiles(userFolder, query);
+            return minioService.iterateSearchResults(userFolder, query, offset, limit);
         } catch (Exception e) {
             throw transformSearchFilesException(e, userId, query);
         }
@@ -135,13 +302,59 @@ public class MinioServiceAdapter {
             validateRequestedResource(userId, relativePath);
 
             String fullPath = toFullPath(userId, relativePath);
-            logger.info("listObjects for user {} fullPath: '{}'", userId, fullPath);
+            logger.debug("listObjects for user {} fullPath: '{}'", userId, fullPath);
             return minioService.listObjects(fullPath);
         } catch (Exception e) {
             throw transformListObjectsException(e, userId, relativePath);
         }
     }
 
+    /**
+     * Ленивый обход содержимого папки: существование папки проверяется сразу,
+     * элементы читаются из хранилища по мере обхода
+     */
+    public Iterator<MinioObject> iterateObjects(Long userId, String relativePath) {
+        try {
+            validateRequestedResource(userId, relativePath);
+
+            String fullPath = toFullPath(userId, relativePath);
+            logger.debug("iterateObjects for user {} fullPath: '{}'", userId, fullPath);
+            return minioService.iterateObjects(fullPath);
+        } catch (Exception e) {
+            throw transformListObjectsException(e, userId, relativePath);
+        }
+    }
+
+    /**
+     * Получение страницы содержимого папки с преобразованием исключений
+     */
+    public ListingPage listObjects(
+            Long userId,
+            String relativePath,
+            String cursor,
+            int limit,
+            ListingSort sort) {
+
+        try {
+            validateRequestedResource(userId, relativePath);
+
+            String fullPath = toFullPath(userId, relativePath);
+            logger.debug("listObjects page for user {} fullPath: '{}', sort {}, limit {}",
+                    userId, fullPath, sort, limit);
+            return minioService.listObjects(fullPath, cursor, limit, sort);
+        } catch (IllegalArgumentException e) {
+            // Испорченный курсор или сортировка, которую раскладка не поддерживает
+            throw new StorageException.InvalidPathException(
+                    "Некорректные параметры страницы: " + e.getMessage(),
+                    userId,
+                    relativePath,
+                    "listObjects"
+            );
+        } catch (Exception e) {
+            throw transformListObjectsException(e, userId, relativePath);
+        }
+    }
+
     /**
      * Проверка существования объекта с преобразованием исключений
      */
@@ -164,9 +377,9 @@ public class MinioServiceAdapter {
 
     /**
      * Проверка возможности переименования (перемещения) ресурса с валидацией
-     * путей и типов ресурсов
+     * путей и типов ресурсов. Возвращает найденный исходный ресурс
      */
-    private boolean isRenameAllowed(Long userId, String fromPath, String toPath) throws Exception {
+    private MinioObject isRenameAllowed(Long userId, String fromPath, String toPath) throws Exception {
         // Валидация пути (тип не известен заранее, поэтому expectedType = null)
         pathValidator.assertValidPathOrThrow(fromPath, null, userId, "moveResource");
         pathValidator.assertValidPathOrThrow(toPath, null, userId, "moveResource");
@@ -195,17 +408,16 @@ public class MinioServiceAdapter {
 
         try {
             // Проверяем существование исходного ресурса 
-            if (!isObjectExists(userId, fromPath)) {
-                throw new StorageException.ResourceNotFoundException(
-                        "Исходный ресурс не найден: " + fromPath,
-                        userId,
-                        fromPath,
-                        "moveResource"
-                );
-            }
+            MinioObject source = resolveResource(userId, fromPath)
+                    .orElseThrow(() -> new StorageException.ResourceNotFoundException(
+                            "Исходный ресурс не найден: " + fromPath,
+                            userId,
+                            fromPath,
+                            "moveResource"
+                    ));
 
             // Проверяем отсутствие целевого ресурса 
-            if (isObjectExists(userId, toPath)) {
+            if (resolveResource(userId, toPath).isPresent()) {
                 throw new StorageException.ResourceAlreadyExistsException(
                         "Целевой ресурс уже существует: " + toPath,
                         userId,
@@ -214,19 +426,18 @@ public class MinioServiceAdapter {
                 );
             }
 
+            return source;
         } catch (Exception e) {
             //  Кастомные ошибки пробрасываем дальше
             throw e;
         }
-
-        return true;
     }
 
     /**
      * Получение ресурса для скачивания с преобразованием исключений
      */
     public DownloadService.DownloadResult getDownloadResource(Long userId, String relativePath) throws IOException {
-        logger.info("Adapter: Preparing download for user {} path: {}", userId, relativePath);
+        logger.debug("Adapter: Preparing download for user {} path: {}", userId, relativePath);
 
         // Валидация пути через адаптер
         if (relativePath == null || relativePath.trim().isEmpty()) {
@@ -239,11 +450,14 @@ public class MinioServiceAdapter {
         }
 
         try {
-            // Проверяем существование объекта
-            isObjectExists(userId, relativePath);
-
-            // Получаем информацию о ресурсе
-            MinioObject objectInfo = getObjectInfo(userId, relativePath);
+            // Проверяем существование и получаем информацию о ресурсе одним запросом
+            MinioObject objectInfo = resolveResource(userId, relativePath)
+                    .orElseThrow(() -> new StorageException.ResourceNotFoundException(
+                            "Ресурс не найден: " + relativePath,
+                            userId,
+                            relativePath,
+                            "getDownloadResource"
+                    ));
 
             // Определяем тип и готовим результат
             boolean isDirectory = objectInfo.isDirectory() || relativePath.endsWith("/");
@@ -270,6 +484,20 @@ public class MinioServiceAdapter {
         }
     }
 
+    /**
+     * Получение короткоживущего URL для скачивания с заданным
+     * Content-Disposition
+     */
+    public String getDownloadUrl(Long userId, String relativePath, String contentDisposition, Duration expiry) {
+        String fullPath = toFullPath(userId, relativePath);
+
+        try {
+            return minioService.getDownloadUrl(fullPath, contentDisposition, (int) expiry.toSeconds());
+        } catch (Exception e) {
+            throw transformGetDownloadUrlException(e, userId, relativePath);
+        }
+    }
+
     // ============= ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ =============
     /**
      * Преобразование относительного пути в полный
@@ -1,27 +1,61 @@
 package com.project.storage.service;
 
+import com.project.config.StorageProperties;
 import com.project.entity.MinioObject;
+import com.project.storage.model.ListingPage;
+import com.project.storage.model.ListingSort;
+import com.project.storage.model.MoveJournalEntry;
+import com.project.storage.util.ListingCache;
+import com.project.storage.util.ListingCursor;
+import com.project.storage.util.MoveJournal;
+import com.project.storage.util.StatCache;
+import com.project.storage.util.StorageTaskRunner;
 
 import io.minio.*;
 import io.minio.errors.*;
 import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
 import lombok.RequiredArgsConstructor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.regex.Pattern;
-
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Раскладка path: ключ объекта в MinIO — это путь пользователя
+ * (user-{id}-files/...), папки — пустые объекты-маркеры с / на конце.
+ */
 @RequiredArgsConstructor
 @Service
+@ConditionalOnProperty(prefix = "app.storage", name = "layout", havingValue = "path", matchIfMissing = true)
 public class MinioServiceImpl implements MinioService {
 
     private static final Logger logger = LoggerFactory.getLogger(MinioServiceImpl.class);
@@ -30,33 +64,31 @@ public class MinioServiceImpl implements MinioService {
     private String bucket;
 
     private final MinioClient minioClient;
+    private final StorageProperties storageProperties;
+    private final StorageTaskRunner taskRunner;
+    private final MoveJournal moveJournal;
+    private final ListingCache listingCache;
+    private final StatCache statCache;
+
+    // Подписывает ссылки публичным адресом MinIO (см. MinioConfig.presignMinioClient)
+    @Autowired
+    @Qualifier("presignMinioClient")
+    private MinioClient presignClient;
 
     @Override
     public List<MinioObject> listObjects(String fullPath) {
-        try {
-            String prefix = ensureTrailingSlash(fullPath);
+        return listingCache.get(ensureTrailingSlash(fullPath), () -> {
             List<MinioObject> objects = new ArrayList<>();
-
-            for (Result<Item> result : minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucket)
-                            .prefix(prefix)
-                            .recursive(false)
-                            .build()
-            )) {
-                Item item = result.get();
-                // Пропускаем саму папку (объект с именем равным префиксу)
-                if (item.objectName().equals(prefix)) {
-                    continue;
-                }
-
-                objects.add(createMinioObject(item));
-            }
-
+            iterateObjects(fullPath).forEachRemaining(objects::add);
             return objects;
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
+        });
+    }
+
+    @Override
+    public Iterator<MinioObject> iterateObjects(String fullPath) {
+        String prefix = ensureTrailingSlash(fullPath);
+        // Пропускаем саму папку (объект с именем равным префиксу)
+        return filteredListing(prefix, false, name -> !name.equals(prefix), 0, Long.MAX_VALUE, "");
     }
 
     /**
@@ -98,25 +130,160 @@ public class MinioServiceImpl implements MinioService {
         }
     }
 
+    /**
+     * Страница листинга папки. Курсор — имя последнего элемента страницы,
+     * следующая страница запрашивается у MinIO с startAfter, так что папка
+     * любого размера не читается целиком. MinIO отдаёт ключи только в
+     * лексикографическом порядке, поэтому другие порядки здесь недоступны.
+     */
+    @Override
+    public ListingPage listObjects(String fullPath, String cursor, int limit, ListingSort sort) {
+        if (sort != ListingSort.NAME) {
+            throw new IllegalArgumentException("sort " + sort + " is not supported by the path layout");
+        }
+
+        String prefix = ensureTrailingSlash(fullPath);
+        String startAfter = cursor != null ? prefix + ListingCursor.decode(cursor, sort, 1)[0] : null;
+
+        try {
+            ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                    .bucket(bucket)
+                    .prefix(prefix)
+                    .recursive(false)
+                    .maxKeys(Math.min(limit + 1, 1000));
+            if (startAfter != null) {
+                args.startAfter(startAfter);
+            }
+
+            List<MinioObject> objects = new ArrayList<>(limit);
+            boolean hasMore = false;
+            for (Result<Item> result : minioClient.listObjects(args.build())) {
+                Item item = result.get();
+                // Маркер самой папки и подпапка, на которой закончилась прошлая страница:
+                // её вложенные ключи идут после startAfter и снова сворачиваются в тот же префикс
+                if (item.objectName().equals(prefix) || item.objectName().equals(startAfter)) {
+                    continue;
+                }
+                if (objects.size() == limit) {
+                    hasMore = true;
+                    break;
+                }
+                objects.add(createMinioObject(item));
+            }
+
+            String nextCursor = hasMore
+                    ? ListingCursor.encode(sort, objects.get(objects.size() - 1).getPath().substring(prefix.length()))
+                    : null;
+            return new ListingPage(objects, nextCursor);
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Создание набора папок в нестрогом режиме: существующие пропускаются,
+     * ошибки логируются. Папки создаются по уровням вложенности начиная с
+     * верхнего, внутри уровня — параллельно. Так при сбое посреди операции не
+     * остаётся вложенной папки без родителя.
+     */
+    @Override
+    public int createFolders(Collection<String> fullPaths) {
+        Map<Integer, List<String>> levels = new TreeMap<>();
+        for (String path : new LinkedHashSet<>(fullPaths)) {
+            String folder = ensureTrailingSlash(path);
+            levels.computeIfAbsent(depth(folder), d -> new ArrayList<>()).add(folder);
+        }
+
+        int concurrency = storageProperties.getUpload().getConcurrency();
+        int created = 0;
+
+        for (List<String> level : levels.values()) {
+            List<StorageTaskRunner.Outcome<Boolean>> outcomes = taskRunner.runAll(level, concurrency, folder -> {
+                if (isObjectExists(folder)) {
+                    return false;
+                }
+                createFolderInMinio(folder);
+                logger.debug("Folder created: {}", folder);
+                return true;
+            });
+
+            for (int i = 0; i < level.size(); i++) {
+                StorageTaskRunner.Outcome<Boolean> outcome = outcomes.get(i);
+                if (!outcome.isSuccess()) {
+                    logger.warn("Error creating folder (non-strict mode): {} — {}",
+                            level.get(i), outcome.getError().getMessage());
+                } else if (Boolean.TRUE.equals(outcome.getResult())) {
+                    created++;
+                }
+            }
+        }
+
+        return created;
+    }
+
+    /**
+     * Загрузка файлов. Сначала для всех файлов проверяется, что целевых
+     * объектов ещё нет и родительские папки существуют: при конфликте не
+     * загружается ничего. Затем файлы загружаются параллельно, не более
+     * app.storage.upload.concurrency одновременно. Файлы, которые не удалось
+     * загрузить, возвращаются с заполненным полем error; если не загрузился
+     * ни один — выбрасывается исключение.
+     */
     @Override
     public List<MinioObject> uploadFiles(String destinationFullPath, MultipartFile[] files) {
-        List<MinioObject> uploadedObjects = new ArrayList<>();
         try {
             String destination = ensureTrailingSlash(destinationFullPath);
+            List<MultipartFile> fileList = Arrays.asList(files);
+            int concurrency = storageProperties.getUpload().getConcurrency();
 
-            for (MultipartFile file : files) {
-                String objectName = destination + file.getOriginalFilename();
-                validateFileCreation(objectName);
+            validateUploadTargets(destination, fileList, concurrency);
 
+            List<StorageTaskRunner.Outcome<MinioObject>> outcomes = taskRunner.runAll(fileList, concurrency, file -> {
+                String objectName = destination + file.getOriginalFilename();
                 createFileInMinio(objectName, file);
+                logger.debug("File uploaded: {}", objectName);
+
+                return MinioObject.builder()
+                        .name(file.getOriginalFilename())
+                        .path(objectName)
+                        .size(file.getSize())
+                        .isDirectory(false)
+                        .build();
+            });
 
+            List<MinioObject> uploadedObjects = new ArrayList<>(files.length);
+            Throwable firstError = null;
+            int failed = 0;
+
+            for (int i = 0; i < files.length; i++) {
+                StorageTaskRunner.Outcome<MinioObject> outcome = outcomes.get(i);
+                if (outcome.isSuccess()) {
+                    uploadedObjects.add(outcome.getResult());
+                    continue;
+                }
+
+                MultipartFile file = files[i];
+                String objectName = destination + file.getOriginalFilename();
+                logger.warn("Failed to upload {}: {}", objectName, outcome.getError().getMessage());
+
+                failed++;
+                if (firstError == null) {
+                    firstError = outcome.getError();
+                }
                 uploadedObjects.add(MinioObject.builder()
                         .name(file.getOriginalFilename())
                         .path(objectName)
                         .size(file.getSize())
                         .isDirectory(false)
+                        .error(outcome.getError().getMessage())
                         .build());
-                logger.debug("File uploaded: {}", objectName);
+            }
+
+            if (failed == files.length) {
+                throw new RuntimeException("all " + failed + " files failed: " + firstError.getMessage(), firstError);
+            }
+            if (failed > 0) {
+                logger.warn("Upload to {} partially failed: {} of {} files", destination, failed, files.length);
             }
 
             return uploadedObjects;
@@ -125,19 +292,127 @@ public class MinioServiceImpl implements MinioService {
         }
     }
 
+    /**
+     * Проверки перед загрузкой, параллельно. Родительская папка проверяется
+     * один раз на уникальный путь, а не для каждого файла.
+     */
+    private void validateUploadTargets(String destination, List<MultipartFile> files, int concurrency) throws Exception {
+        List<String> targets = new ArrayList<>(files.size());
+        Set<String> parents = new LinkedHashSet<>();
+
+        for (MultipartFile file : files) {
+            String objectName = destination + file.getOriginalFilename();
+            targets.add(objectName);
+
+            int lastSlashIndex = objectName.lastIndexOf('/');
+            if (lastSlashIndex > 0) {
+                parents.add(objectName.substring(0, lastSlashIndex + 1));
+            }
+        }
+
+        List<StorageTaskRunner.Outcome<Boolean>> existing = taskRunner.runAll(targets, concurrency, this::isObjectExists);
+        for (int i = 0; i < targets.size(); i++) {
+            if (Boolean.TRUE.equals(getOrThrow(existing.get(i)))) {
+                logger.debug("File already exists: {}", targets.get(i));
+                throw new RuntimeException("File already exists: " + targets.get(i));
+            }
+        }
+
+        List<String> parentList = new ArrayList<>(parents);
+        List<StorageTaskRunner.Outcome<Boolean>> parentsExisting = taskRunner.runAll(parentList, concurrency, this::isObjectExists);
+        for (int i = 0; i < parentList.size(); i++) {
+            if (!Boolean.TRUE.equals(getOrThrow(parentsExisting.get(i)))) {
+                throw new NoSuchElementException("Parent directory does not exist: " + parentList.get(i));
+            }
+        }
+    }
+
+    private <R> R getOrThrow(StorageTaskRunner.Outcome<R> outcome) throws Exception {
+        if (outcome.isSuccess()) {
+            return outcome.getResult();
+        }
+        if (outcome.getError() instanceof Exception e) {
+            throw e;
+        }
+        throw new RuntimeException(outcome.getError());
+    }
+
+    /**
+     * Потоковая загрузка одного файла: тело запроса передаётся в MinIO
+     * multipart-загрузкой частями фиксированного размера, без промежуточного
+     * файла на диске. При обрыве потока MinIO-клиент отменяет загрузку сам.
+     */
+    @Override
+    public MinioObject uploadStream(String fullPath, InputStream content, long size, String contentType) {
+        try {
+            validateFileCreation(fullPath);
+
+            long partSize = storageProperties.getUpload().getPartSize().toBytes();
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(fullPath)
+                            .stream(content, size, partSize)
+                            .contentType(contentType != null && !contentType.isBlank()
+                                    ? contentType
+                                    : "application/octet-stream")
+                            .build()
+            );
+            invalidateCaches(fullPath, false);
+
+            // Без Content-Length размер известен только после загрузки
+            long storedSize = size >= 0
+                    ? size
+                    : minioClient.statObject(
+                            StatObjectArgs.builder()
+                                    .bucket(bucket)
+                                    .object(fullPath)
+                                    .build()
+                    ).size();
+
+            logger.debug("File uploaded by stream: {} ({} bytes)", fullPath, storedSize);
+            return MinioObject.builder()
+                    .name(extractName(fullPath))
+                    .path(fullPath)
+                    .size(storedSize)
+                    .isDirectory(false)
+                    .build();
+        } catch (Exception e) {
+            throw new RuntimeException("uploadStream: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public void deleteObject(String fullPath) {
+        deleteObject(fullPath, deleted -> {
+        });
+    }
+
+    @Override
+    public void deleteObject(String fullPath, LongConsumer onDeleted) {
+        boolean directory = false;
         try {
-            if (fullPath.endsWith("/") || isDirectory(fullPath)) {
+            if (fullPath.endsWith("/")) {
+                directory = true;
                 logger.debug("Deleting folder recursively: {}", fullPath);
+                String prefix = ensureTrailingSlash(fullPath);
 
-                List<String> objectsToDelete = collectAllObjectsRecursive(fullPath);
-                objectsToDelete.add(fullPath);
+                BatchDeleteResult result = removeInBatches(listKeysRecursive(prefix), onDeleted);
+                if (result.getFailed() > 0) {
+                    // Маркер папки оставляем: иначе недоудалённое содержимое станет невидимым
+                    throw new RuntimeException("failed to delete " + result.getFailed()
+                            + " objects in " + prefix + ": " + String.join("; ", result.getErrorSamples()));
+                }
 
-                deleteObjects(objectsToDelete);
+                minioClient.removeObject(
+                        RemoveObjectArgs.builder()
+                                .bucket(bucket)
+                                .object(prefix)
+                                .build()
+                );
 
                 logger.debug("Folder and contents deleted: {}. Objects deleted: {}",
-                        fullPath, objectsToDelete.size());
+                        fullPath, result.getDeleted() + 1);
             } else {
                 minioClient.removeObject(
                         RemoveObjectArgs.builder()
@@ -147,47 +422,149 @@ public class MinioServiceImpl implements MinioService {
                 );
                 logger.debug("File deleted: {}", fullPath);
             }
+            onDeleted.accept(1);
         } catch (Exception e) {
             throw new RuntimeException("deleteObject: " + e.getMessage(), e);
+        } finally {
+            // И после частичного удаления: часть объектов уже пропала
+            invalidateCaches(fullPath, directory);
         }
     }
 
     /**
-     * Сбор всех объектов в папке рекурсивно
+     * Подсчёт объектов в папке с остановкой на limit: для решения «удалять
+     * сразу или фоном» не нужно листать папку целиком
      */
-    private List<String> collectAllObjectsRecursive(String folderPath) {
-        List<String> objects = new ArrayList<>();
+    @Override
+    public long countObjects(String fullPath, long limit) {
         try {
-            String prefix = ensureTrailingSlash(folderPath);
+            Iterator<String> keys = listKeysRecursive(ensureTrailingSlash(fullPath));
+            long count = 0;
+            while (count < limit && keys.hasNext()) {
+                keys.next();
+                count++;
+            }
+            return count;
+        } catch (Exception e) {
+            throw new RuntimeException("countObjects: " + e.getMessage(), e);
+        }
+    }
 
-            Iterable<Result<Item>> results = minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucket)
-                            .prefix(prefix)
-                            .recursive(true)
-                            .build()
-            );
+    @Override
+    public String resolveObjectKey(String fullPath) {
+        return fullPath;
+    }
 
-            for (Result<Item> result : results) {
-                Item item = result.get();
-                String objectName = item.objectName();
+    /**
+     * Ленивый рекурсивный обход папки вместе с её маркером: страницы листинга
+     * подгружаются по мере итерации
+     */
+    @Override
+    public Iterator<MinioObject> walkTree(String folderFullPath) {
+        String prefix = ensureTrailingSlash(folderFullPath);
+        Iterator<Result<Item>> results = minioClient.listObjects(
+                ListObjectsArgs.builder()
+                        .bucket(bucket)
+                        .prefix(prefix)
+                        .recursive(true)
+                        .build()
+        ).iterator();
 
-                // Skip the folder itself
-                if (!objectName.equals(prefix)) {
-                    objects.add(objectName);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return results.hasNext();
+            }
+
+            @Override
+            public MinioObject next() {
+                try {
+                    Item item = results.next().get();
+                    String objectName = item.objectName();
+                    boolean directory = objectName.endsWith("/");
+                    return MinioObject.builder()
+                            .name(extractName(objectName))
+                            .path(objectName)
+                            .objectKey(objectName)
+                            .size(directory ? 0L : item.size())
+                            .isDirectory(directory)
+                            .build();
+                } catch (Exception e) {
+                    throw new RuntimeException("Error listing objects in folder: " + prefix, e);
                 }
             }
-        } catch (Exception e) {
-            logger.error("Error collecting objects in folder: {}", folderPath, e);
-            throw new RuntimeException("Error collecting objects in folder: " + folderPath, e);
+        };
+    }
+
+    @Override
+    public String allocateObjectKey(String fullPath) {
+        return fullPath;
+    }
+
+    @Override
+    public void registerObject(String fullPath, String objectKey, long size, String contentType) {
+        // Объект уже лежит по своему пути, остаётся только сбросить кэши
+        invalidateCaches(fullPath, false);
+    }
+
+    /**
+     * Ленивый обход ключей под префиксом (без маркера самой папки). Страницы
+     * листинга запрашиваются по мере чтения, список целиком в памяти не
+     * держится.
+     */
+    private Iterator<String> listKeysRecursive(String prefix) {
+        return listKeysRecursive(prefix, null);
+    }
+
+    /**
+     * То же, начиная с ключа, следующего за startAfter (листинг MinIO
+     * отсортирован лексикографически)
+     */
+    private Iterator<String> listKeysRecursive(String prefix, String startAfter) {
+        ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                .bucket(bucket)
+                .prefix(prefix)
+                .recursive(true);
+        if (startAfter != null) {
+            args.startAfter(startAfter);
         }
-        return objects;
+        Iterator<Result<Item>> results = minioClient.listObjects(args.build()).iterator();
+
+        return new Iterator<>() {
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && results.hasNext()) {
+                    try {
+                        String objectName = results.next().get().objectName();
+                        if (!objectName.equals(prefix)) {
+                            next = objectName;
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException("Error listing objects in folder: " + prefix, e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String objectName = next;
+                next = null;
+                return objectName;
+            }
+        };
     }
 
     @Override
     public void renameObject(String oldFullPath, String newFullPath) {
+        boolean isDirectory = false;
         try {
-            boolean isDirectory = oldFullPath.endsWith("/") || isDirectory(oldFullPath);
+            isDirectory = oldFullPath.endsWith("/");
 
             if (isDirectory) {
                 renameDirectory(oldFullPath, newFullPath);
@@ -199,72 +576,311 @@ public class MinioServiceImpl implements MinioService {
         } catch (Exception e) {
             logger.error("Error renaming {} -> {}: {}", oldFullPath, newFullPath, e.getMessage(), e);
             throw new RuntimeException("renameObject: " + e.getMessage(), e);
+        } finally {
+            invalidateCaches(oldFullPath, isDirectory);
+            invalidateCaches(newFullPath, isDirectory);
         }
     }
 
     /**
-     * Переименование папки и всего её содержимого
+     * Переименование папки и всего её содержимого.
+     *
+     * Листинг читается один раз: ключи идут на серверное копирование
+     * (copyObject, данные через приложение не проходят) не более
+     * move.parallelism запросов одновременно, затем по тем же ключам исходные
+     * объекты удаляются пакетами removeObjects.
+     *
+     * Ход переименования пишется в журнал (MoveJournal): если приложение
+     * упадёт посередине, recoverInterruptedMoves на любом экземпляре доведёт
+     * его до конца с последней контрольной точки или откатит.
      */
     private void renameDirectory(String oldFolderPath, String newFolderPath) throws Exception {
         String oldPrefix = ensureTrailingSlash(oldFolderPath);
         String newPrefix = ensureTrailingSlash(newFolderPath);
+        long started = System.nanoTime();
 
-        createFolderInMinio(newPrefix);
-
-        List<String> objectsToRename = collectAllObjectsRecursive(oldPrefix);
+        long journalId = moveJournal.begin(oldPrefix, newPrefix);
         List<String> copiedObjects = new ArrayList<>();
+        long copiedAt;
+        try (MoveJournal.Heartbeat heartbeat = moveJournal.keepAlive(journalId)) {
+            try {
+                // Маркер новой папки — уже шаг переименования: при ошибке запись журнала закрывается откатом
+                createFolderInMinio(newPrefix);
+                copyInParallel(listKeysRecursive(oldPrefix), oldPrefix, newPrefix, copiedObjects,
+                        new CopyProgress(journalId, 0));
+            } catch (Exception e) {
+                logger.error("Error during copy, performing rollback", e);
+                Iterator<String> copies = copiedObjects.stream()
+                        .map(source -> newPrefix + source.substring(oldPrefix.length()))
+                        .iterator();
+                if (rollbackRename(newPrefix, copies)) {
+                    moveJournal.rolledBack(journalId, e.getMessage());
+                } else {
+                    moveJournal.fail(journalId, "rollback incomplete: " + e.getMessage());
+                }
+                throw e;
+            }
+            copiedAt = System.nanoTime();
+            moveJournal.copyCompleted(journalId, copiedObjects.size());
+
+            removeSources(journalId, oldPrefix, newPrefix, copiedObjects.iterator());
+        }
+
+        long copyMillis = Math.max(1, (copiedAt - started) / 1_000_000);
+        long totalMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        logger.info("Folder renamed {} -> {}: {} objects in {} ms (copy {} ms, {} objects/s)",
+                oldPrefix, newPrefix, copiedObjects.size(), totalMillis, copyMillis,
+                copiedObjects.size() * 1000L / totalMillis);
+    }
+
+    /**
+     * Удаление исходников полностью скопированной папки и её маркера.
+     * Если часть исходников удалить не удалось, запись журнала остаётся в
+     * фазе DELETING — восстановление повторит удаление позже.
+     */
+    private void removeSources(long journalId, String oldPrefix, String newPrefix, Iterator<String> sources)
+            throws Exception {
+        BatchDeleteResult removed = removeInBatches(sources, deleted -> moveJournal.deleted(journalId, deleted));
+        if (removed.getFailed() > 0) {
+            // Копия уже полная, откатывать нельзя: часть исходников удалена.
+            // Маркер старой папки оставляем, чтобы остатки были видны
+            throw new RuntimeException("folder copied to " + newPrefix + ", but failed to delete "
+                    + removed.getFailed() + " source objects: " + String.join("; ", removed.getErrorSamples()));
+        }
+        minioClient.removeObject(
+                RemoveObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(oldPrefix)
+                        .build()
+        );
+        moveJournal.complete(journalId);
+    }
 
+    /**
+     * Восстановление переименований, прерванных падением приложения.
+     *
+     * В фазе COPYING исходники не тронуты: при move.recovery=resume копирование
+     * продолжается с контрольной точки (уже скопированные после неё ключи
+     * просто перезаписываются), при rollback удаляются созданные копии. В фазе
+     * DELETING переименование всегда доводится до конца. Удаляются только те
+     * ключи, у которых есть пара по другую сторону переименования, — файлы,
+     * загруженные в папки после падения, не теряются.
+     */
+    @Scheduled(
+            initialDelayString = "${app.storage.move.recovery-interval:PT1M}",
+            fixedDelayString = "${app.storage.move.recovery-interval:PT1M}")
+    public void recoverInterruptedMoves() {
+        List<MoveJournalEntry> interrupted;
         try {
-            for (String oldObjectPath : objectsToRename) {
-                String newObjectPath = oldObjectPath.replaceFirst(
-                        Pattern.quote(oldPrefix),
-                        newPrefix
-                );
+            interrupted = moveJournal.claimInterrupted();
+        } catch (Exception e) {
+            logger.warn("Failed to read move journal: {}", e.getMessage());
+            return;
+        }
 
-                // Копируем объект
-                minioClient.copyObject(
-                        CopyObjectArgs.builder()
-                                .bucket(bucket)
-                                .object(newObjectPath)
-                                .source(CopySource.builder()
-                                        .bucket(bucket)
-                                        .object(oldObjectPath)
-                                        .build())
-                                .build()
-                );
-                copiedObjects.add(oldObjectPath);
-                logger.debug("Copied: {} -> {}", oldObjectPath, newObjectPath);
-            }
+        for (MoveJournalEntry entry : interrupted) {
+            recoverMove(entry);
+        }
+    }
+
+    private void recoverMove(MoveJournalEntry entry) {
+        long journalId = entry.getId();
+        String oldPrefix = entry.getSourcePrefix();
+        String newPrefix = entry.getTargetPrefix();
+        StorageProperties.Move move = storageProperties.getMove();
+
+        if (entry.getAttempts() > move.getMaxRecoveryAttempts()) {
+            logger.error("Giving up on interrupted move {} -> {} after {} attempts, manual cleanup required",
+                    oldPrefix, newPrefix, entry.getAttempts() - 1);
+            moveJournal.fail(journalId, "recovery attempts exhausted");
+            return;
+        }
 
-            deleteObject(oldPrefix);
+        logger.warn("Recovering interrupted move {} -> {} (phase {}, {} objects copied, checkpoint {})",
+                oldPrefix, newPrefix, entry.getPhase(), entry.getCopiedCount(), entry.getCheckpointKey());
+        try (MoveJournal.Heartbeat heartbeat = moveJournal.keepAlive(journalId)) {
+            if (entry.getPhase() == MoveJournalEntry.Phase.COPYING) {
+                if (move.getRecovery() == StorageProperties.MoveRecovery.ROLLBACK) {
+                    if (rollbackRename(newPrefix, keysPresentIn(newPrefix, oldPrefix))) {
+                        moveJournal.rolledBack(journalId, "interrupted, rolled back on recovery");
+                    }
+                    return;
+                }
 
+                createFolderInMinio(newPrefix);
+                // Листинг начинается после ключа контрольной точки: к её счёту
+                // добавляются только копии этого запуска
+                CopyProgress progress = new CopyProgress(journalId, entry.getCopiedCount());
+                copyInParallel(listKeysRecursive(oldPrefix, entry.getCheckpointKey()), oldPrefix, newPrefix,
+                        new ArrayList<>(), progress);
+                moveJournal.copyCompleted(journalId, progress.getCopied());
+            }
+
+            // Часть исходников могла быть удалена до падения — листинг заново
+            removeSources(journalId, oldPrefix, newPrefix, keysPresentIn(oldPrefix, newPrefix));
+            logger.info("Interrupted move {} -> {} finished", oldPrefix, newPrefix);
         } catch (Exception e) {
-            logger.error("Error during copy, performing rollback", e);
-            rollbackRename(newPrefix, copiedObjects);
-            throw e;
+            // Запись остаётся в прежней фазе, повтор после истечения move.journal-lease
+            logger.error("Recovery of move {} -> {} failed: {}", oldPrefix, newPrefix, e.getMessage(), e);
+        } finally {
+            invalidateCaches(oldPrefix, true);
+            invalidateCaches(newPrefix, true);
         }
     }
 
     /**
-     * Переименование отдельного файла
+     * Ключи под prefix, у которых есть объект с тем же относительным путём под
+     * otherPrefix. Оба листинга отсортированы, поэтому хватает одного прохода
+     * слиянием.
      */
-    private void renameFile(String oldFilePath, String newFilePath) throws Exception {
-        // Проверяем существование нового пути
-        if (isObjectExists(newFilePath)) {
-            throw new RuntimeException("A file with this name already exists: " + newFilePath);
+    private Iterator<String> keysPresentIn(String prefix, String otherPrefix) {
+        Iterator<String> keys = listKeysRecursive(prefix);
+        Iterator<String> others = listKeysRecursive(otherPrefix);
+
+        return new Iterator<>() {
+            private String next;
+            private String other;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && keys.hasNext()) {
+                    String key = keys.next();
+                    String relative = key.substring(prefix.length());
+                    while ((other == null || other.compareTo(relative) < 0) && others.hasNext()) {
+                        other = others.next().substring(otherPrefix.length());
+                    }
+                    if (relative.equals(other)) {
+                        next = key;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String key = next;
+                next = null;
+                return key;
+            }
+        };
+    }
+
+    /**
+     * Серверное копирование ключей в новый префикс, не более move.parallelism
+     * запросов одновременно. Успешно скопированные исходные ключи добавляются
+     * в copied; при ошибке метод дожидается уже запущенных копий, чтобы откат
+     * удалил и их.
+     */
+    private void copyInParallel(Iterator<String> keys, String oldPrefix, String newPrefix, List<String> copied,
+                                CopyProgress progress) throws Exception {
+
+        int parallelism = Math.max(1, storageProperties.getMove().getParallelism());
+        Deque<Future<String>> inFlight = new ArrayDeque<>(parallelism);
+
+        try {
+            while (keys.hasNext()) {
+                if (inFlight.size() >= parallelism) {
+                    copied.add(progress.onCopied(awaitCopy(inFlight.poll())));
+                }
+                String source = keys.next();
+                String target = newPrefix + source.substring(oldPrefix.length());
+                inFlight.add(taskRunner.submit(() -> {
+                    copyObject(source, target);
+                    return source;
+                }));
+            }
+            while (!inFlight.isEmpty()) {
+                copied.add(progress.onCopied(awaitCopy(inFlight.poll())));
+            }
+        } finally {
+            for (Future<String> future : inFlight) {
+                try {
+                    copied.add(future.get());
+                } catch (Exception ignored) {
+                    // Копия не создана — откатывать нечего
+                }
+            }
         }
+    }
 
-        // Копируем файл
+    /**
+     * Контрольные точки копирования. Копии забираются из очереди в порядке
+     * листинга, поэтому очередной завершённый ключ — граница, до которой
+     * скопировано всё. Точка пишется раз в move.checkpoint-every объектов и
+     * не реже раза в 30 секунд, чтобы долгие копии не выглядели прерванными.
+     */
+    private final class CopyProgress {
+
+        private static final long CHECKPOINT_HEARTBEAT_NANOS = 30_000_000_000L;
+
+        private final long journalId;
+        private long copied;
+        private int sinceCheckpoint;
+        private long lastCheckpoint = System.nanoTime();
+
+        private CopyProgress(long journalId, long alreadyCopied) {
+            this.journalId = journalId;
+            this.copied = alreadyCopied;
+        }
+
+        String onCopied(String source) {
+            copied++;
+            sinceCheckpoint++;
+            if (sinceCheckpoint >= storageProperties.getMove().getCheckpointEvery()
+                    || System.nanoTime() - lastCheckpoint >= CHECKPOINT_HEARTBEAT_NANOS) {
+                try {
+                    moveJournal.checkpoint(journalId, source, copied);
+                } catch (Exception e) {
+                    // Без точки восстановление начнёт с предыдущей — копии просто перезапишутся
+                    logger.warn("Failed to checkpoint move {}: {}", journalId, e.getMessage());
+                }
+                sinceCheckpoint = 0;
+                lastCheckpoint = System.nanoTime();
+            }
+            return source;
+        }
+
+        long getCopied() {
+            return copied;
+        }
+    }
+
+    private void copyObject(String source, String target) throws Exception {
         minioClient.copyObject(
                 CopyObjectArgs.builder()
                         .bucket(bucket)
-                        .object(newFilePath)
+                        .object(target)
                         .source(CopySource.builder()
                                 .bucket(bucket)
-                                .object(oldFilePath)
+                                .object(source)
                                 .build())
                         .build()
         );
+        logger.trace("Copied: {} -> {}", source, target);
+    }
+
+    private String awaitCopy(Future<String> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    /**
+     * Переименование отдельного файла
+     */
+    private void renameFile(String oldFilePath, String newFilePath) throws Exception {
+        // Проверяем существование нового пути
+        if (isObjectExists(newFilePath)) {
+            throw new RuntimeException("A file with this name already exists: " + newFilePath);
+        }
+
+        // Копируем файл
+        copyObject(oldFilePath, newFilePath);
 
         // Удаляем старый файл
         minioClient.removeObject(
@@ -276,68 +892,129 @@ public class MinioServiceImpl implements MinioService {
     }
 
     /**
-     * Откат операции переименования при ошибке
+     * Откат переименования: удаление созданных копий и маркера новой папки.
+     * Исходные объекты к этому моменту не тронуты. Возвращает false, если
+     * часть копий удалить не удалось
      */
-    private void rollbackRename(String newPrefix, List<String> copiedObjects) {
+    private boolean rollbackRename(String newPrefix, Iterator<String> copies) {
         logger.warn("Rolling back rename operation for folder: {}", newPrefix);
 
-        for (String oldPath : copiedObjects) {
-            try {
-                String newPath = oldPath.replaceFirst(
-                        Pattern.quote(ensureTrailingSlash(newPrefix)),
-                        ""
-                );
-                minioClient.removeObject(
-                        RemoveObjectArgs.builder()
-                                .bucket(bucket)
-                                .object(newPath)
-                                .build()
-                );
-            } catch (Exception e) {
-                logger.error("Error during rollback for object: {}", oldPath, e);
+        try {
+            BatchDeleteResult result = removeInBatches(copies, deleted -> {
+            });
+            if (result.getFailed() > 0) {
+                logger.error("Rollback left {} copies in {}: {}",
+                        result.getFailed(), newPrefix, result.getErrorSamples());
+                return false;
             }
+
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(newPrefix)
+                            .build()
+            );
+            return true;
+        } catch (Exception e) {
+            logger.error("Error during rollback for folder: {}", newPrefix, e);
+            return false;
         }
     }
 
+    /**
+     * Поиск в раскладке path — обход листинга под префиксом пользователя:
+     * индекса имён в бакете нет. Результаты идут в порядке путей, обход
+     * останавливается, как только набрана страница. Индексированный поиск
+     * (pg_trgm) — в раскладке indexed
+     */
     @Override
-    public List<MinioObject> searchFiles(String userFolder, String query) {
-        try {
-            String prefix = ensureTrailingSlash(userFolder);
-            List<MinioObject> results = new ArrayList<>();
-            String queryLower = query.toLowerCase();
+    public List<MinioObject> searchFiles(String userFolder, String query, int offset, int limit) {
+        List<MinioObject> results = new ArrayList<>();
+        iterateSearchResults(userFolder, query, offset, limit).forEachRemaining(results::add);
+        return results;
+    }
 
-            for (Result<Item> result : minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucket)
-                            .prefix(prefix)
-                            .recursive(true)
-                            .build()
-            )) {
-                Item item = result.get();
-                String fileName = extractName(item.objectName());
+    @Override
+    public Iterator<MinioObject> iterateSearchResults(String userFolder, String query, int offset, int limit) {
+        String queryLower = query.toLowerCase();
+        return filteredListing(ensureTrailingSlash(userFolder), true,
+                name -> extractName(name).toLowerCase().contains(queryLower), offset, limit, "searchFiles: ");
+    }
 
-                if (fileName.toLowerCase().contains(queryLower)) {
-                    results.add(createMinioObject(item));
+    /**
+     * Ленивый листинг префикса: объекты, имя которых проходит filter, после
+     * первых skip подходящих и не больше limit. Очередная страница листинга
+     * запрашивается у MinIO только когда текущая прочитана, поэтому в памяти
+     * не держится больше одной страницы
+     */
+    private Iterator<MinioObject> filteredListing(String prefix, boolean recursive, Predicate<String> filter,
+                                                  long skip, long limit, String errorPrefix) {
+        Iterator<Result<Item>> results = minioClient.listObjects(
+                ListObjectsArgs.builder()
+                        .bucket(bucket)
+                        .prefix(prefix)
+                        .recursive(recursive)
+                        .build()
+        ).iterator();
+
+        return new Iterator<>() {
+            private MinioObject next;
+            private long skipped;
+            private long returned;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (next == null && returned < limit && results.hasNext()) {
+                        Item item = results.next().get();
+                        if (!filter.test(item.objectName())) {
+                            continue;
+                        }
+                        if (skipped < skip) {
+                            skipped++;
+                            continue;
+                        }
+                        next = createMinioObject(item);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(errorPrefix + e.getMessage(), e);
                 }
+                return next != null;
             }
 
-            return results;
-        } catch (Exception e) {
-            throw new RuntimeException("searchFiles: " + e.getMessage(), e);
-        }
+            @Override
+            public MinioObject next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                MinioObject object = next;
+                next = null;
+                returned++;
+                return object;
+            }
+        };
     }
 
     @Override
     public String getDownloadUrl(String fullPath) {
+        return getDownloadUrl(fullPath, null, 60 * 60);
+    }
+
+    @Override
+    public String getDownloadUrl(String fullPath, String contentDisposition, int expirySeconds) {
         try {
-            return minioClient.getPresignedObjectUrl(
-                    GetPresignedObjectUrlArgs.builder()
-                            .method(Method.GET)
-                            .bucket(bucket)
-                            .object(fullPath)
-                            .expiry(60 * 60)
-                            .build()
-            );
+            GetPresignedObjectUrlArgs.Builder args = GetPresignedObjectUrlArgs.builder()
+                    .method(Method.GET)
+                    .bucket(bucket)
+                    .object(fullPath)
+                    .expiry(expirySeconds);
+
+            // MinIO отдаст этот Content-Disposition вместо сохранённого у объекта
+            if (contentDisposition != null) {
+                args.extraQueryParams(Map.of("response-content-disposition", contentDisposition));
+            }
+
+            return presignClient.getPresignedObjectUrl(args.build());
         } catch (Exception e) {
             throw new RuntimeException("getDownloadUrl: " + e.getMessage(), e);
         }
@@ -346,20 +1023,11 @@ public class MinioServiceImpl implements MinioService {
     @Override
     public boolean isObjectExists(String fullPath) throws Exception {
         try {
-            logger.debug("Checking object existence in Minio: {}", fullPath);
-            minioClient.statObject(
-                    StatObjectArgs.builder()
-                            .bucket(bucket)
-                            .object(fullPath)
-                            .build()
-            );
-            logger.debug("Object exists: {}", fullPath);
-            return true;
+            // Горячий путь (каждая проверка перед записью): одна строка и только на TRACE
+            boolean exists = stat(fullPath).isPresent();
+            logger.trace("Object {} exists: {}", fullPath, exists);
+            return exists;
         } catch (ErrorResponseException e) {
-            if (e.errorResponse().code().equals("NoSuchKey")) {
-                logger.debug("Object does not exist: {}", fullPath);
-                return false;
-            }
             logger.error("MinIO error while checking object {}: {}", fullPath, e.getMessage());
 
             throw new RuntimeException(e.getMessage(), e);
@@ -368,26 +1036,42 @@ public class MinioServiceImpl implements MinioService {
 
     @Override
     public MinioObject getObjectInfo(String fullPath) {
-        logger.debug("getObjectInfo: fullPath = {}", fullPath);
+        logger.trace("getObjectInfo: fullPath = {}", fullPath);
         try {
-            StatObjectResponse stat = minioClient.statObject(
-                    StatObjectArgs.builder()
-                            .bucket(bucket)
-                            .object(fullPath)
-                            .build()
-            );
-
-            return MinioObject.builder()
-                    .name(extractName(fullPath))
-                    .path(fullPath)
-                    .size(stat.size())
-                    .isDirectory(fullPath.endsWith("/"))
-                    .build();
+            return resolveObject(fullPath)
+                    .orElseThrow(() -> new NoSuchElementException("NoSuchKey " + fullPath));
         } catch (Exception e) {
             throw new RuntimeException("getObjectInfo Not Found: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Один statObject. Тип определяется по слешу на конце: папка — это её
+     * маркер, поэтому листинг для проверки типа не нужен
+     */
+    @Override
+    public Optional<MinioObject> resolveResource(String fullPath) {
+        try {
+            return resolveObject(fullPath);
+        } catch (Exception e) {
+            throw new RuntimeException("resolveResource: " + e.getMessage(), e);
+        }
+    }
+
+    private Optional<MinioObject> resolveObject(String fullPath) throws Exception {
+        boolean directory = fullPath.endsWith("/");
+        return stat(fullPath).map(stat -> MinioObject.builder()
+                .name(extractName(fullPath))
+                .path(fullPath)
+                .size(stat.size())
+                .isDirectory(directory)
+                .lastModified(stat.lastModified())
+                .etag(stat.etag())
+                .contentType(stat.contentType())
+                .objectKey(directory ? null : fullPath)
+                .build());
+    }
+
     // ============= ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ =============
     //   
     private void validateFileCreation(String fullPath) throws Exception {
@@ -397,8 +1081,6 @@ public class MinioServiceImpl implements MinioService {
                 ? fullPath.substring(0, fullPath.length() - 1)
                 : fullPath;
 
-        logger.debug("Normalized path: {}", normalizedPath);
-
         if (isObjectExists(normalizedPath)) {
             logger.debug("File already exists: {}", normalizedPath);
             throw new RuntimeException("File already exists: " + normalizedPath);
@@ -426,6 +1108,7 @@ public class MinioServiceImpl implements MinioService {
                         .stream(new ByteArrayInputStream(new byte[0]), 0, -1)
                         .build()
         );
+        invalidateCaches(fullPath, false);
     }
 
     private void createFileInMinio(String objectName, MultipartFile file) throws Exception {
@@ -437,6 +1120,7 @@ public class MinioServiceImpl implements MinioService {
                         .contentType(file.getContentType())
                         .build()
         );
+        invalidateCaches(objectName, false);
     }
 
     private MinioObject createMinioObject(Item item) {
@@ -448,10 +1132,64 @@ public class MinioServiceImpl implements MinioService {
                 .build();
     }
 
+    private int depth(String folder) {
+        int depth = 0;
+        for (int i = 0; i < folder.length(); i++) {
+            if (folder.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
     private String ensureTrailingSlash(String path) {
         return path.endsWith("/") ? path : path + "/";
     }
 
+    /**
+     * Префикс папки, в листинге которой виден ресурс
+     */
+    private String parentPrefix(String fullPath) {
+        String path = fullPath.endsWith("/") ? fullPath.substring(0, fullPath.length() - 1) : fullPath;
+        return path.substring(0, path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Сброс кэшей после изменения ресурса: его stat и листинг родителя, а
+     * для папки — ещё stat и листинги всего, что в ней лежит
+     */
+    private void invalidateCaches(String fullPath, boolean directory) {
+        statCache.invalidate(fullPath);
+        listingCache.invalidateFolder(parentPrefix(fullPath));
+        if (directory) {
+            String prefix = ensureTrailingSlash(fullPath);
+            statCache.invalidateTree(prefix);
+            listingCache.invalidateTree(prefix);
+        }
+    }
+
+    /**
+     * statObject через StatCache; Optional.empty() — ключа нет (NoSuchKey),
+     * остальные ошибки MinIO пробрасываются и не кэшируются
+     */
+    private Optional<StatCache.ObjectStat> stat(String fullPath) throws Exception {
+        return statCache.get(fullPath, () -> {
+            try {
+                return Optional.of(StatCache.ObjectStat.of(minioClient.statObject(
+                        StatObjectArgs.builder()
+                                .bucket(bucket)
+                                .object(fullPath)
+                                .build()
+                )));
+            } catch (ErrorResponseException e) {
+                if ("NoSuchKey".equals(e.errorResponse().code())) {
+                    return Optional.empty();
+                }
+                throw e;
+            }
+        });
+    }
+
     private String extractName(String fullPath) {
         if (fullPath == null || fullPath.isEmpty()) {
             return "";
@@ -466,58 +1204,113 @@ public class MinioServiceImpl implements MinioService {
     }
 
     /**
-     * Удаление нескольких объектов (используется для рекурсивного удаления
-     * папки)
+     * Пакетное удаление: ключи из итератора собираются в пакеты по
+     * app.storage.delete.batch-size и удаляются запросами removeObjects в пуле
+     * (не более app.storage.delete.parallelism одновременно). Пока пакеты
+     * удаляются, поток продолжает читать листинг. Ошибки по отдельным ключам
+     * собираются в результат, а не только пишутся в лог.
      */
-    private void deleteObjects(List<String> objectsToDelete) {
-        for (String objectPath : objectsToDelete) {
-            try {
-                minioClient.removeObject(
-                        RemoveObjectArgs.builder()
-                                .bucket(bucket)
-                                .object(objectPath)
-                                .build()
-                );
-            } catch (Exception e) {
-                logger.error("Error deleting object: {}", objectPath, e);
-                // Продолжаем удаление остальных объектов
+    private BatchDeleteResult removeInBatches(Iterator<String> keys, LongConsumer onDeleted) throws Exception {
+        int batchSize = Math.min(1000, Math.max(1, storageProperties.getDelete().getBatchSize()));
+        int parallelism = Math.max(1, storageProperties.getDelete().getParallelism());
+
+        BatchDeleteResult result = new BatchDeleteResult();
+        Deque<Future<BatchDeleteResult>> inFlight = new ArrayDeque<>();
+        List<DeleteObject> batch = new ArrayList<>(batchSize);
+
+        try {
+            while (keys.hasNext()) {
+                batch.add(new DeleteObject(keys.next()));
+                if (batch.size() == batchSize) {
+                    if (inFlight.size() >= parallelism) {
+                        result.merge(awaitBatch(inFlight.poll(), onDeleted));
+                    }
+                    inFlight.add(submitBatch(batch));
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                inFlight.add(submitBatch(batch));
             }
+            while (!inFlight.isEmpty()) {
+                result.merge(awaitBatch(inFlight.poll(), onDeleted));
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+
+        return result;
+    }
+
+    private Future<BatchDeleteResult> submitBatch(List<DeleteObject> batch) {
+        return taskRunner.submit(() -> {
+            BatchDeleteResult batchResult = new BatchDeleteResult();
+            // removeObjects ленивый: запрос уходит при обходе результата
+            for (Result<DeleteError> errorResult : minioClient.removeObjects(
+                    RemoveObjectsArgs.builder()
+                            .bucket(bucket)
+                            .objects(batch)
+                            .build())) {
+                DeleteError error = errorResult.get();
+                batchResult.addError(error.objectName() + ": " + error.message());
+            }
+            batchResult.addDeleted(batch.size() - batchResult.getFailed());
+            return batchResult;
+        });
+    }
+
+    private BatchDeleteResult awaitBatch(Future<BatchDeleteResult> future, LongConsumer onDeleted) throws Exception {
+        try {
+            BatchDeleteResult batchResult = future.get();
+            onDeleted.accept(batchResult.getDeleted());
+            return batchResult;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
         }
     }
 
     /**
-     * Проверка, является ли объект папкой
+     * Итог пакетного удаления
      */
-    private boolean isDirectory(String fullPath) {
-        try {
-            // Пытаемся получить информацию об объекте
-            minioClient.statObject(
-                    StatObjectArgs.builder()
-                            .bucket(bucket)
-                            .object(fullPath)
-                            .build()
-            );
+    private static class BatchDeleteResult {
 
-            // Дополнительная проверка через listObjects
-            String prefix = ensureTrailingSlash(fullPath);
-            Iterable<Result<Item>> results = minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucket)
-                            .prefix(prefix)
-                            .maxKeys(1)
-                            .build()
-            );
+        private static final int MAX_ERROR_SAMPLES = 10;
 
-            // Если есть хотя бы один объект с таким префиксом - это папка
-            return results.iterator().hasNext();
+        private long deleted;
+        private long failed;
+        private final List<String> errorSamples = new ArrayList<>();
 
-        } catch (ErrorResponseException e) {
-            logger.error("Object not found while checking type: {}", fullPath, e);
-            return false;
-        } catch (Exception e) {
-            logger.error("Error while checking object type: {}", fullPath, e);
-            return false;
+        void addDeleted(long count) {
+            deleted += count;
         }
-    }
 
+        void addError(String error) {
+            failed++;
+            if (errorSamples.size() < MAX_ERROR_SAMPLES) {
+                errorSamples.add(error);
+            }
+        }
+
+        void merge(BatchDeleteResult other) {
+            deleted += other.deleted;
+            failed += other.failed;
+            for (String error : other.errorSamples) {
+                if (errorSamples.size() < MAX_ERROR_SAMPLES) {
+                    errorSamples.add(error);
+                }
+            }
+        }
+
+        long getDeleted() {
+            return deleted;
+        }
+
+        long getFailed() {
+            return failed;
+        }
+
+        List<String> getErrorSamples() {
+            return errorSamples;
+        }
+    }
 }
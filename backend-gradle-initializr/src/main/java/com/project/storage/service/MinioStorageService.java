@@ -2,14 +2,26 @@ package com.project.storage.service;
 
 import com.project.entity.MinioObject;
 import com.project.exception.StorageException;
+import com.project.config.StorageProperties;
+import com.project.storage.dto.DirectoryPage;
 import com.project.storage.dto.ResourceInfo;
+import com.project.storage.dto.StorageJobInfo;
+import com.project.storage.model.ListingPage;
+import com.project.storage.model.ListingSort;
 import com.project.storage.model.ResourceType;
 import com.project.storage.util.PathValidator;
+import com.project.storage.util.StorageMetrics;
 
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -23,10 +35,21 @@ public class MinioStorageService implements StorageService {
     private static final Logger logger = LoggerFactory.getLogger(MinioStorageService.class);
     private final MinioServiceAdapter minioServiceAdapter;
     private final PathValidator pathValidator;
-
-    public MinioStorageService(MinioServiceAdapter minioServiceAdapter, PathValidator pathValidator) {
+    private final StorageMetrics storageMetrics;
+    private final StorageJobService storageJobService;
+    private final StorageProperties storageProperties;
+
+    public MinioStorageService(
+            MinioServiceAdapter minioServiceAdapter,
+            PathValidator pathValidator,
+            StorageMetrics storageMetrics,
+            StorageJobService storageJobService,
+            StorageProperties storageProperties) {
         this.minioServiceAdapter = minioServiceAdapter;
         this.pathValidator = pathValidator;
+        this.storageMetrics = storageMetrics;
+        this.storageJobService = storageJobService;
+        this.storageProperties = storageProperties;
     }
 
     @Override
@@ -90,16 +113,26 @@ public class MinioStorageService implements StorageService {
         }
 
         try {
+            // 1. Создаём все недостающие папки по путям файлов. Папки собираются в
+            // один набор, поэтому общая папка сотни файлов проверяется один раз
+            Set<String> folders = new LinkedHashSet<>();
+            long folderChecksPerFile = 0;
             for (MultipartFile file : files) {
                 // Получаем относительный путь файла (например, "test-folder/file.txt")
                 String relativePath = file.getOriginalFilename(); // браузер сам отправляет относительный путь
                 // Добавляем папку назначения для получения полного пути необходимых подпапок (например /folder-to-load-into/test-folder/file.txt)
                 String fullFilePath = destinationRelativePath + relativePath;
 
-                // 1. Создаём все недостающие папки по пути (кроме самого файла)
-                createParentFoldersIfNeeded(userId, fullFilePath);
+                List<String> parents = getParentFolders(fullFilePath);
+                folderChecksPerFile += parents.size();
+                folders.addAll(parents);
             }
 
+            int created = minioServiceAdapter.createFolders(userId, folders);
+            storageMetrics.recordFolderChecksSaved(folderChecksPerFile - folders.size());
+            logger.debug("User {}: {} unique parent folders for {} files, {} created",
+                    userId, folders.size(), files.length, created);
+
             logger.debug("minioServiceAdapter.uploadFiles destinationRelativePath: {}", destinationRelativePath);
 
             // Валидация пути если не загружаем в корень (тип известен заранее, поэтому expectedType = ResourceType.DIRECTORY)
@@ -108,6 +141,10 @@ public class MinioStorageService implements StorageService {
             }
 
             List<MinioObject> uploaded = minioServiceAdapter.uploadFiles(userId, destinationRelativePath, files);
+            storageMetrics.recordBytesUploaded(uploaded.stream()
+                    .filter(obj -> obj.getError() == null && obj.getSize() != null)
+                    .mapToLong(MinioObject::getSize)
+                    .sum());
 
             return uploaded.stream()
                     .map(obj -> convertToResourceInfo(userId, obj))
@@ -118,7 +155,24 @@ public class MinioStorageService implements StorageService {
     }
 
     @Override
-    public void deleteResource(Long userId, String relativePath) {
+    public ResourceInfo uploadStream(Long userId, String relativePath, InputStream content, long size, String contentType) {
+        pathValidator.assertValidPathOrThrow(relativePath, ResourceType.FILE, userId, "uploadStream");
+
+        // Недостающие папки по пути создаются так же, как при обычной загрузке
+        createParentFoldersIfNeeded(userId, relativePath);
+
+        storageMetrics.uploadStarted();
+        try {
+            MinioObject uploaded = minioServiceAdapter.uploadStream(userId, relativePath, content, size, contentType);
+            storageMetrics.recordBytesUploaded(uploaded.getSize() != null ? uploaded.getSize() : 0);
+            return convertToResourceInfo(userId, uploaded);
+        } finally {
+            storageMetrics.uploadFinished();
+        }
+    }
+
+    @Override
+    public StorageJobInfo deleteResource(Long userId, String relativePath) {
 
         try {
 
@@ -126,8 +180,18 @@ public class MinioStorageService implements StorageService {
             pathValidator.assertValidPathOrThrow(relativePath, null, userId, "deleteResource");
 
             // Проверяем существование перед удалением (выбросит исключение если не найдено)
-            minioServiceAdapter.getObjectInfo(userId, relativePath);
+            MinioObject objectInfo = minioServiceAdapter.getObjectInfo(userId, relativePath);
+
+            // Большую папку удаляем фоном: подсчёт останавливается сразу за порогом
+            if (objectInfo.isDirectory() || relativePath.endsWith("/")) {
+                long threshold = storageProperties.getDelete().getAsyncThreshold();
+                if (minioServiceAdapter.countObjects(userId, relativePath, threshold + 1) > threshold) {
+                    return storageJobService.startFolderDelete(userId, relativePath);
+                }
+            }
+
             minioServiceAdapter.deleteObject(userId, relativePath);
+            return null;
         } catch (Exception e) {
             throw e;
         }
@@ -137,16 +201,39 @@ public class MinioStorageService implements StorageService {
     public ResourceInfo moveResource(Long userId, String fromRelativePath, String toRelativePath) {
 
         try {
-            minioServiceAdapter.moveResource(userId, fromRelativePath, toRelativePath);
-            return getResourceInfo(userId, toRelativePath);
+            // Сведения о перемещённом ресурсе известны по исходному: повторный stat не нужен
+            MinioObject moved = minioServiceAdapter.moveResource(userId, fromRelativePath, toRelativePath);
+            return convertToResourceInfo(userId, moved);
         } catch (Exception e) {
             throw e;
         }
     }
 
     @Override
-    public List<ResourceInfo> searchResources(Long userId, String query
+    public List<ResourceInfo> searchResources(Long userId, String query, int offset, Integer limit
     ) {
+        int pageSize = searchPageSize(userId, query, offset, limit);
+
+        try {
+            List<MinioObject> results = minioServiceAdapter.searchFiles(userId, query, offset, pageSize);
+            return results.stream()
+                    .map(obj -> convertToResourceInfo(userId, obj))
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            throw e;
+        }
+    }
+
+    @Override
+    public Iterator<ResourceInfo> iterateSearchResults(Long userId, String query, int offset, Integer limit) {
+        int pageSize = searchPageSize(userId, query, offset, limit);
+        return toResourceInfos(userId, minioServiceAdapter.iterateSearchResults(userId, query, offset, pageSize));
+    }
+
+    /**
+     * Проверка параметров поиска; возвращает размер страницы
+     */
+    private int searchPageSize(Long userId, String query, int offset, Integer limit) {
         if (query == null || query.trim().isEmpty()) {
             throw new StorageException.InvalidPathException(
                     "Поисковый запрос не может быть пустым",
@@ -155,21 +242,24 @@ public class MinioStorageService implements StorageService {
                     "searchResources"
             );
         }
-
-        try {
-            List<MinioObject> results = minioServiceAdapter.searchFiles(userId, query);
-            return results.stream()
-                    .map(obj -> convertToResourceInfo(userId, obj))
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            throw e;
+        if (offset < 0 || (limit != null && limit < 1)) {
+            throw new StorageException.InvalidPathException(
+                    "Некорректные параметры страницы поиска",
+                    userId,
+                    null,
+                    "searchResources"
+            );
         }
+
+        // Размер страницы ограничен сверху, чтобы поиск по частой подстроке не выгружал всё хранилище
+        int maxResults = storageProperties.getSearch().getMaxResults();
+        return limit != null ? Math.min(limit, maxResults) : maxResults;
     }
 
     @Override
     public List<ResourceInfo> getDirectoryContents(Long userId, String relativePath
     ) {
-        logger.info("User {} is requesting contents of directory: '{}'", userId, relativePath);
+        logger.debug("User {} is requesting contents of directory: '{}'", userId, relativePath);
 
         try {
             // Валидация пути (тип известен заранее, поэтому expectedType = ResourceType.DIRECTORY)
@@ -184,6 +274,53 @@ public class MinioStorageService implements StorageService {
             throw e;
         }
     }
+
+    @Override
+    public Iterator<ResourceInfo> iterateDirectoryContents(Long userId, String relativePath) {
+        logger.debug("User {} is streaming contents of directory: '{}'", userId, relativePath);
+
+        pathValidator.assertValidPathOrThrow(relativePath, ResourceType.DIRECTORY, userId, "iterateDirectoryContents");
+        return toResourceInfos(userId, minioServiceAdapter.iterateObjects(userId, relativePath));
+    }
+
+    @Override
+    public DirectoryPage getDirectoryPage(Long userId, String relativePath, String cursor, Integer limit,
+                                          String sort) {
+        logger.debug("User {} is requesting a page of directory: '{}'", userId, relativePath);
+
+        pathValidator.assertValidPathOrThrow(relativePath, ResourceType.DIRECTORY, userId, "getDirectoryPage");
+
+        ListingSort listingSort;
+        try {
+            listingSort = sort == null || sort.isBlank()
+                    ? ListingSort.NAME
+                    : ListingSort.valueOf(sort.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new StorageException.InvalidPathException(
+                    "Неизвестная сортировка: " + sort,
+                    userId,
+                    relativePath,
+                    "getDirectoryPage"
+            );
+        }
+        if (limit != null && limit < 1) {
+            throw new StorageException.InvalidPathException(
+                    "Некорректный размер страницы: " + limit,
+                    userId,
+                    relativePath,
+                    "getDirectoryPage"
+            );
+        }
+
+        StorageProperties.Listing listing = storageProperties.getListing();
+        int pageSize = Math.min(limit != null ? limit : listing.getPageSize(), listing.getMaxPageSize());
+
+        ListingPage page = minioServiceAdapter.listObjects(userId, relativePath, cursor, pageSize, listingSort);
+        List<ResourceInfo> items = page.getItems().stream()
+                .map(obj -> convertToResourceInfo(userId, obj))
+                .collect(Collectors.toList());
+        return new DirectoryPage(items, page.getNextCursor());
+    }
     // ============= ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ============= 
 
     private String getRelativePath(Long userId, String fullPath) {
@@ -217,6 +354,20 @@ public class MinioStorageService implements StorageService {
         return cleanPath.substring(0, lastSlash + 1);
     }
 
+    private Iterator<ResourceInfo> toResourceInfos(Long userId, Iterator<MinioObject> objects) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return objects.hasNext();
+            }
+
+            @Override
+            public ResourceInfo next() {
+                return convertToResourceInfo(userId, objects.next());
+            }
+        };
+    }
+
     private ResourceInfo convertToResourceInfo(Long userId, MinioObject minioObject) {
         String fullPath = minioObject.getPath();
         String relativePath = getRelativePath(userId, fullPath);
@@ -233,6 +384,7 @@ public class MinioStorageService implements StorageService {
                 .size(type == ResourceType.FILE ? minioObject.getSize() : null)
                 .type(type)
                 .userId(userId)
+                .error(minioObject.getError())
                 .build();
     }
 
@@ -260,10 +412,19 @@ public class MinioStorageService implements StorageService {
      * Создаёт все промежуточные папки для указанного пути, если их нет.
      */
     private void createParentFoldersIfNeeded(Long userId, String fullFilePath) {
+        minioServiceAdapter.createFolders(userId, getParentFolders(fullFilePath));
+    }
+
+    /**
+     * Все папки по пути файла, от верхней к нижней (кроме самого файла):
+     * "a/b/file.txt" -> ["a/", "a/b/"]
+     */
+    private List<String> getParentFolders(String fullFilePath) {
         logger.debug("Trimming file name, extracting folder path: {}", fullFilePath);
+        List<String> folders = new ArrayList<>();
         int lastSlash = fullFilePath.lastIndexOf('/');
         if (lastSlash == -1) {
-            return;
+            return folders;
         }
         String foldersPath = fullFilePath.substring(0, lastSlash + 1);
         logger.debug("Folders path: {}", foldersPath);
@@ -276,9 +437,9 @@ public class MinioStorageService implements StorageService {
                 continue;
             }
             currentPath.append(part).append("/");
-            String pathToCheck = currentPath.toString();
-            minioServiceAdapter.createFolder(userId, pathToCheck, false);
+            folders.add(currentPath.toString());
         }
+        return folders;
     }
 
 }
@@ -0,0 +1,345 @@
+package com.project.storage.service;
+
+import com.project.config.StorageProperties;
+import com.project.repository.StorageNodeRepository;
+import com.project.storage.model.ResourceType;
+import com.project.storage.model.StorageNode;
+
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import lombok.Getter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Сверка дерева путей (storage_nodes, раскладка indexed) с бакетом.
+ *
+ * Дерево ведётся на каждой записи через MinioServiceAdapter, бакет при этом
+ * остаётся источником правды о содержимом. Сверка:
+ * <ul>
+ *   <li>импортирует пользователей, чьи файлы лежат в бакете по путям
+ *   user-{id}-files/... (раскладка path), а дерева ещё нет, — так существующее
+ *   хранилище переводится на indexed без копирования объектов;</li>
+ *   <li>удаляет объекты blobs/..., на которые не ссылается ни один узел
+ *   (загрузка упала между записью объекта и строки, удаление — между строкой
+ *   и объектом);</li>
+ *   <li>удаляет узлы, чьего содержимого в бакете нет.</li>
+ * </ul>
+ * Объекты и строки моложе index.orphan-grace не трогаются: запись может быть
+ * в процессе.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.storage", name = "layout", havingValue = "indexed")
+public class StorageIndexReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageIndexReconciler.class);
+
+    private static final String BLOB_PREFIX = "blobs/";
+    private static final Pattern USER_ROOT = Pattern.compile("^user-(\\d+)-files/$");
+    private static final int PAGE_SIZE = 1000;
+
+    @Value("${spring.minio.bucket}")
+    private String bucket;
+
+    private final MinioClient minioClient;
+    private final StorageProperties storageProperties;
+    private final StorageNodeRepository nodeRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public StorageIndexReconciler(MinioClient minioClient, StorageProperties storageProperties,
+                                  StorageNodeRepository nodeRepository, PlatformTransactionManager transactionManager) {
+        this.minioClient = minioClient;
+        this.storageProperties = storageProperties;
+        this.nodeRepository = nodeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        if (storageProperties.getIndex().isReconcileOnStartup()) {
+            reconcileQuietly();
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.storage.index.reconcile-interval:PT6H}",
+            fixedDelayString = "${app.storage.index.reconcile-interval:PT6H}")
+    public void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("Storage index reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public Report reconcile() throws Exception {
+        long started = System.nanoTime();
+        Instant staleBefore = Instant.now().minus(storageProperties.getIndex().getOrphanGrace());
+
+        Report report = new Report();
+        importUnindexedUsers(report);
+        removeOrphansAndDangling(staleBefore, report);
+
+        logger.info("Storage index reconciled in {} ms: {} users imported ({} objects), "
+                        + "{} orphaned blobs removed, {} dangling nodes removed",
+                (System.nanoTime() - started) / 1_000_000, report.importedUsers, report.importedObjects,
+                report.orphanedBlobs, report.danglingNodes);
+        return report;
+    }
+
+    // ============= ИМПОРТ ИЗ РАСКЛАДКИ PATH =============
+
+    private void importUnindexedUsers(Report report) throws Exception {
+        for (Result<Item> result : minioClient.listObjects(
+                ListObjectsArgs.builder()
+                        .bucket(bucket)
+                        .recursive(false)
+                        .build()
+        )) {
+            String prefix = result.get().objectName();
+            Matcher matcher = USER_ROOT.matcher(prefix);
+            if (!matcher.matches()) {
+                continue;
+            }
+
+            String rootName = prefix.substring(0, prefix.length() - 1);
+            if (nodeRepository.findByParentIdAndName(StorageNode.ROOT_PARENT_ID, rootName).isPresent()) {
+                continue;
+            }
+
+            // Пользователь целиком в одной транзакции: после падения импорт начнётся заново,
+            // а второй экземпляр упрётся в уникальный индекс на корне
+            Long userId = Long.valueOf(matcher.group(1));
+            try {
+                Long imported = transactionTemplate.execute(status -> importUser(userId, prefix));
+                report.importedUsers++;
+                report.importedObjects += imported != null ? imported : 0;
+                logger.info("Imported {} objects of {} into storage index", imported, prefix);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to import {} into storage index: {}", prefix, e.getMessage());
+            }
+        }
+    }
+
+    private long importUser(Long userId, String prefix) {
+        StorageNode root = nodeRepository.save(new StorageNode(
+                userId, StorageNode.ROOT_PARENT_ID, prefix.substring(0, prefix.length() - 1), ResourceType.DIRECTORY));
+
+        Map<String, Long> folders = new HashMap<>();
+        folders.put("", root.getId());
+        long imported = 0;
+
+        try {
+            for (Result<Item> result : minioClient.listObjects(
+                    ListObjectsArgs.builder()
+                            .bucket(bucket)
+                            .prefix(prefix)
+                            .recursive(true)
+                            .build()
+            )) {
+                Item item = result.get();
+                String relative = item.objectName().substring(prefix.length());
+                if (relative.isEmpty()) {
+                    continue;
+                }
+                if (relative.endsWith("/")) {
+                    folderId(userId, relative, folders);
+                    continue;
+                }
+
+                int slash = relative.lastIndexOf('/');
+                long parentId = folderId(userId, relative.substring(0, slash + 1), folders);
+
+                // Содержимое остаётся на месте: ключом служит прежний путь
+                StorageNode node = new StorageNode(userId, parentId, relative.substring(slash + 1), ResourceType.FILE);
+                node.setObjectKey(item.objectName());
+                node.setSize(item.size());
+                node.setEtag(item.etag());
+                if (item.lastModified() != null) {
+                    node.setUpdatedAt(item.lastModified().toInstant());
+                }
+                nodeRepository.save(node);
+                imported++;
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("import " + prefix + ": " + e.getMessage(), e);
+        }
+        return imported;
+    }
+
+    /**
+     * id узла папки folder (относительный путь со слешем на конце), родители
+     * создаются по мере надобности: маркеры есть не у всех папок
+     */
+    private long folderId(Long userId, String folder, Map<String, Long> folders) {
+        Long id = folders.get(folder);
+        if (id != null) {
+            return id;
+        }
+
+        String path = folder.substring(0, folder.length() - 1);
+        int slash = path.lastIndexOf('/');
+        long parentId = folderId(userId, path.substring(0, slash + 1), folders);
+
+        StorageNode node = nodeRepository.save(
+                new StorageNode(userId, parentId, path.substring(slash + 1), ResourceType.DIRECTORY));
+        folders.put(folder, node.getId());
+        return node.getId();
+    }
+
+    // ============= СВЕРКА СОДЕРЖИМОГО =============
+
+    /**
+     * Листинг blobs/ и ссылки из storage_nodes идут в одном побайтовом порядке,
+     * поэтому расхождения находятся одним проходом слиянием без загрузки
+     * списков в память.
+     */
+    private void removeOrphansAndDangling(Instant staleBefore, Report report) throws Exception {
+        Iterator<Result<Item>> blobs = minioClient.listObjects(
+                ListObjectsArgs.builder()
+                        .bucket(bucket)
+                        .prefix(BLOB_PREFIX)
+                        .recursive(true)
+                        .build()
+        ).iterator();
+        Iterator<StorageNodeRepository.BlobRef> refs = new BlobRefIterator(staleBefore);
+
+        List<String> orphaned = new ArrayList<>();
+        List<Long> dangling = new ArrayList<>();
+        long scanned = 0;
+
+        Item blob = blobs.hasNext() ? blobs.next().get() : null;
+        StorageNodeRepository.BlobRef ref = refs.hasNext() ? refs.next() : null;
+        while (blob != null || ref != null) {
+            int order = blob == null ? 1 : ref == null ? -1 : blob.objectName().compareTo(ref.getObjectKey());
+
+            if (order <= 0) {
+                if (order < 0 && blob.lastModified().toInstant().isBefore(staleBefore)) {
+                    orphaned.add(blob.objectName());
+                }
+                scanned++;
+                blob = blobs.hasNext() ? blobs.next().get() : null;
+            }
+            if (order >= 0) {
+                if (order > 0 && Boolean.TRUE.equals(ref.getStale())) {
+                    dangling.add(ref.getId());
+                }
+                ref = refs.hasNext() ? refs.next() : null;
+            }
+        }
+
+        // Почти всё содержимое без ссылок — скорее чужая база или неполный импорт, чем мусор
+        if (orphaned.size() > PAGE_SIZE && orphaned.size() > scanned / 2) {
+            logger.error("{} of {} blobs have no storage node, refusing to delete them; check the database",
+                    orphaned.size(), scanned);
+            orphaned.clear();
+        }
+
+        report.orphanedBlobs = removeBlobs(orphaned);
+        if (!dangling.isEmpty()) {
+            logger.warn("Removing {} storage nodes whose content is missing in the bucket", dangling.size());
+            nodeRepository.deleteAllById(dangling);
+            report.danglingNodes = dangling.size();
+        }
+    }
+
+    private long removeBlobs(List<String> keys) {
+        int batchSize = Math.min(1000, Math.max(1, storageProperties.getDelete().getBatchSize()));
+        long removed = 0;
+
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            List<DeleteObject> batch = new ArrayList<>();
+            for (String key : keys.subList(from, Math.min(keys.size(), from + batchSize))) {
+                batch.add(new DeleteObject(key));
+            }
+
+            int failed = 0;
+            try {
+                for (Result<DeleteError> result : minioClient.removeObjects(
+                        RemoveObjectsArgs.builder()
+                                .bucket(bucket)
+                                .objects(batch)
+                                .build())) {
+                    DeleteError error = result.get();
+                    failed++;
+                    logger.warn("Orphaned blob {} was not deleted: {}", error.objectName(), error.message());
+                }
+            } catch (Exception e) {
+                failed = batch.size();
+                logger.warn("Failed to delete {} orphaned blobs: {}", batch.size(), e.getMessage());
+            }
+            removed += batch.size() - failed;
+        }
+        return removed;
+    }
+
+    /**
+     * Ссылки на blobs/ постранично (keyset по object_key)
+     */
+    private final class BlobRefIterator implements Iterator<StorageNodeRepository.BlobRef> {
+
+        private final Instant staleBefore;
+        private Iterator<StorageNodeRepository.BlobRef> page = List.<StorageNodeRepository.BlobRef>of().iterator();
+        private String after = "";
+        private boolean exhausted;
+
+        private BlobRefIterator(Instant staleBefore) {
+            this.staleBefore = staleBefore;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!page.hasNext() && !exhausted) {
+                List<StorageNodeRepository.BlobRef> refs =
+                        nodeRepository.findBlobRefsAfter(BLOB_PREFIX, after, staleBefore, PAGE_SIZE);
+                exhausted = refs.size() < PAGE_SIZE;
+                if (!refs.isEmpty()) {
+                    after = refs.get(refs.size() - 1).getObjectKey();
+                }
+                page = refs.iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public StorageNodeRepository.BlobRef next() {
+            hasNext();
+            return page.next();
+        }
+    }
+
+    /**
+     * Итог сверки
+     */
+    @Getter
+    public static class Report {
+
+        private int importedUsers;
+        private long importedObjects;
+        private long orphanedBlobs;
+        private long danglingNodes;
+    }
+}
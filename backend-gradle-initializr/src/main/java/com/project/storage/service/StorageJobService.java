@@ -0,0 +1,145 @@
+package com.project.storage.service;
+
+import com.project.config.StorageProperties;
+import com.project.exception.StorageException;
+import com.project.storage.dto.StorageJobInfo;
+import com.project.storage.model.StorageJob;
+import com.project.storage.util.StorageOperation;
+import com.project.storage.util.StorageJobStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фоновые задачи над ресурсами: удаление больших папок выполняется вне
+ * потока запроса, клиент получает id задачи и опрашивает её статус.
+ *
+ * У задач свой пул, а не StorageTaskRunner: задача сама раздаёт пакеты
+ * удаления в StorageTaskRunner и не должна занимать его потоки ожиданием.
+ * Статус хранится в Redis; задачи, прерванные рестартом приложения,
+ * остаются в статусе RUNNING до истечения jobs.ttl — повторный DELETE
+ * доудаляет оставшееся.
+ */
+@Service
+public class StorageJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageJobService.class);
+
+    private final MinioServiceAdapter minioServiceAdapter;
+    private final StorageJobStore jobStore;
+    private final ExecutorService executor;
+
+    // Активные задачи этого экземпляра: повторный DELETE той же папки не запускает вторую задачу
+    private final Map<String, String> activeJobs = new ConcurrentHashMap<>();
+
+    public StorageJobService(
+            MinioServiceAdapter minioServiceAdapter,
+            StorageJobStore jobStore,
+            StorageProperties storageProperties) {
+        this.minioServiceAdapter = minioServiceAdapter;
+        this.jobStore = jobStore;
+
+        int threads = Math.max(1, storageProperties.getJobs().getThreads());
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "storage-jobs-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запуск фонового удаления папки
+     */
+    public StorageJobInfo startFolderDelete(Long userId, String relativePath) {
+        String activeKey = userId + ":" + relativePath;
+        String jobId = UUID.randomUUID().toString();
+
+        String existingJobId = activeJobs.putIfAbsent(activeKey, jobId);
+        if (existingJobId != null) {
+            logger.info("Folder delete for user {} path {} is already running as job {}",
+                    userId, relativePath, existingJobId);
+            return getJob(userId, existingJobId);
+        }
+
+        StorageJob job = StorageJob.builder()
+                .jobId(jobId)
+                .userId(userId)
+                .type(StorageJob.Type.DELETE)
+                .path(relativePath)
+                .status(StorageJob.Status.PENDING)
+                .createdAt(Instant.now())
+                .build();
+
+        try {
+            jobStore.save(job);
+            executor.execute(StorageOperation.wrap(() -> runFolderDelete(job, activeKey)));
+        } catch (RuntimeException e) {
+            activeJobs.remove(activeKey, jobId);
+            throw e;
+        }
+
+        logger.info("Started folder delete job {} for user {} path {}", jobId, userId, relativePath);
+        return toInfo(job);
+    }
+
+    /**
+     * Статус задачи. Чужая задача неотличима от несуществующей
+     */
+    public StorageJobInfo getJob(Long userId, String jobId) {
+        return jobStore.find(jobId)
+                .filter(job -> job.getUserId().equals(userId))
+                .map(this::toInfo)
+                .orElseThrow(() -> new StorageException.ResourceNotFoundException(
+                        "Задача не найдена: " + jobId,
+                        userId,
+                        jobId,
+                        "getJob"
+                ));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void runFolderDelete(StorageJob job, String activeKey) {
+        long started = System.nanoTime();
+        try {
+            jobStore.markRunning(job.getJobId());
+            minioServiceAdapter.deleteObject(job.getUserId(), job.getPath(),
+                    deleted -> jobStore.addProcessed(job.getJobId(), deleted));
+            jobStore.markCompleted(job.getJobId());
+
+            logger.info("Folder delete job {} completed in {} ms",
+                    job.getJobId(), (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Folder delete job {} failed: {}", job.getJobId(), e.getMessage(), e);
+            jobStore.markFailed(job.getJobId(), e.getMessage());
+        } finally {
+            activeJobs.remove(activeKey, job.getJobId());
+        }
+    }
+
+    private StorageJobInfo toInfo(StorageJob job) {
+        return StorageJobInfo.builder()
+                .jobId(job.getJobId())
+                .type(job.getType().name())
+                .path(job.getPath())
+                .status(job.getStatus().name())
+                .processed(job.getProcessed())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+}
@@ -1,7 +1,12 @@
 package com.project.storage.service;
 
+import com.project.storage.dto.DirectoryPage;
 import com.project.storage.dto.ResourceInfo;
+import com.project.storage.dto.StorageJobInfo;
 import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.Iterator;
 import java.util.List;
 
 public interface StorageService {
@@ -19,9 +24,10 @@ public interface StorageService {
     ResourceInfo getResourceInfo(Long userId, String path);
 
     /**
-     * Удаление ресурса
+     * Удаление ресурса. Большая папка удаляется фоновой задачей — тогда
+     * возвращается её статус, иначе null (ресурс уже удалён)
      */
-    void deleteResource(Long userId, String path);
+    StorageJobInfo deleteResource(Long userId, String path);
 
     /**
      * Переименование/перемещение ресурса
@@ -29,17 +35,41 @@ public interface StorageService {
     ResourceInfo moveResource(Long userId, String fromPath, String toPath);
 
     /**
-     * Поиск ресурсов по имени
+     * Поиск ресурсов по имени: limit результатов после первых offset
+     * (limit = null — максимум из app.storage.search.max-results)
+     */
+    List<ResourceInfo> searchResources(Long userId, String query, int offset, Integer limit);
+
+    /**
+     * То же, что searchResources, но результаты читаются из хранилища по мере
+     * обхода, без списка в памяти. Параметры проверяются сразу
      */
-    List<ResourceInfo> searchResources(Long userId, String query);
+    Iterator<ResourceInfo> iterateSearchResults(Long userId, String query, int offset, Integer limit);
 
     /**
      * Загрузка файлов
      */
     List<ResourceInfo> uploadFiles(Long userId, String destinationPath, MultipartFile[] files);
 
+    /**
+     * Потоковая загрузка одного файла (size = -1, если размер неизвестен)
+     */
+    ResourceInfo uploadStream(Long userId, String path, InputStream content, long size, String contentType);
+
     /**
      * Получение содержимого папки
      */
     List<ResourceInfo> getDirectoryContents(Long userId, String path);
+
+    /**
+     * То же, что getDirectoryContents, но элементы читаются из хранилища по
+     * мере обхода. Путь и существование папки проверяются сразу
+     */
+    Iterator<ResourceInfo> iterateDirectoryContents(Long userId, String path);
+
+    /**
+     * Получение страницы содержимого папки: cursor = null — первая страница,
+     * limit = null — app.storage.listing.page-size, sort = null — по имени
+     */
+    DirectoryPage getDirectoryPage(Long userId, String path, String cursor, Integer limit, String sort);
 }
@@ -0,0 +1,81 @@
+package com.project.storage.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Учёт инвалидаций кэшей хранилища без обхода самих кэшей.
+ *
+ * Счётчик записей у каждого пользователя свой (первый сегмент ключа —
+ * user-{id}-files/): значение, во время чтения которого у пользователя
+ * что-то изменилось, в кэш не кладётся, а запись одного пользователя не
+ * мешает кэшу остальных.
+ *
+ * Сброс поддерева запоминает номер сброса для его префикса. Запись кэша
+ * помечается номером на момент чтения и считается промахом, если после него
+ * сбрасывалась одна из её папок-предков. Номера живут не дольше записей
+ * кэша (lifetime), поэтому их столько же, сколько недавних сбросов.
+ */
+final class CacheGenerations {
+
+    private final ConcurrentHashMap<String, AtomicLong> writes = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Cache<String, Long> trees;
+
+    CacheGenerations(Duration lifetime) {
+        this.trees = Caffeine.newBuilder()
+                .expireAfterWrite(lifetime)
+                .build();
+    }
+
+    /**
+     * Снимок до чтения значения из источника
+     */
+    Stamp stamp(String key) {
+        return new Stamp(writes(key).get(), sequence.get());
+    }
+
+    /**
+     * У пользователя ключа не было инвалидаций с момента stamp
+     */
+    boolean unchanged(String key, Stamp stamp) {
+        return writes(key).get() == stamp.writes();
+    }
+
+    /**
+     * Ни одна папка-предок ключа (и он сам) не сбрасывалась после прочтения
+     * записи с пометкой sequence
+     */
+    boolean current(String key, long sequence) {
+        for (int slash = key.indexOf('/'); slash >= 0; slash = key.indexOf('/', slash + 1)) {
+            Long reset = trees.getIfPresent(key.substring(0, slash + 1));
+            if (reset != null && reset > sequence) {
+                return false;
+            }
+        }
+        Long reset = trees.getIfPresent(key);
+        return reset == null || reset <= sequence;
+    }
+
+    void keyChanged(String key) {
+        writes(key).incrementAndGet();
+    }
+
+    void treeChanged(String prefix) {
+        writes(prefix).incrementAndGet();
+        trees.asMap().merge(prefix, sequence.incrementAndGet(), Math::max);
+    }
+
+    private AtomicLong writes(String key) {
+        int slash = key.indexOf('/');
+        String root = slash >= 0 ? key.substring(0, slash + 1) : key;
+        return writes.computeIfAbsent(root, ignored -> new AtomicLong());
+    }
+
+    record Stamp(long writes, long sequence) {
+    }
+}
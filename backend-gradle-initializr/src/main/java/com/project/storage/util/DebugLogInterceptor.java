@@ -0,0 +1,78 @@
+package com.project.storage.util;
+
+import com.project.config.StorageProperties;
+import com.project.entity.User;
+import io.micrometer.context.ContextRegistry;
+import io.micrometer.context.integration.Slf4jThreadLocalAccessor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Включает подробные логи для одного запроса: пользователь из
+ * app.storage.debug-log.user-ids, заголовок X-Debug-Log с секретным значением
+ * или случайная выборка с долей sample-rate. Отметка кладётся в MDC
+ * (DEBUG_KEY); DebugLogTurboFilter пропускает по ней DEBUG/TRACE, остальные
+ * запросы пишутся с уровнем из конфигурации. Пулы приложения переносят
+ * отметку вместе с контекстом трассировки (StorageOperation.wrap).
+ */
+public class DebugLogInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String DEBUG_KEY = "debugLog";
+
+    public static final String HEADER = "X-Debug-Log";
+
+    static {
+        ContextRegistry.getInstance().registerThreadLocalAccessor(new Slf4jThreadLocalAccessor(DEBUG_KEY));
+    }
+
+    private final StorageProperties.DebugLog properties;
+
+    public DebugLogInterceptor(StorageProperties storageProperties) {
+        this.properties = storageProperties.getDebugLog();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (isDebugRequested(request)) {
+            MDC.put(DEBUG_KEY, "true");
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        MDC.remove(DEBUG_KEY);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        MDC.remove(DEBUG_KEY);
+    }
+
+    private boolean isDebugRequested(HttpServletRequest request) {
+        if (!properties.getUserIds().isEmpty()
+                && request.getUserPrincipal() instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof User user
+                && properties.getUserIds().contains(user.getId())) {
+            return true;
+        }
+
+        String token = properties.getHeaderToken();
+        String header = request.getHeader(HEADER);
+        if (token != null && !token.isEmpty() && header != null
+                && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), header.getBytes(StandardCharsets.UTF_8))) {
+            return true;
+        }
+
+        return properties.getSampleRate() > 0 && ThreadLocalRandom.current().nextDouble() < properties.getSampleRate();
+    }
+}
@@ -0,0 +1,28 @@
+package com.project.storage.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Пропускает DEBUG/TRACE логгеров com.project.* в запросах, отмеченных
+ * DebugLogInterceptor, независимо от уровня логгера. Подключается в
+ * logback-spring.xml. Для INFO и выше решение не меняет и MDC не читает —
+ * на обычных запросах фильтр стоит одно сравнение уровня.
+ */
+public class DebugLogTurboFilter extends TurboFilter {
+
+    private static final String PACKAGE = "com.project.";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                              Throwable t) {
+        if (level.isGreaterOrEqual(Level.INFO) || !logger.getName().startsWith(PACKAGE)) {
+            return FilterReply.NEUTRAL;
+        }
+        return "true".equals(MDC.get(DebugLogInterceptor.DEBUG_KEY)) ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+    }
+}
@@ -0,0 +1,198 @@
+package com.project.storage.util;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.minio.ComposeObjectArgs;
+import io.minio.CopyObjectArgs;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.Item;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+
+/**
+ * MinioClient, который оборачивает запросы к MinIO в наблюдения Micrometer
+ * storage.minio.requests: таймер с тегами api (statObject, listObjects, ...),
+ * operation (эндпоинт, см. StorageOperation) и outcome (success | error) и
+ * span «minio.api» внутри span'а вызвавшего слоя, с атрибутами object
+ * (ключ) и bytes (размер для putObject и statObject).
+ *
+ * listObjects и removeObjects в клиенте ленивые: запрос уходит при первом
+ * hasNext() результата, тогда же он и учитывается — по времени получения
+ * первой страницы. Ошибки этих методов приходят внутри Result, поэтому
+ * outcome у них отражает только сбой самого запроса. Для getObject время —
+ * до получения заголовков ответа, без чтения тела.
+ */
+public class InstrumentedMinioClient extends MinioClient {
+
+    public static final String METRIC = "storage.minio.requests";
+
+    private final ObservationRegistry observationRegistry;
+
+    public InstrumentedMinioClient(MinioClient client, ObservationRegistry observationRegistry) {
+        super(client);
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public StatObjectResponse statObject(StatObjectArgs args)
+            throws ErrorResponseException, InsufficientDataException, InternalException, InvalidKeyException,
+            InvalidResponseException, IOException, NoSuchAlgorithmException, ServerException, XmlParserException {
+        Observation observation = observation("statObject", args.object());
+        return record(observation, () -> {
+            StatObjectResponse response = super.statObject(args);
+            observation.highCardinalityKeyValue("bytes", String.valueOf(response.size()));
+            return response;
+        });
+    }
+
+    @Override
+    public GetObjectResponse getObject(GetObjectArgs args)
+            throws ErrorResponseException, InsufficientDataException, InternalException, InvalidKeyException,
+            InvalidResponseException, IOException, NoSuchAlgorithmException, ServerException, XmlParserException {
+        return record(observation("getObject", args.object()), () -> super.getObject(args));
+    }
+
+    @Override
+    public ObjectWriteResponse putObject(PutObjectArgs args)
+            throws ErrorResponseException, InsufficientDataException, InternalException, InvalidKeyException,
+            InvalidResponseException, IOException, NoSuchAlgorithmException, ServerException, XmlParserException {
+        Observation observation = observation("putObject", args.object());
+        if (args.objectSize() >= 0) {
+            observation.highCardinalityKeyValue("bytes", String.valueOf(args.objectSize()));
+        }
+        return record(observation, () -> super.putObject(args));
+    }
+
+    @Override
+    public ObjectWriteResponse copyObject(CopyObjectArgs args)
+            throws ErrorResponseException, InsufficientDataException, InternalException, InvalidKeyException,
+            InvalidResponseException, IOException, NoSuchAlgorithmException, ServerException, XmlParserException {
+        return record(observation("copyObject", args.object()), () -> super.copyObject(args));
+    }
+
+    @Override
+    public ObjectWriteResponse composeObject(ComposeObjectArgs args)
+            throws ErrorResponseException, InsufficientDataException, InternalException, InvalidKeyException,
+            InvalidResponseException, IOException, NoSuchAlgorithmException, ServerException, XmlParserException {
+        return record(observation("composeObject", args.object()), () -> super.composeObject(args));
+    }
+
+    @Override
+    public void removeObject(RemoveObjectArgs args)
+            throws ErrorResponseException, InsufficientDataException, InternalException, InvalidKeyException,
+            InvalidResponseException, IOException, NoSuchAlgorithmException, ServerException, XmlParserException {
+        record(observation("removeObject", args.object()), () -> {
+            super.removeObject(args);
+            return null;
+        });
+    }
+
+    @Override
+    public Iterable<Result<Item>> listObjects(ListObjectsArgs args) {
+        return recordLazy(observation("listObjects", args.prefix()), () -> super.listObjects(args));
+    }
+
+    @Override
+    public Iterable<Result<DeleteError>> removeObjects(RemoveObjectsArgs args) {
+        return recordLazy(observation("removeObjects", null), () -> super.removeObjects(args));
+    }
+
+    /**
+     * Наблюдение ещё не запущено: операция и родительский span берутся
+     * при вызове, а не при итерации ленивого результата
+     */
+    private Observation observation(String api, String object) {
+        Observation observation = Observation.createNotStarted(METRIC, observationRegistry)
+                .contextualName("minio." + api)
+                .lowCardinalityKeyValue("api", api)
+                .lowCardinalityKeyValue("operation", StorageOperation.current());
+        if (object != null) {
+            observation.highCardinalityKeyValue("object", object);
+        }
+        observation.parentObservation(observationRegistry.getCurrentObservation());
+        return observation;
+    }
+
+    private <T> T record(Observation observation, MinioCall<T> call)
+            throws ErrorResponseException, InsufficientDataException, InternalException, InvalidKeyException,
+            InvalidResponseException, IOException, NoSuchAlgorithmException, ServerException, XmlParserException {
+        observation.start();
+        boolean success = false;
+        try (Observation.Scope scope = observation.openScope()) {
+            T result = call.call();
+            success = true;
+            return result;
+        } catch (Exception e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            stop(observation, success);
+        }
+    }
+
+    private <T> Iterable<T> recordLazy(Observation observation, Supplier<Iterable<T>> call) {
+        Iterable<T> results = call.get();
+        return () -> new Iterator<T>() {
+
+            private final Iterator<T> iterator = results.iterator();
+            private boolean recorded;
+
+            @Override
+            public boolean hasNext() {
+                if (recorded) {
+                    return iterator.hasNext();
+                }
+                recorded = true;
+                observation.start();
+                boolean success = false;
+                try (Observation.Scope scope = observation.openScope()) {
+                    boolean hasNext = iterator.hasNext();
+                    success = true;
+                    return hasNext;
+                } finally {
+                    stop(observation, success);
+                }
+            }
+
+            @Override
+            public T next() {
+                if (!recorded) {
+                    hasNext();
+                }
+                return iterator.next();
+            }
+        };
+    }
+
+    private static void stop(Observation observation, boolean success) {
+        observation.lowCardinalityKeyValue("outcome", success ? "success" : "error");
+        observation.stop();
+    }
+
+    @FunctionalInterface
+    private interface MinioCall<T> {
+        T call() throws ErrorResponseException, InsufficientDataException, InternalException, InvalidKeyException,
+                InvalidResponseException, IOException, NoSuchAlgorithmException, ServerException, XmlParserException;
+    }
+}
@@ -0,0 +1,290 @@
+package com.project.storage.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.project.config.StorageProperties;
+import com.project.entity.MinioObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Кэш полных листингов папок раскладки path. Ключ — префикс папки
+ * (user-{id}-files/...), так что записи у каждого пользователя свои.
+ *
+ * Первый уровень — Caffeine в памяти экземпляра, размер ограничен суммарным
+ * числом элементов листингов (listing.cache.max-objects). Второй, если
+ * включён listing.cache.redis, — Redis, общий для всех экземпляров.
+ * MinioServiceImpl сбрасывает записи сразу после изменения папки, остальные
+ * экземпляры узнают об этом через pub/sub. TTL страхует от изменений
+ * бакета в обход приложения.
+ */
+@Component
+public class ListingCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingCache.class);
+
+    public static final String INVALIDATION_CHANNEL = "storage:listing:invalidate";
+
+    private static final String KEY_PREFIX = "storage:listing:";
+    private static final String FOLDER = "folder:";
+    private static final String TREE = "tree:";
+
+    private final StorageProperties.Listing.Cache settings;
+    private final StorageMetrics storageMetrics;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Cache<String, Entry> cache;
+
+    // Листинг, во время чтения которого у пользователя что-то изменилось, в
+    // кэш не кладётся — он мог прочитать старое состояние
+    private final CacheGenerations generations;
+
+    /**
+     * redisTemplate = null — только кэш в памяти, без второго уровня и
+     * оповещения других экземпляров
+     */
+    public ListingCache(StorageProperties storageProperties, StorageMetrics storageMetrics,
+                        StringRedisTemplate redisTemplate) {
+        this.settings = storageProperties.getListing().getCache();
+        this.storageMetrics = storageMetrics;
+        this.redisTemplate = redisTemplate;
+        this.generations = new CacheGenerations(settings.getTtl());
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(settings.getMaxObjects())
+                .weigher((String prefix, Entry entry) -> entry.objects().size() + 1)
+                .expireAfterWrite(settings.getTtl())
+                .removalListener((String prefix, Entry entry, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        storageMetrics.recordListingCacheEviction();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Листинг папки из кэша; при промахе — из loader с сохранением в кэш
+     */
+    public List<MinioObject> get(String prefix, Supplier<List<MinioObject>> loader) {
+        if (!settings.isEnabled()) {
+            return loader.get();
+        }
+
+        Entry cached = cache.getIfPresent(prefix);
+        if (cached != null && generations.current(prefix, cached.sequence())) {
+            storageMetrics.recordListingCacheHit();
+            return cached.objects();
+        }
+
+        CacheGenerations.Stamp generation = generations.stamp(prefix);
+        List<MinioObject> shared = readShared(prefix);
+        if (shared != null) {
+            storageMetrics.recordListingCacheRedisHit();
+            putIfUnchanged(prefix, shared, generation);
+            return shared;
+        }
+
+        storageMetrics.recordListingCacheMiss();
+        List<MinioObject> loaded = loader.get();
+        if (loaded.size() <= settings.getMaxListingSize()) {
+            List<MinioObject> stored = List.copyOf(loaded);
+            if (putIfUnchanged(prefix, stored, generation)) {
+                writeShared(prefix, stored);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Сброс листинга одной папки (в ней появился, пропал или изменился элемент)
+     */
+    public void invalidateFolder(String prefix) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        evictLocal(prefix, false);
+        deleteShared(prefix, false);
+        publish(FOLDER + prefix);
+    }
+
+    /**
+     * Сброс листингов папки и всех вложенных (папка удалена или переименована)
+     */
+    public void invalidateTree(String prefix) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        evictLocal(prefix, true);
+        deleteShared(prefix, true);
+        publish(TREE + prefix);
+    }
+
+    /**
+     * Инвалидация, пришедшая от другого экземпляра
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(TREE)) {
+            evictLocal(body.substring(TREE.length()), true);
+        } else if (body.startsWith(FOLDER)) {
+            evictLocal(body.substring(FOLDER.length()), false);
+        }
+    }
+
+    private boolean putIfUnchanged(String prefix, List<MinioObject> objects, CacheGenerations.Stamp generation) {
+        if (!generations.unchanged(prefix, generation)) {
+            return false;
+        }
+        cache.put(prefix, new Entry(generation.sequence(), objects));
+        // Инвалидация могла пройти между проверкой и записью
+        if (!generations.unchanged(prefix, generation)) {
+            cache.invalidate(prefix);
+            return false;
+        }
+        return true;
+    }
+
+    private void evictLocal(String prefix, boolean tree) {
+        if (tree) {
+            // Вложенные листинги устаревают по номеру сброса, без обхода кэша
+            generations.treeChanged(prefix);
+        } else {
+            generations.keyChanged(prefix);
+        }
+        cache.invalidate(prefix);
+    }
+
+    // ============= ВТОРОЙ УРОВЕНЬ (REDIS) =============
+
+    private boolean sharedEnabled() {
+        return settings.isRedis() && redisTemplate != null;
+    }
+
+    private List<MinioObject> readShared(String prefix) {
+        if (!sharedEnabled()) {
+            return null;
+        }
+        try {
+            String json = redisTemplate.opsForValue().get(KEY_PREFIX + prefix);
+            if (json == null) {
+                return null;
+            }
+            List<CachedObject> entries = objectMapper.readValue(json, new TypeReference<List<CachedObject>>() {
+            });
+            List<MinioObject> objects = new ArrayList<>(entries.size());
+            for (CachedObject entry : entries) {
+                objects.add(entry.toMinioObject());
+            }
+            return List.copyOf(objects);
+        } catch (Exception e) {
+            logger.warn("Failed to read cached listing of {} from Redis: {}", prefix, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeShared(String prefix, List<MinioObject> objects) {
+        if (!sharedEnabled()) {
+            return;
+        }
+        try {
+            List<CachedObject> entries = new ArrayList<>(objects.size());
+            for (MinioObject object : objects) {
+                entries.add(CachedObject.of(object));
+            }
+            redisTemplate.opsForValue().set(KEY_PREFIX + prefix, objectMapper.writeValueAsString(entries),
+                    settings.getRedisTtl());
+        } catch (Exception e) {
+            logger.warn("Failed to write cached listing of {} to Redis: {}", prefix, e.getMessage());
+        }
+    }
+
+    private void deleteShared(String prefix, boolean tree) {
+        if (!sharedEnabled()) {
+            return;
+        }
+        try {
+            if (!tree) {
+                redisTemplate.delete(KEY_PREFIX + prefix);
+                return;
+            }
+            ScanOptions options = ScanOptions.scanOptions()
+                    .match(escapeGlob(KEY_PREFIX + prefix) + "*")
+                    .count(1000)
+                    .build();
+            List<String> keys = new ArrayList<>();
+            try (Cursor<String> cursor = redisTemplate.scan(options)) {
+                cursor.forEachRemaining(keys::add);
+            }
+            if (!keys.isEmpty()) {
+                redisTemplate.delete(keys);
+            }
+        } catch (Exception e) {
+            // Запись доживёт до listing.cache.redis-ttl
+            logger.warn("Failed to drop cached listings of {} in Redis: {}", prefix, e.getMessage());
+        }
+    }
+
+    private void publish(String message) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+        } catch (Exception e) {
+            // Другие экземпляры увидят изменение не позже listing.cache.ttl
+            logger.warn("Failed to publish listing invalidation {}: {}", message, e.getMessage());
+        }
+    }
+
+    private static String escapeGlob(String value) {
+        return value.replaceAll("([\\\\*?\\[\\]])", "\\\\$1");
+    }
+
+    /**
+     * Листинг в памяти с номером последнего сброса поддеревьев на момент чтения
+     */
+    private record Entry(long sequence, List<MinioObject> objects) {
+    }
+
+    /**
+     * Элемент листинга в Redis; время — в миллисекундах, чтобы не зависеть
+     * от модуля Jackson для java.time
+     */
+    private record CachedObject(String name, String path, Long size, boolean directory, Long lastModified,
+                                String etag, String contentType, String objectKey) {
+
+        static CachedObject of(MinioObject object) {
+            return new CachedObject(object.getName(), object.getPath(), object.getSize(), object.isDirectory(),
+                    object.getLastModified() != null ? object.getLastModified().toEpochMilli() : null,
+                    object.getEtag(), object.getContentType(), object.getObjectKey());
+        }
+
+        MinioObject toMinioObject() {
+            return MinioObject.builder()
+                    .name(name)
+                    .path(path)
+                    .size(size)
+                    .isDirectory(directory)
+                    .lastModified(lastModified != null ? Instant.ofEpochMilli(lastModified) : null)
+                    .etag(etag)
+                    .contentType(contentType)
+                    .objectKey(objectKey)
+                    .build();
+        }
+    }
+}
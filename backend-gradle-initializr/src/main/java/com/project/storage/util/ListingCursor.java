@@ -0,0 +1,49 @@
+package com.project.storage.util;
+
+import com.project.storage.model.ListingSort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Курсор постраничного листинга: позиция последнего отданного элемента в
+ * выбранном порядке, закодированная в непрозрачную для клиента строку.
+ * Курсор привязан к порядку — с другим sort он не принимается.
+ */
+public final class ListingCursor {
+
+    private static final String VERSION = "1";
+    private static final char SEPARATOR = '\n';
+
+    private ListingCursor() {
+    }
+
+    public static String encode(ListingSort sort, String... position) {
+        StringBuilder raw = new StringBuilder(VERSION).append(SEPARATOR).append(sort.name());
+        for (String part : position) {
+            raw.append(SEPARATOR).append(part);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Части позиции курсора; IllegalArgumentException, если курсор повреждён
+     * или выдан для другого порядка
+     */
+    public static String[] decode(String cursor, ListingSort sort, int parts) {
+        String[] fields;
+        try {
+            fields = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(String.valueOf(SEPARATOR), -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        if (fields.length != parts + 2 || !VERSION.equals(fields[0]) || !sort.name().equals(fields[1])) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return Arrays.copyOfRange(fields, 2, fields.length);
+    }
+}
@@ -0,0 +1,165 @@
+package com.project.storage.util;
+
+import com.project.config.StorageProperties;
+import com.project.repository.MoveJournalRepository;
+import com.project.storage.model.MoveJournalEntry;
+import com.project.storage.model.MoveJournalEntry.Phase;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Журнал переименований папок в PostgreSQL (таблица move_journal).
+ *
+ * Каждая отметка — отдельная короткая транзакция: запись должна оказаться
+ * в базе до того, как MinIO увидит следующий шаг переименования.
+ */
+@Component
+public class MoveJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoveJournal.class);
+
+    private final MoveJournalRepository repository;
+    private final StorageProperties storageProperties;
+    private final ScheduledExecutorService heartbeats;
+
+    public MoveJournal(MoveJournalRepository repository, StorageProperties storageProperties) {
+        this.repository = repository;
+        this.storageProperties = storageProperties;
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "move-journal-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Регистрирует переименование до первого копирования, возвращает id записи
+     */
+    public long begin(String sourcePrefix, String targetPrefix) {
+        return repository.save(new MoveJournalEntry(sourcePrefix, targetPrefix)).getId();
+    }
+
+    /**
+     * Отметки жизни переименования по таймеру, раз в треть move.journal-lease,
+     * пока результат не закрыт. Контрольные точки ставятся по мере копирования,
+     * а одно серверное копирование крупного объекта может идти дольше lease —
+     * без таймера другой экземпляр забрал бы ещё идущее переименование.
+     */
+    public Heartbeat keepAlive(long id) {
+        long periodMillis = Math.max(1_000, storageProperties.getMove().getJournalLease().toMillis() / 3);
+        ScheduledFuture<?> future = heartbeats.scheduleAtFixedRate(() -> {
+            try {
+                repository.touch(id, List.of(Phase.COPYING, Phase.DELETING), Instant.now());
+            } catch (Exception e) {
+                logger.warn("Failed to send heartbeat for move {}: {}", id, e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+
+    /**
+     * Все ключи до lastCopiedKey включительно (в порядке листинга) скопированы
+     */
+    @Transactional
+    public void checkpoint(long id, String lastCopiedKey, long copiedCount) {
+        repository.findById(id).ifPresent(entry -> {
+            entry.setCheckpointKey(lastCopiedKey);
+            entry.setCopiedCount(copiedCount);
+            entry.setHeartbeatAt(Instant.now());
+        });
+    }
+
+    /**
+     * Копия полная — дальше удаляются исходники, откат больше невозможен
+     */
+    @Transactional
+    public void copyCompleted(long id, long copiedCount) {
+        repository.findById(id).ifPresent(entry -> {
+            entry.setPhase(Phase.DELETING);
+            entry.setCopiedCount(copiedCount);
+            entry.setHeartbeatAt(Instant.now());
+        });
+    }
+
+    @Transactional
+    public void deleted(long id, long deletedCount) {
+        repository.findById(id).ifPresent(entry -> {
+            entry.setDeletedCount(entry.getDeletedCount() + deletedCount);
+            entry.setHeartbeatAt(Instant.now());
+        });
+    }
+
+    @Transactional
+    public void complete(long id) {
+        finish(id, Phase.COMPLETED, null);
+    }
+
+    @Transactional
+    public void rolledBack(long id, String error) {
+        finish(id, Phase.ROLLED_BACK, error);
+    }
+
+    @Transactional
+    public void fail(long id, String error) {
+        finish(id, Phase.FAILED, error);
+    }
+
+    /**
+     * Забирает переименования, отметки которых старше move.journal-lease:
+     * экземпляр, который их вёл, упал. Запись получает свежую отметку и
+     * увеличенный счётчик попыток; если её одновременно забрал другой
+     * экземпляр, @Version не даст сохранить, и запись пропускается.
+     */
+    public List<MoveJournalEntry> claimInterrupted() {
+        StorageProperties.Move move = storageProperties.getMove();
+        Instant staleBefore = Instant.now().minus(move.getJournalLease());
+
+        List<MoveJournalEntry> claimed = new ArrayList<>();
+        for (MoveJournalEntry entry : repository.findByPhaseInAndHeartbeatAtBeforeOrderByCreatedAt(
+                List.of(Phase.COPYING, Phase.DELETING), staleBefore)) {
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setHeartbeatAt(Instant.now());
+            try {
+                claimed.add(repository.save(entry));
+            } catch (OptimisticLockingFailureException e) {
+                logger.debug("Move {} already claimed by another instance", entry.getId());
+            }
+        }
+        return claimed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+    }
+
+    private void finish(long id, Phase phase, String error) {
+        repository.findById(id).ifPresent(entry -> {
+            entry.setPhase(phase);
+            entry.setError(error != null && error.length() > 1024 ? error.substring(0, 1024) : error);
+            entry.setHeartbeatAt(Instant.now());
+        });
+    }
+
+    /**
+     * Остановка отметок жизни (try-with-resources вокруг переименования)
+     */
+    @FunctionalInterface
+    public interface Heartbeat extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
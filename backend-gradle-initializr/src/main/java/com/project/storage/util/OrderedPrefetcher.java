@@ -0,0 +1,196 @@
+package com.project.storage.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Упорядоченная параллельная предзагрузка: пока потребитель обрабатывает
+ * текущий элемент, следующие элементы уже скачиваются в пуле потоков.
+ * Элементы отдаются строго в порядке источника.
+ *
+ * Ограничения: не более {@code parallelism} элементов в окне и не более
+ * {@code budgetBytes} байт предзагруженного содержимого одновременно.
+ * Элементы, которые не проходят {@code prefetchable}, в память не читаются —
+ * потребитель копирует их потоком сам (поле content у них равно null).
+ *
+ * Экземпляр не потокобезопасен: им пользуется один поток-потребитель.
+ */
+public class OrderedPrefetcher<T> implements Iterator<OrderedPrefetcher.Prefetched<T>>, AutoCloseable {
+
+    /**
+     * Загрузка содержимого элемента целиком
+     */
+    @FunctionalInterface
+    public interface Fetcher<T> {
+
+        byte[] fetch(T item) throws Exception;
+    }
+
+    /**
+     * Размер элемента и признак того, что его стоит предзагружать
+     */
+    public interface Sizing<T> {
+
+        long sizeOf(T item);
+
+        boolean prefetchable(T item);
+    }
+
+    private final Iterator<T> source;
+    private final Fetcher<T> fetcher;
+    private final Sizing<T> sizing;
+    private final StorageTaskRunner taskRunner;
+    private final int parallelism;
+    private final long budgetBytes;
+
+    private final Deque<Slot<T>> window = new ArrayDeque<>();
+    private T pending; // элемент из источника, для которого пока не хватило бюджета
+    private long reservedBytes;
+
+    public OrderedPrefetcher(
+            Iterator<T> source,
+            Fetcher<T> fetcher,
+            Sizing<T> sizing,
+            StorageTaskRunner taskRunner,
+            int parallelism,
+            long budgetBytes) {
+        this.source = source;
+        this.fetcher = fetcher;
+        this.sizing = sizing;
+        this.taskRunner = taskRunner;
+        this.parallelism = Math.max(1, parallelism);
+        this.budgetBytes = Math.max(0, budgetBytes);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !window.isEmpty() || pending != null || source.hasNext();
+    }
+
+    /**
+     * Следующий элемент в порядке источника. Блокирует до окончания его
+     * загрузки; ошибки загрузки пробрасываются как UncheckedIOException.
+     */
+    @Override
+    public Prefetched<T> next() {
+        fill();
+        Slot<T> slot = window.pollFirst();
+        if (slot == null) {
+            throw new NoSuchElementException();
+        }
+
+        byte[] content;
+        try {
+            content = slot.future != null ? await(slot.future) : null;
+        } finally {
+            reservedBytes -= slot.reservedBytes;
+        }
+
+        // Освободившийся бюджет сразу отдаём следующим загрузкам,
+        // чтобы они шли параллельно с записью текущего элемента
+        fill();
+        return new Prefetched<>(slot.item, content);
+    }
+
+    /**
+     * Отмена ещё не забранных загрузок
+     */
+    @Override
+    public void close() {
+        for (Slot<T> slot : window) {
+            if (slot.future != null) {
+                slot.future.cancel(true);
+            }
+        }
+        window.clear();
+        reservedBytes = 0;
+    }
+
+    private void fill() {
+        while (window.size() < parallelism) {
+            T item = pending != null ? pending : (source.hasNext() ? source.next() : null);
+            if (item == null) {
+                return;
+            }
+
+            if (!sizing.prefetchable(item)) {
+                pending = null;
+                window.addLast(new Slot<>(item, null, 0));
+                continue;
+            }
+
+            long size = Math.max(0, sizing.sizeOf(item));
+            // Пустое окно принимает элемент всегда, иначе очередь встанет
+            if (!window.isEmpty() && reservedBytes + size > budgetBytes) {
+                pending = item;
+                return;
+            }
+
+            pending = null;
+            reservedBytes += size;
+            Future<byte[]> future = taskRunner.submit(() -> fetcher.fetch(item));
+            window.addLast(new Slot<>(item, future, size));
+        }
+    }
+
+    private byte[] await(Future<byte[]> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Prefetch interrupted"));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            IOException io = cause instanceof IOException ioe
+                    ? ioe
+                    : new IOException("Prefetch failed: " + cause.getMessage(), cause);
+            throw new UncheckedIOException(io);
+        }
+    }
+
+    private static class Slot<T> {
+
+        private final T item;
+        private final Future<byte[]> future; // null — элемент копируется потоком
+        private final long reservedBytes;
+
+        Slot(T item, Future<byte[]> future, long reservedBytes) {
+            this.item = item;
+            this.future = future;
+            this.reservedBytes = reservedBytes;
+        }
+    }
+
+    /**
+     * Элемент с предзагруженным содержимым (или null, если не предзагружался)
+     */
+    public static class Prefetched<T> {
+
+        private final T item;
+        private final byte[] content;
+
+        Prefetched(T item, byte[] content) {
+            this.item = item;
+            this.content = content;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public boolean isPrefetched() {
+            return content != null;
+        }
+    }
+}
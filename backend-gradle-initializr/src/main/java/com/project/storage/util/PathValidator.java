@@ -3,8 +3,8 @@ package com.project.storage.util;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import com.project.storage.model.ResourceType;
 import org.slf4j.Logger;
@@ -97,8 +97,7 @@ public class PathValidator {
 
         // Базовые проверки безопасности пути
         try {
-            Path normalized = Paths.get(path).normalize();
-            String normalizedStr = normalized.toString();
+            String normalizedStr = normalize(path);
 
             // Защита от path traversal (../)
             if (normalizedStr.contains("..")) {
@@ -243,8 +242,7 @@ public class PathValidator {
             return path;
         }
         try {
-            Path normalized = Paths.get(path).normalize();
-            String result = normalized.toString();
+            String result = normalize(path);
 
             // Восстанавливаем завершающий слэш для директорий
             if (path.endsWith("/") && !result.endsWith("/")) {
@@ -255,4 +253,33 @@ public class PathValidator {
             return path;
         }
     }
+
+    /**
+     * То же, что Paths.get(path).normalize(), но над строкой: Paths.get
+     * кодирует путь в кодировке имён файлов JVM и при ASCII-локали не
+     * принимает кириллицу
+     */
+    private static String normalize(String path) {
+        if (path.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("Path contains NUL character");
+        }
+        boolean absolute = path.startsWith("/");
+        Deque<String> segments = new ArrayDeque<>();
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty() || ".".equals(segment)) {
+                continue;
+            }
+            if ("..".equals(segment)) {
+                if (!segments.isEmpty() && !"..".equals(segments.peekLast())) {
+                    segments.removeLast();
+                    continue;
+                }
+                if (absolute) {
+                    continue;
+                }
+            }
+            segments.addLast(segment);
+        }
+        return (absolute ? "/" : "") + String.join("/", segments);
+    }
 }
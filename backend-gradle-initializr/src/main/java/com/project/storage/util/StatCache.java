@@ -0,0 +1,228 @@
+package com.project.storage.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.project.config.StorageProperties;
+import io.minio.StatObjectResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш statObject раскладки path: и найденные объекты, и NoSuchKey.
+ *
+ * Два уровня. Внутри HTTP-запроса результаты запоминаются до конца запроса
+ * (проверки одного ключа при загрузке или переименовании идут в MinIO один
+ * раз). Между запросами — общий кэш в памяти с коротким TTL, отдельным для
+ * отсутствующих ключей. MinioServiceImpl сбрасывает ключи сразу после
+ * записи, остальные экземпляры узнают об этом через pub/sub.
+ */
+@Component
+public class StatCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatCache.class);
+
+    public static final String INVALIDATION_CHANNEL = "storage:stat:invalidate";
+
+    private static final String REQUEST_MEMO = StatCache.class.getName() + ".memo";
+    private static final String KEY = "key:";
+    private static final String TREE = "tree:";
+
+    private final StorageProperties.Stat settings;
+    private final StorageMetrics storageMetrics;
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<String, Entry> cache;
+
+    // Результат, прочитанный до инвалидации у того же пользователя, не
+    // сохраняется и не берётся из памяти запроса: запись могла пройти в
+    // другом потоке (параллельная загрузка) или на другом экземпляре
+    private final CacheGenerations generations;
+
+    /**
+     * redisTemplate = null — без оповещения других экземпляров
+     */
+    public StatCache(StorageProperties storageProperties, StorageMetrics storageMetrics,
+                     StringRedisTemplate redisTemplate) {
+        this.settings = storageProperties.getStat();
+        this.storageMetrics = storageMetrics;
+        this.redisTemplate = redisTemplate;
+        this.generations = new CacheGenerations(
+                settings.getTtl().compareTo(settings.getNegativeTtl()) >= 0 ? settings.getTtl() : settings.getNegativeTtl());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.getMaxEntries())
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return (entry.stat().isPresent() ? settings.getTtl() : settings.getNegativeTtl()).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Результат statObject; Optional.empty() — объекта нет
+     */
+    public Optional<ObjectStat> get(String key, Loader loader) throws Exception {
+        if (!settings.isEnabled()) {
+            return loader.load();
+        }
+
+        CacheGenerations.Stamp generation = generations.stamp(key);
+        Map<String, Memo> memo = requestMemo();
+        if (memo != null) {
+            Memo remembered = memo.get(key);
+            if (remembered != null && generations.unchanged(key, remembered.generation())) {
+                storageMetrics.recordStatCacheHit();
+                return remembered.stat();
+            }
+        }
+
+        Optional<ObjectStat> stat;
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null && generations.current(key, cached.sequence())) {
+            storageMetrics.recordStatCacheHit();
+            stat = cached.stat();
+        } else {
+            storageMetrics.recordStatCacheMiss();
+            stat = loader.load();
+            cache.put(key, new Entry(generation.sequence(), stat));
+            // Инвалидация во время stat — результат мог устареть
+            if (!generations.unchanged(key, generation)) {
+                cache.invalidate(key);
+                return stat;
+            }
+        }
+
+        if (memo != null) {
+            memo.put(key, new Memo(generation, stat));
+        }
+        return stat;
+    }
+
+    /**
+     * Сброс одного ключа (объект создан, изменён или удалён)
+     */
+    public void invalidate(String key) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        evictLocal(key, false);
+        publish(KEY + key);
+    }
+
+    /**
+     * Сброс всех ключей под префиксом папки
+     */
+    public void invalidateTree(String prefix) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        evictLocal(prefix, true);
+        publish(TREE + prefix);
+    }
+
+    /**
+     * Инвалидация, пришедшая от другого экземпляра
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(TREE)) {
+            evictLocal(body.substring(TREE.length()), true);
+        } else if (body.startsWith(KEY)) {
+            evictLocal(body.substring(KEY.length()), false);
+        }
+    }
+
+    private void evictLocal(String key, boolean tree) {
+        if (tree) {
+            // Ключи под префиксом устаревают по номеру сброса, без обхода кэша
+            generations.treeChanged(key);
+        } else {
+            generations.keyChanged(key);
+        }
+        cache.invalidate(key);
+    }
+
+    private void publish(String message) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+        } catch (Exception e) {
+            // Другие экземпляры увидят изменение не позже stat.ttl
+            logger.warn("Failed to publish stat invalidation {}: {}", message, e.getMessage());
+        }
+    }
+
+    /**
+     * Память текущего HTTP-запроса; null вне запроса (фоновые задачи,
+     * потоки StorageTaskRunner)
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Memo> requestMemo() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Map<String, Memo> memo = (Map<String, Memo>) attributes.getAttribute(REQUEST_MEMO, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = new ConcurrentHashMap<>();
+            attributes.setAttribute(REQUEST_MEMO, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return memo;
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        Optional<ObjectStat> load() throws Exception;
+    }
+
+    private record Memo(CacheGenerations.Stamp generation, Optional<ObjectStat> stat) {
+    }
+
+    /**
+     * Результат в общем кэше с номером последнего сброса поддеревьев на момент чтения
+     */
+    private record Entry(long sequence, Optional<ObjectStat> stat) {
+    }
+
+    /**
+     * То, что нужно из ответа statObject
+     */
+    public record ObjectStat(long size, String etag, Instant lastModified, String contentType) {
+
+        public static ObjectStat of(StatObjectResponse response) {
+            return new ObjectStat(
+                    response.size(),
+                    response.etag(),
+                    response.lastModified() != null ? response.lastModified().toInstant() : null,
+                    response.contentType());
+        }
+    }
+}
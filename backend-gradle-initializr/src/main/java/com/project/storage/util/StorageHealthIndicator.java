@@ -0,0 +1,76 @@
+package com.project.storage.util;
+
+import io.minio.BucketExistsArgs;
+import io.minio.MinioClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Состояние зависимостей хранилища (/actuator/health/storage): MinIO
+ * (bucketExists), Redis (PING) и PostgreSQL (SELECT 1), у каждой — время
+ * ответа. DOWN, если хотя бы одна недоступна или бакета нет. Публичный
+ * /api/health берёт отсюда только итоговый статус.
+ */
+@Component("storage")
+public class StorageHealthIndicator implements HealthIndicator {
+
+    @Value("${spring.minio.bucket}")
+    private String bucket;
+    private final MinioClient minioClient;
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    public StorageHealthIndicator(MinioClient minioClient, StringRedisTemplate redisTemplate,
+                                  JdbcTemplate jdbcTemplate) {
+        this.minioClient = minioClient;
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Health health() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        boolean up = probe(details, "minio", () -> {
+            if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build())) {
+                throw new IllegalStateException("Bucket " + bucket + " does not exist");
+            }
+        });
+        up &= probe(details, "redis", () -> redisTemplate.execute((RedisCallback<String>) RedisConnection::ping));
+        up &= probe(details, "postgres", () -> jdbcTemplate.queryForObject("SELECT 1", Integer.class));
+
+        return (up ? Health.up() : Health.down()).withDetails(details).build();
+    }
+
+    private boolean probe(Map<String, Object> details, String name, Probe probe) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long start = System.nanoTime();
+        boolean up;
+        try {
+            probe.run();
+            result.put("status", "UP");
+            up = true;
+        } catch (Exception e) {
+            result.put("status", "DOWN");
+            result.put("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+            up = false;
+        }
+        result.put("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        details.put(name, result);
+        return up;
+    }
+
+    @FunctionalInterface
+    private interface Probe {
+        void run() throws Exception;
+    }
+}
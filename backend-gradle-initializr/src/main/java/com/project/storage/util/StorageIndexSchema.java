@@ -0,0 +1,53 @@
+package com.project.storage.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Индексы storage_nodes, которые Hibernate (ddl-auto: update) создать не
+ * умеет: триграммный GIN-индекс по lower(name) для поиска по подстроке
+ * (StorageNodeRepository.SEARCH_BY_NAME).
+ *
+ * Расширению pg_trgm нужны права на CREATE EXTENSION; если их нет, поиск
+ * работает, но перебором строк пользователя — об этом пишется в лог.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.storage", name = "layout", havingValue = "indexed")
+public class StorageIndexSchema implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageIndexSchema.class);
+
+    public static final List<String> STATEMENTS = List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            // CONCURRENTLY — не блокирует запись, пока индекс строится на уже заполненной таблице
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_storage_nodes_name_trgm "
+                    + "ON storage_nodes USING gin (lower(name) gin_trgm_ops)"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StorageIndexSchema(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (String statement : STATEMENTS) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (Exception e) {
+                logger.warn("Storage index statement failed, name search will scan rows: {} — {}",
+                        statement, e.getMessage());
+                return;
+            }
+        }
+        logger.info("Trigram name index on storage_nodes is in place");
+    }
+}
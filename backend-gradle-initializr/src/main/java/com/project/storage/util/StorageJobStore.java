@@ -0,0 +1,101 @@
+package com.project.storage.util;
+
+import com.project.config.StorageProperties;
+import com.project.storage.model.StorageJob;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Хранилище фоновых задач в Redis (hash на задачу). Прогресс увеличивается
+ * атомарно через HINCRBY, ключ живёт jobs.ttl с момента последнего обновления.
+ */
+@Component
+public class StorageJobStore {
+
+    private static final String KEY_PREFIX = "storage:job:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final StorageProperties storageProperties;
+
+    public StorageJobStore(StringRedisTemplate redisTemplate, StorageProperties storageProperties) {
+        this.redisTemplate = redisTemplate;
+        this.storageProperties = storageProperties;
+    }
+
+    public void save(StorageJob job) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("userId", String.valueOf(job.getUserId()));
+        fields.put("type", job.getType().name());
+        fields.put("path", job.getPath());
+        fields.put("status", job.getStatus().name());
+        fields.put("processed", String.valueOf(job.getProcessed()));
+        fields.put("createdAt", job.getCreatedAt().toString());
+
+        String key = key(job.getJobId());
+        redisTemplate.opsForHash().putAll(key, fields);
+        redisTemplate.expire(key, storageProperties.getJobs().getTtl());
+    }
+
+    public Optional<StorageJob> find(String jobId) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(key(jobId));
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String finishedAt = (String) fields.get("finishedAt");
+        return Optional.of(StorageJob.builder()
+                .jobId(jobId)
+                .userId(Long.valueOf((String) fields.get("userId")))
+                .type(StorageJob.Type.valueOf((String) fields.get("type")))
+                .path((String) fields.get("path"))
+                .status(StorageJob.Status.valueOf((String) fields.get("status")))
+                .processed(Long.parseLong((String) fields.get("processed")))
+                .error((String) fields.get("error"))
+                .createdAt(Instant.parse((String) fields.get("createdAt")))
+                .finishedAt(finishedAt != null ? Instant.parse(finishedAt) : null)
+                .build());
+    }
+
+    public void markRunning(String jobId) {
+        redisTemplate.opsForHash().put(key(jobId), "status", StorageJob.Status.RUNNING.name());
+    }
+
+    /**
+     * Учёт очередной порции обработанных объектов
+     */
+    public void addProcessed(String jobId, long count) {
+        String key = key(jobId);
+        redisTemplate.opsForHash().increment(key, "processed", count);
+        redisTemplate.expire(key, storageProperties.getJobs().getTtl());
+    }
+
+    public void markCompleted(String jobId) {
+        finish(jobId, StorageJob.Status.COMPLETED, null);
+    }
+
+    public void markFailed(String jobId, String error) {
+        finish(jobId, StorageJob.Status.FAILED, error);
+    }
+
+    private void finish(String jobId, StorageJob.Status status, String error) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("status", status.name());
+        fields.put("finishedAt", Instant.now().toString());
+        if (error != null) {
+            fields.put("error", error);
+        }
+
+        String key = key(jobId);
+        redisTemplate.opsForHash().putAll(key, fields);
+        redisTemplate.expire(key, storageProperties.getJobs().getTtl());
+    }
+
+    private String key(String jobId) {
+        return KEY_PREFIX + jobId;
+    }
+}
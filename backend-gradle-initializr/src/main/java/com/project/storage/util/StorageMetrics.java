@@ -0,0 +1,219 @@
+package com.project.storage.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчики работы хранилища с момента запуска приложения.
+ * Отдаются в /api/health и в Micrometer (/actuator/prometheus): Spring Boot
+ * сам вызывает bindTo для бинов MeterBinder.
+ */
+@Component
+public class StorageMetrics implements MeterBinder {
+
+    // Сколько проверок папок в MinIO не понадобилось благодаря дедупликации при загрузке
+    private final AtomicLong folderChecksSaved = new AtomicLong();
+
+    // Кэш листингов папок: попадания в память, в Redis, промахи и вытеснения
+    private final AtomicLong listingCacheHits = new AtomicLong();
+    private final AtomicLong listingCacheRedisHits = new AtomicLong();
+    private final AtomicLong listingCacheMisses = new AtomicLong();
+    private final AtomicLong listingCacheEvictions = new AtomicLong();
+
+    // Кэш statObject: ответы из памяти запроса или общего кэша и обращения к MinIO
+    private final AtomicLong statCacheHits = new AtomicLong();
+    private final AtomicLong statCacheMisses = new AtomicLong();
+
+    // Байты, принятые от клиентов и отданные им (файлы, чанки, ZIP-архивы)
+    private final AtomicLong bytesUploaded = new AtomicLong();
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+
+    // Потоки, которые прямо сейчас идут через приложение
+    private final AtomicLong activeUploads = new AtomicLong();
+    private final AtomicLong activeDownloads = new AtomicLong();
+
+    // Сборка ZIP-архивов: число и суммарное время (для снимка), таймер — после bindTo
+    private final AtomicLong zipArchives = new AtomicLong();
+    private final AtomicLong zipNanos = new AtomicLong();
+    private volatile Timer zipSuccessTimer;
+    private volatile Timer zipErrorTimer;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "storage.folder.checks.saved", "Folder checks skipped by upload deduplication",
+                folderChecksSaved);
+        counter(registry, "storage.listing.cache.hits", "Listing cache hits in memory", listingCacheHits);
+        counter(registry, "storage.listing.cache.redis.hits", "Listing cache hits in Redis", listingCacheRedisHits);
+        counter(registry, "storage.listing.cache.misses", "Listing cache misses", listingCacheMisses);
+        counter(registry, "storage.listing.cache.evictions", "Listing cache evictions", listingCacheEvictions);
+        counter(registry, "storage.stat.cache.hits", "statObject answered from cache", statCacheHits);
+        counter(registry, "storage.stat.cache.misses", "statObject sent to MinIO", statCacheMisses);
+
+        FunctionCounter.builder("storage.bytes", bytesUploaded, AtomicLong::get)
+                .description("Bytes received from and sent to clients")
+                .baseUnit("bytes")
+                .tag("direction", "upload")
+                .register(registry);
+        FunctionCounter.builder("storage.bytes", bytesDownloaded, AtomicLong::get)
+                .description("Bytes received from and sent to clients")
+                .baseUnit("bytes")
+                .tag("direction", "download")
+                .register(registry);
+
+        Gauge.builder("storage.streams.active", activeUploads, AtomicLong::get)
+                .description("Uploads and downloads in progress")
+                .tag("direction", "upload")
+                .register(registry);
+        Gauge.builder("storage.streams.active", activeDownloads, AtomicLong::get)
+                .description("Uploads and downloads in progress")
+                .tag("direction", "download")
+                .register(registry);
+
+        zipSuccessTimer = zipTimer(registry, "success");
+        zipErrorTimer = zipTimer(registry, "error");
+    }
+
+    public void recordFolderChecksSaved(long count) {
+        if (count > 0) {
+            folderChecksSaved.addAndGet(count);
+        }
+    }
+
+    public long getFolderChecksSaved() {
+        return folderChecksSaved.get();
+    }
+
+    public void recordListingCacheHit() {
+        listingCacheHits.incrementAndGet();
+    }
+
+    public void recordListingCacheRedisHit() {
+        listingCacheRedisHits.incrementAndGet();
+    }
+
+    public void recordListingCacheMiss() {
+        listingCacheMisses.incrementAndGet();
+    }
+
+    public void recordListingCacheEviction() {
+        listingCacheEvictions.incrementAndGet();
+    }
+
+    public void recordStatCacheHit() {
+        statCacheHits.incrementAndGet();
+    }
+
+    public void recordStatCacheMiss() {
+        statCacheMisses.incrementAndGet();
+    }
+
+    public long getStatCacheMisses() {
+        return statCacheMisses.get();
+    }
+
+    public void recordBytesUploaded(long bytes) {
+        if (bytes > 0) {
+            bytesUploaded.addAndGet(bytes);
+        }
+    }
+
+    public void recordBytesDownloaded(long bytes) {
+        if (bytes > 0) {
+            bytesDownloaded.addAndGet(bytes);
+        }
+    }
+
+    public void uploadStarted() {
+        activeUploads.incrementAndGet();
+    }
+
+    public void uploadFinished() {
+        activeUploads.decrementAndGet();
+    }
+
+    public void downloadStarted() {
+        activeDownloads.incrementAndGet();
+    }
+
+    public void downloadFinished() {
+        activeDownloads.decrementAndGet();
+    }
+
+    /**
+     * Время сборки ZIP-архива от первой записи до конца (или обрыва) потока
+     */
+    public void recordZipAssembly(long nanos, boolean success) {
+        zipArchives.incrementAndGet();
+        zipNanos.addAndGet(nanos);
+        Timer timer = success ? zipSuccessTimer : zipErrorTimer;
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.get();
+    }
+
+    public long getActiveDownloads() {
+        return activeDownloads.get();
+    }
+
+    public long getListingCacheHits() {
+        return listingCacheHits.get();
+    }
+
+    public long getListingCacheMisses() {
+        return listingCacheMisses.get();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("folderChecksSaved", folderChecksSaved.get());
+
+        Map<String, Object> listingCache = new LinkedHashMap<>();
+        listingCache.put("hits", listingCacheHits.get());
+        listingCache.put("redisHits", listingCacheRedisHits.get());
+        listingCache.put("misses", listingCacheMisses.get());
+        listingCache.put("evictions", listingCacheEvictions.get());
+        snapshot.put("listingCache", listingCache);
+
+        Map<String, Object> statCache = new LinkedHashMap<>();
+        statCache.put("hits", statCacheHits.get());
+        statCache.put("misses", statCacheMisses.get());
+        snapshot.put("statCache", statCache);
+
+        Map<String, Object> transfer = new LinkedHashMap<>();
+        transfer.put("bytesUploaded", bytesUploaded.get());
+        transfer.put("bytesDownloaded", bytesDownloaded.get());
+        transfer.put("activeUploads", activeUploads.get());
+        transfer.put("activeDownloads", activeDownloads.get());
+        transfer.put("zipArchives", zipArchives.get());
+        transfer.put("zipMillis", TimeUnit.NANOSECONDS.toMillis(zipNanos.get()));
+        snapshot.put("transfer", transfer);
+        return snapshot;
+    }
+
+    private static void counter(MeterRegistry registry, String name, String description, AtomicLong value) {
+        FunctionCounter.builder(name, value, AtomicLong::get)
+                .description(description)
+                .register(registry);
+    }
+
+    private static Timer zipTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("storage.zip.assembly")
+                .description("Time to stream a folder as a ZIP archive")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,141 @@
+package com.project.storage.util;
+
+import com.project.storage.service.DownloadService;
+import com.project.storage.service.MinioService;
+import com.project.storage.service.MinioServiceAdapter;
+import com.project.storage.service.StorageService;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Наблюдение storage.service.requests на каждом методе слоёв хранилища:
+ * StorageService, DownloadService, MinioServiceAdapter и MinioService.
+ * Из наблюдения получаются таймер (теги service, method, outcome) и span
+ * «Слой.метод», вложенный в span HTTP-запроса; внутри него — span запросов
+ * к MinIO (InstrumentedMinioClient). У span'ов есть атрибуты user.id,
+ * path.depth, object.count и bytes — по именам параметров (сборка идёт с
+ * -parameters) и по результату.
+ *
+ * Бины оборачиваются прокси по классу: @Scheduled-методы и внедрение по
+ * классу продолжают работать. Вызовы внутри одного бина в обход прокси
+ * отдельных span'ов не дают.
+ */
+@Component
+public class StorageObservationPostProcessor implements BeanPostProcessor {
+
+    public static final String METRIC = "storage.service.requests";
+
+    private static final List<Class<?>> LAYERS = List.of(
+            StorageService.class, DownloadService.class, MinioServiceAdapter.class, MinioService.class);
+
+    // Пост-процессор создаётся раньше остальных бинов — реестр берётся при первом вызове
+    private final ObjectProvider<ObservationRegistry> observationRegistry;
+
+    public StorageObservationPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> layer = LAYERS.stream()
+                .filter(type -> type.isInstance(bean))
+                .findFirst()
+                .orElse(null);
+        if (layer == null) {
+            return bean;
+        }
+
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> observe(layer, invocation));
+        return proxyFactory.getProxy();
+    }
+
+    private Object observe(Class<?> layer, MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        ObservationRegistry registry = observationRegistry.getIfAvailable();
+        // Только методы самого слоя: служебные (@Scheduled, Object) не наблюдаются
+        if (registry == null || method.getDeclaringClass() == Object.class
+                || !ClassUtils.hasMethod(layer, method.getName(), method.getParameterTypes())) {
+            return invocation.proceed();
+        }
+
+        String service = layer.getSimpleName();
+        Observation observation = Observation.createNotStarted(METRIC, registry)
+                .contextualName(service + "." + method.getName())
+                .lowCardinalityKeyValue("service", service)
+                .lowCardinalityKeyValue("method", method.getName());
+        describeArguments(observation, method.getParameters(), invocation.getArguments());
+
+        observation.start();
+        try (Observation.Scope scope = observation.openScope()) {
+            Object result = invocation.proceed();
+            if (result instanceof Collection<?> collection) {
+                observation.highCardinalityKeyValue("object.count", String.valueOf(collection.size()));
+            }
+            observation.lowCardinalityKeyValue("outcome", "success");
+            return result;
+        } catch (Throwable e) {
+            observation.lowCardinalityKeyValue("outcome", "error");
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    private static void describeArguments(Observation observation, Parameter[] parameters, Object[] arguments) {
+        boolean pathSeen = false;
+        for (int i = 0; i < parameters.length && i < arguments.length; i++) {
+            String name = parameters[i].getName();
+            Object argument = arguments[i];
+            if (argument == null) {
+                continue;
+            }
+
+            if ("userId".equals(name)) {
+                observation.highCardinalityKeyValue("user.id", argument.toString());
+            } else if (!pathSeen && argument instanceof String path && name.toLowerCase().contains("path")) {
+                // Первый путь операции (для перемещения — исходный)
+                observation.highCardinalityKeyValue("path.depth", String.valueOf(pathDepth(path)));
+                pathSeen = true;
+            } else if (argument instanceof Long bytes && ("size".equals(name) || "contentLength".equals(name))) {
+                if (bytes >= 0) {
+                    observation.highCardinalityKeyValue("bytes", bytes.toString());
+                }
+            } else if (argument instanceof MultipartFile[] files) {
+                long bytes = 0;
+                for (MultipartFile file : files) {
+                    bytes += file.getSize();
+                }
+                observation.highCardinalityKeyValue("object.count", String.valueOf(files.length));
+                observation.highCardinalityKeyValue("bytes", String.valueOf(bytes));
+            } else if (argument instanceof Collection<?> collection) {
+                observation.highCardinalityKeyValue("object.count", String.valueOf(collection.size()));
+            }
+        }
+    }
+
+    private static int pathDepth(String path) {
+        int depth = 0;
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,90 @@
+package com.project.storage.util;
+
+import io.micrometer.context.ContextSnapshotFactory;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Операция, ради которой идут обращения к хранилищу: метод контроллера
+ * (например, ResourceController.getDirectory) или NONE вне HTTP-запроса
+ * (плановые задачи). Хранится в ThreadLocal текущего потока; пулы приложения
+ * переносят её в свои потоки через wrap(...), так что обращения к MinIO из
+ * фоновых задач и потоковой отдачи учитываются за исходным эндпоинтом.
+ * Вместе с операцией переносится и контекст трассировки (текущее наблюдение
+ * Micrometer), чтобы span'ы из пула оставались в трассе запроса.
+ */
+public final class StorageOperation {
+
+    public static final String NONE = "none";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private static final ContextSnapshotFactory CONTEXT = ContextSnapshotFactory.builder().build();
+
+    private StorageOperation() {
+    }
+
+    public static String current() {
+        String operation = CURRENT.get();
+        return operation != null ? operation : NONE;
+    }
+
+    public static void set(String operation) {
+        CURRENT.set(operation);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Задача, которая выполнится с операцией и контекстом трассировки текущего потока
+     */
+    public static Runnable wrap(Runnable task) {
+        return CONTEXT.captureAll().wrap(withOperation(task));
+    }
+
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        return CONTEXT.captureAll().wrap(withOperation(task));
+    }
+
+    private static Runnable withOperation(Runnable task) {
+        String operation = CURRENT.get();
+        if (operation == null) {
+            return task;
+        }
+        return () -> {
+            String previous = CURRENT.get();
+            CURRENT.set(operation);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static <T> Callable<T> withOperation(Callable<T> task) {
+        String operation = CURRENT.get();
+        if (operation == null) {
+            return task;
+        }
+        return () -> {
+            String previous = CURRENT.get();
+            CURRENT.set(operation);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
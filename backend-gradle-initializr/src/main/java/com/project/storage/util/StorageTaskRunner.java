@@ -0,0 +1,166 @@
+package com.project.storage.util;
+
+import com.project.config.StorageProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Общий пул потоков для параллельных запросов к MinIO.
+ *
+ * Пул намеренно не публикуется как бин типа Executor, чтобы не подменять
+ * applicationTaskExecutor, на котором работают async-ответы Spring MVC.
+ * Ограничение параллелизма на один запрос задаётся вызывающим кодом.
+ */
+@Component
+public class StorageTaskRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageTaskRunner.class);
+
+    private final ThreadPoolExecutor executor;
+
+    public StorageTaskRunner(StorageProperties storageProperties) {
+        int threads = Math.max(1, storageProperties.getIoThreads());
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NamedThreadFactory("storage-io-")
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+        logger.info("Storage IO pool initialized with {} threads", threads);
+    }
+
+    /**
+     * Запуск задачи в пуле (с операцией вызывающего потока, см. StorageOperation)
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(StorageOperation.wrap(task));
+    }
+
+    /**
+     * Выполнение задачи для каждого элемента, не более concurrency задач
+     * одновременно. Результаты возвращаются в порядке элементов; ошибка одной
+     * задачи не отменяет остальные. Нельзя вызывать из потоков самого пула.
+     */
+    public <T, R> List<Outcome<R>> runAll(List<T> items, int concurrency, Task<T, R> task) {
+        Semaphore permits = new Semaphore(Math.max(1, concurrency));
+        List<Future<R>> futures = new ArrayList<>(items.size());
+
+        try {
+            for (T item : items) {
+                permits.acquire();
+                try {
+                    futures.add(executor.submit(StorageOperation.wrap(() -> {
+                        try {
+                            return task.run(item);
+                        } finally {
+                            permits.release();
+                        }
+                    })));
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while scheduling storage tasks", e);
+        }
+
+        List<Outcome<R>> outcomes = new ArrayList<>(futures.size());
+        for (Future<R> future : futures) {
+            try {
+                outcomes.add(Outcome.success(future.get()));
+            } catch (ExecutionException e) {
+                outcomes.add(Outcome.failure(e.getCause()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for storage tasks", e);
+            }
+        }
+        return outcomes;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Задача над одним элементом
+     */
+    @FunctionalInterface
+    public interface Task<T, R> {
+
+        R run(T item) throws Exception;
+    }
+
+    /**
+     * Результат задачи: значение либо ошибка
+     */
+    public static class Outcome<R> {
+
+        private final R result;
+        private final Throwable error;
+
+        private Outcome(R result, Throwable error) {
+            this.result = result;
+            this.error = error;
+        }
+
+        static <R> Outcome<R> success(R result) {
+            return new Outcome<>(result, null);
+        }
+
+        static <R> Outcome<R> failure(Throwable error) {
+            return new Outcome<>(null, error);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public R getResult() {
+            return result;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.project.storage.util;
+
+import com.project.config.StorageProperties;
+import com.project.storage.model.UploadSession;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Хранилище сессий возобновляемой загрузки в Redis (hash на сессию).
+ * Ключ живёт session-ttl с момента последнего чанка; истёкшие сессии
+ * считаются брошенными, их чанки удаляет сборщик мусора.
+ */
+@Component
+public class UploadSessionStore {
+
+    private static final String KEY_PREFIX = "upload:session:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final StorageProperties storageProperties;
+
+    public UploadSessionStore(StringRedisTemplate redisTemplate, StorageProperties storageProperties) {
+        this.redisTemplate = redisTemplate;
+        this.storageProperties = storageProperties;
+    }
+
+    public void save(UploadSession session) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("userId", String.valueOf(session.getUserId()));
+        fields.put("path", session.getPath());
+        fields.put("size", String.valueOf(session.getSize()));
+        fields.put("chunkSize", String.valueOf(session.getChunkSize()));
+        fields.put("createdAt", session.getCreatedAt().toString());
+        if (session.getContentType() != null) {
+            fields.put("contentType", session.getContentType());
+        }
+
+        String key = key(session.getUploadId());
+        redisTemplate.opsForHash().putAll(key, fields);
+        redisTemplate.expire(key, storageProperties.getUpload().getSessionTtl());
+    }
+
+    public Optional<UploadSession> find(String uploadId) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(key(uploadId));
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(UploadSession.builder()
+                .uploadId(uploadId)
+                .userId(Long.valueOf((String) fields.get("userId")))
+                .path((String) fields.get("path"))
+                .size(Long.parseLong((String) fields.get("size")))
+                .chunkSize(Long.parseLong((String) fields.get("chunkSize")))
+                .contentType((String) fields.get("contentType"))
+                .createdAt(Instant.parse((String) fields.get("createdAt")))
+                .build());
+    }
+
+    /**
+     * Продление сессии после очередного чанка
+     */
+    public void touch(String uploadId) {
+        redisTemplate.expire(key(uploadId), storageProperties.getUpload().getSessionTtl());
+    }
+
+    public boolean exists(String uploadId) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(key(uploadId)));
+    }
+
+    public void delete(String uploadId) {
+        redisTemplate.delete(key(uploadId));
+    }
+
+    private String key(String uploadId) {
+        return KEY_PREFIX + uploadId;
+    }
+}
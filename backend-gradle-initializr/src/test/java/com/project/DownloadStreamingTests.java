@@ -0,0 +1,352 @@
+package com.project;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static com.project.MinioTestFixtures.BUCKET;
+import static com.project.MinioTestFixtures.minioService;
+import static com.project.MinioTestFixtures.noSuchKey;
+import com.project.config.StorageProperties;
+import com.project.entity.MinioObject;
+import com.project.exception.StorageException;
+import com.project.storage.service.DownloadService;
+import com.project.storage.service.MinioDownloadService;
+import com.project.storage.service.MinioServiceAdapter;
+import com.project.storage.service.MinioServiceImpl;
+import com.project.storage.util.PathValidator;
+import com.project.storage.util.StorageMetrics;
+import com.project.storage.util.StorageTaskRunner;
+
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import okhttp3.Headers;
+
+/**
+ * Потоковое скачивание: файл больше, чем -Xmx, должен пройти через сервис без
+ * OutOfMemoryError, а папка — собираться в ZIP прямо в поток ответа.
+ */
+public class DownloadStreamingTests {
+
+    private static final Long USER_ID = 1L;
+
+    private MinioClient minioClient;
+    private MinioServiceAdapter minioServiceAdapter;
+    private MinioDownloadService downloadService;
+    private StorageMetrics storageMetrics;
+
+    @BeforeEach
+    public void setup() {
+        this.minioClient = mock(MinioClient.class);
+        this.minioServiceAdapter = mock(MinioServiceAdapter.class);
+
+        StorageProperties storageProperties = new StorageProperties();
+        this.storageMetrics = new StorageMetrics();
+        this.downloadService = new MinioDownloadService(
+                minioClient,
+                minioServiceAdapter,
+                new PathValidator(),
+                storageProperties,
+                new StorageTaskRunner(storageProperties),
+                storageMetrics);
+        ReflectionTestUtils.setField(downloadService, "bucket", BUCKET);
+    }
+
+    // === ТЕСТ 1: Файл больше кучи скачивается без буферизации ===
+    @Test
+    public void test01_downloadFileLargerThanHeap() throws Exception {
+        String path = "big-file.bin";
+        String fullPath = "user-" + USER_ID + "-files/" + path;
+        long fileSize = Runtime.getRuntime().maxMemory() + 64L * 1024 * 1024;
+
+        when(minioServiceAdapter.resolveResource(USER_ID, path)).thenReturn(Optional.of(MinioObject.builder()
+                .name(path)
+                .path(fullPath)
+                .size(fileSize)
+                .isDirectory(false)
+                .objectKey(fullPath)
+                .build()));
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> new GetObjectResponse(
+                Headers.of(), BUCKET, null, fullPath, new SyntheticInputStream(fileSize)));
+
+        DownloadService.DownloadResult result = downloadService.getDownloadResource(USER_ID, path);
+
+        assertFalse(result.isZip());
+        assertEquals(fileSize, result.getContentLength(), "Content-Length should come from stat");
+
+        CountingOutputStream out = new CountingOutputStream();
+        result.getBody().writeTo(out);
+
+        assertEquals(fileSize, out.getCount(), "All bytes should be streamed to the response");
+        assertTrue(out.getCount() > Runtime.getRuntime().maxMemory(),
+                "Test file must be larger than the heap to be meaningful");
+
+        assertEquals(fileSize, storageMetrics.getBytesDownloaded());
+        assertEquals(0, storageMetrics.getActiveDownloads());
+
+        System.out.println("[Done] Streamed " + out.getCount() + " bytes with max heap "
+                + Runtime.getRuntime().maxMemory());
+    }
+
+    // === ТЕСТ 2: Папка отдаётся ZIP-потоком с записями в порядке листинга ===
+    @Test
+    public void test02_downloadDirectoryAsStreamingZip() throws Exception {
+        String path = "folder/";
+        String prefix = "user-" + USER_ID + "-files/";
+
+        when(minioServiceAdapter.resolveResource(USER_ID, path)).thenReturn(Optional.of(MinioObject.builder()
+                .name("folder")
+                .path(prefix + path)
+                .size(0L)
+                .isDirectory(true)
+                .build()));
+
+        List<MinioObject> listing = List.of(
+                entry(prefix + "folder/", prefix + "folder/", 0),
+                entry(prefix + "folder/a.txt", prefix + "folder/a.txt", 5),
+                entry(prefix + "folder/sub/", prefix + "folder/sub/", 0),
+                entry(prefix + "folder/sub/b.txt", prefix + "folder/sub/b.txt", 3));
+        when(minioServiceAdapter.walkTree(USER_ID, path)).thenReturn(listing.iterator());
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> {
+            GetObjectArgs args = invocation.getArgument(0);
+            byte[] content = args.object().endsWith("a.txt") ? "hello".getBytes() : "bye".getBytes();
+            return new GetObjectResponse(Headers.of(), BUCKET, null, args.object(), new ByteArrayInputStream(content));
+        });
+
+        DownloadService.DownloadResult result = downloadService.getDownloadResource(USER_ID, path);
+        assertTrue(result.isZip());
+        assertEquals("folder.zip", result.getFilename());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        result.getBody().writeTo(out);
+
+        List<String> entries = new ArrayList<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                entries.add(entry.getName());
+            }
+        }
+
+        assertEquals(List.of("folder/", "folder/a.txt", "folder/sub/", "folder/sub/b.txt"), entries);
+        Map<?, ?> transfer = (Map<?, ?>) storageMetrics.snapshot().get("transfer");
+        assertEquals(1L, transfer.get("zipArchives"));
+        assertEquals((long) out.size(), transfer.get("bytesDownloaded"));
+
+        System.out.println("[Done] Folder streamed as ZIP: " + entries);
+    }
+
+    // === ТЕСТ 3: Presigned-ссылка на файл с именем для сохранения ===
+    @Test
+    public void test03_directDownloadUrlForFile() throws Exception {
+        String path = "docs/отчёт.pdf";
+
+        when(minioServiceAdapter.resolveResource(USER_ID, path)).thenReturn(Optional.of(MinioObject.builder()
+                .name("отчёт.pdf")
+                .path("user-" + USER_ID + "-files/" + path)
+                .isDirectory(false)
+                .build()));
+        when(minioServiceAdapter.getDownloadUrl(eq(USER_ID), eq(path), anyString(), any(Duration.class)))
+                .thenReturn("http://minio.local/signed");
+
+        assertEquals("http://minio.local/signed", downloadService.getDirectDownloadUrl(USER_ID, path));
+
+        ArgumentCaptor<String> disposition = ArgumentCaptor.forClass(String.class);
+        verify(minioServiceAdapter).getDownloadUrl(
+                eq(USER_ID), eq(path), disposition.capture(), eq(Duration.ofMinutes(5)));
+        assertTrue(disposition.getValue().startsWith("attachment;"), disposition.getValue());
+        assertTrue(disposition.getValue().contains("filename*=UTF-8''"), disposition.getValue());
+    }
+
+    // === ТЕСТ 4: Для несуществующего файла ссылка не выдаётся ===
+    @Test
+    public void test04_directDownloadUrlForMissingFile() throws Exception {
+        String path = "missing.txt";
+        when(minioServiceAdapter.resolveResource(USER_ID, path)).thenReturn(Optional.empty());
+
+        assertThrows(StorageException.ResourceNotFoundException.class,
+                () -> downloadService.getDirectDownloadUrl(USER_ID, path));
+    }
+
+    // === ТЕСТ 5: Содержимое архива читается по ключам объектов, а не по путям (раскладка indexed) ===
+    @Test
+    public void test05_zipReadsObjectKeys() throws Exception {
+        String path = "folder/";
+        String prefix = "user-" + USER_ID + "-files/";
+
+        when(minioServiceAdapter.resolveResource(USER_ID, path)).thenReturn(Optional.of(MinioObject.builder()
+                .name("folder")
+                .path(prefix + path)
+                .isDirectory(true)
+                .build()));
+        when(minioServiceAdapter.walkTree(USER_ID, path)).thenReturn(List.of(
+                entry(prefix + "folder/", null, 0),
+                entry(prefix + "folder/a.txt", "blobs/1111", 5)).iterator());
+
+        List<String> requestedKeys = new ArrayList<>();
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> {
+            GetObjectArgs args = invocation.getArgument(0);
+            requestedKeys.add(args.object());
+            return new GetObjectResponse(Headers.of(), BUCKET, null, args.object(),
+                    new ByteArrayInputStream("hello".getBytes()));
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        downloadService.getDownloadResource(USER_ID, path).getBody().writeTo(out);
+
+        assertEquals(List.of("blobs/1111"), requestedKeys);
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("folder/", zis.getNextEntry().getName());
+            assertEquals("folder/a.txt", zis.getNextEntry().getName());
+        }
+    }
+
+    // === ТЕСТ 6: Скачивание, удаление и перемещение файла — без лишних statObject и листингов ===
+    @Test
+    public void test06_minioCallsPerOperation() throws Exception {
+        String prefix = "user-" + USER_ID + "-files/";
+        List<String> bucketKeys = List.of(prefix + "docs/", prefix + "docs/a.txt");
+
+        StorageProperties storageProperties = new StorageProperties();
+        // Без кэша stat: считаются обращения самих операций
+        storageProperties.getStat().setEnabled(false);
+        StorageTaskRunner taskRunner = new StorageTaskRunner(storageProperties);
+        MinioServiceImpl minioService = minioService(minioClient, storageProperties, taskRunner);
+        MinioServiceAdapter adapter = new MinioServiceAdapter(minioService, new PathValidator());
+        MinioDownloadService service = new MinioDownloadService(
+                minioClient, adapter, new PathValidator(), storageProperties, taskRunner, new StorageMetrics());
+        ReflectionTestUtils.setField(service, "bucket", BUCKET);
+
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenAnswer(invocation -> {
+            StatObjectArgs args = invocation.getArgument(0);
+            if (!bucketKeys.contains(args.object())) {
+                throw noSuchKey(args.object());
+            }
+            StatObjectResponse stat = mock(StatObjectResponse.class);
+            when(stat.size()).thenReturn(5L);
+            when(stat.etag()).thenReturn("etag");
+            when(stat.contentType()).thenReturn("text/plain");
+            return stat;
+        });
+
+        try {
+            // Скачивание: один statObject вместо isObjectExists + getObjectInfo
+            DownloadService.DownloadResult result = service.getDownloadResource(USER_ID, "docs/a.txt");
+            assertEquals(5L, result.getContentLength());
+            verify(minioClient, times(1)).statObject(any(StatObjectArgs.class));
+
+            // Перемещение: проверка источника и цели и проверка цели в renameFile,
+            // без определения типа через stat + listObjects и без stat результата
+            clearInvocations(minioClient);
+            MinioObject moved = adapter.moveResource(USER_ID, "docs/a.txt", "docs/b.txt");
+            assertEquals(prefix + "docs/b.txt", moved.getPath());
+            assertEquals(5L, moved.getSize());
+            verify(minioClient, times(3)).statObject(any(StatObjectArgs.class));
+
+            // Удаление файла: тип известен по пути, в MinIO уходит только removeObject
+            clearInvocations(minioClient);
+            adapter.deleteObject(USER_ID, "docs/b.txt");
+            verify(minioClient, never()).statObject(any(StatObjectArgs.class));
+            verify(minioClient, times(1)).removeObject(any(RemoveObjectArgs.class));
+
+            verify(minioClient, never()).listObjects(any(ListObjectsArgs.class));
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    // === HELPER METHODS ===
+    private MinioObject entry(String fullPath, String objectKey, long size) {
+        return MinioObject.builder()
+                .path(fullPath)
+                .objectKey(fullPath.endsWith("/") ? null : objectKey)
+                .size(size)
+                .isDirectory(fullPath.endsWith("/"))
+                .build();
+    }
+
+    // === HELPER CLASSES ===
+    /**
+     * Поток заданной длины без хранения содержимого в памяти
+     */
+    private static class SyntheticInputStream extends InputStream {
+
+        private long remaining;
+
+        SyntheticInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) {
+                return -1;
+            }
+            remaining--;
+            return 'x';
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = (int) Math.min(len, remaining);
+            remaining -= n;
+            return n;
+        }
+    }
+
+    /**
+     * Считает записанные байты и ничего не хранит
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import static com.project.MinioTestFixtures.listing;
+import static com.project.MinioTestFixtures.minioService;
+import com.project.config.StorageProperties;
+import com.project.storage.service.MinioServiceImpl;
+import com.project.storage.util.StorageTaskRunner;
+
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+
+/**
+ * Рекурсивное удаление папки пакетами removeObjects
+ */
+public class FolderDeleteTests {
+
+    private static final String FOLDER = "user-1-files/big-folder/";
+
+    private MinioClient minioClient;
+    private StorageTaskRunner taskRunner;
+    private MinioServiceImpl minioService;
+
+    @BeforeEach
+    public void setup() {
+        this.minioClient = mock(MinioClient.class);
+
+        StorageProperties storageProperties = new StorageProperties();
+        this.taskRunner = new StorageTaskRunner(storageProperties);
+        this.minioService = minioService(minioClient, storageProperties, taskRunner);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        taskRunner.shutdown();
+    }
+
+    // === ТЕСТ 1: 2500 объектов удаляются тремя запросами removeObjects ===
+    @Test
+    public void test01_deletesInBatches() throws Exception {
+        // Моки Item создаются до when(...): вложенная заглушка Mockito не допускает
+        List<Result<Item>> listing = listing(FOLDER, 2500);
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenReturn(listing);
+
+        List<Integer> batchSizes = new ArrayList<>();
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenAnswer(invocation -> {
+            RemoveObjectsArgs args = invocation.getArgument(0);
+            int count = 0;
+            for (DeleteObject ignored : args.objects()) {
+                count++;
+            }
+            synchronized (batchSizes) {
+                batchSizes.add(count);
+            }
+            return List.of();
+        });
+
+        minioService.deleteObject(FOLDER);
+
+        assertEquals(3, batchSizes.size());
+        assertEquals(2500, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 1000));
+        // Маркер папки удаляется последним, отдельно
+        verify(minioClient).removeObject(any(RemoveObjectArgs.class));
+    }
+
+    // === ТЕСТ 2: Ошибки по ключам не теряются, маркер папки остаётся ===
+    @Test
+    public void test02_deleteErrorsReported() throws Exception {
+        // Моки Item создаются до when(...): вложенная заглушка Mockito не допускает
+        List<Result<Item>> listing = listing(FOLDER, 10);
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenReturn(listing);
+
+        DeleteError error = mock(DeleteError.class);
+        when(error.objectName()).thenReturn(FOLDER + "obj-3");
+        when(error.message()).thenReturn("Access Denied");
+        AtomicInteger calls = new AtomicInteger();
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            return List.of(new Result<>(error));
+        });
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> minioService.deleteObject(FOLDER));
+
+        assertTrue(e.getMessage().contains("obj-3"), e.getMessage());
+        assertEquals(1, calls.get());
+        verify(minioClient, never()).removeObject(any(RemoveObjectArgs.class));
+    }
+}
@@ -0,0 +1,346 @@
+package com.project;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static com.project.MinioTestFixtures.item;
+import static com.project.MinioTestFixtures.listing;
+import static com.project.MinioTestFixtures.minioService;
+import com.project.config.StorageProperties;
+import com.project.repository.MoveJournalRepository;
+import com.project.storage.model.MoveJournalEntry;
+import com.project.storage.service.MinioServiceImpl;
+import com.project.storage.util.MoveJournal;
+import com.project.storage.util.StorageMetrics;
+import com.project.storage.util.StorageTaskRunner;
+
+import io.minio.CopyObjectArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+
+/**
+ * Переименование папки: параллельное серверное копирование и пакетное
+ * удаление исходников
+ */
+public class FolderMoveTests {
+
+    private static final String SOURCE = "user-1-files/project/";
+    private static final String TARGET = "user-1-files/project-renamed/";
+    private static final int PARALLELISM = 4;
+    private static final long JOURNAL_ID = 7L;
+
+    private MinioClient minioClient;
+    private MoveJournal moveJournal;
+    private StorageProperties storageProperties;
+    private StorageTaskRunner taskRunner;
+    private MinioServiceImpl minioService;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        this.minioClient = mock(MinioClient.class);
+
+        this.moveJournal = mock(MoveJournal.class);
+        when(moveJournal.begin(anyString(), anyString())).thenReturn(JOURNAL_ID);
+
+        this.storageProperties = new StorageProperties();
+        storageProperties.getMove().setParallelism(PARALLELISM);
+        this.taskRunner = new StorageTaskRunner(storageProperties);
+        this.minioService = minioService(minioClient, storageProperties, taskRunner, moveJournal, new StorageMetrics());
+
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenReturn(mock(ObjectWriteResponse.class));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        taskRunner.shutdown();
+    }
+
+    // === ТЕСТ 1: Листинг читается один раз, копии идут параллельно, исходники удаляются пакетами ===
+    @Test
+    public void test01_renameCopiesInParallelAndDeletesInBatches() throws Exception {
+        // Моки Item создаются до when(...): вложенная заглушка Mockito не допускает
+        List<Result<Item>> listing = listing(SOURCE, 50);
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenReturn(listing);
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<String> targets = Collections.synchronizedList(new ArrayList<>());
+        when(minioClient.copyObject(any(CopyObjectArgs.class))).thenAnswer(invocation -> {
+            CopyObjectArgs args = invocation.getArgument(0);
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            Thread.sleep(10);
+            targets.add(args.object());
+            inFlight.decrementAndGet();
+            return mock(ObjectWriteResponse.class);
+        });
+
+        List<String> removed = Collections.synchronizedList(new ArrayList<>());
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenAnswer(invocation -> {
+            RemoveObjectsArgs args = invocation.getArgument(0);
+            for (DeleteObject object : args.objects()) {
+                removed.add(ReflectionTestUtils.getField(object, "name").toString());
+            }
+            return List.of();
+        });
+
+        minioService.renameObject(SOURCE, TARGET);
+
+        verify(minioClient, times(1)).listObjects(any(ListObjectsArgs.class));
+        assertEquals(50, targets.size());
+        assertTrue(targets.stream().allMatch(target -> target.startsWith(TARGET + "obj-")));
+        assertTrue(maxInFlight.get() > 1, "Copies must overlap, max in flight: " + maxInFlight.get());
+        assertTrue(maxInFlight.get() <= PARALLELISM, "Parallelism exceeded: " + maxInFlight.get());
+
+        verify(minioClient, times(1)).removeObjects(any(RemoveObjectsArgs.class));
+        assertEquals(50, removed.size());
+        assertTrue(removed.stream().allMatch(source -> source.startsWith(SOURCE + "obj-")));
+        // Маркер старой папки удаляется последним
+        verify(minioClient, times(1)).removeObject(any(RemoveObjectArgs.class));
+
+        verify(moveJournal).begin(SOURCE, TARGET);
+        verify(moveJournal).copyCompleted(JOURNAL_ID, 50);
+        verify(moveJournal).complete(JOURNAL_ID);
+    }
+
+    // === ТЕСТ 2: Ошибка копирования откатывает созданные копии, исходники не трогаются ===
+    @Test
+    public void test02_copyFailureRollsBackCopies() throws Exception {
+        // Моки Item создаются до when(...): вложенная заглушка Mockito не допускает
+        List<Result<Item>> listing = listing(SOURCE, 20);
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenReturn(listing);
+
+        String failing = TARGET + "obj-7";
+        when(minioClient.copyObject(any(CopyObjectArgs.class))).thenAnswer(invocation -> {
+            CopyObjectArgs args = invocation.getArgument(0);
+            if (args.object().equals(failing)) {
+                throw new IllegalStateException("copy failed");
+            }
+            return mock(ObjectWriteResponse.class);
+        });
+
+        List<String> removed = Collections.synchronizedList(new ArrayList<>());
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenAnswer(invocation -> {
+            RemoveObjectsArgs args = invocation.getArgument(0);
+            for (DeleteObject object : args.objects()) {
+                removed.add(ReflectionTestUtils.getField(object, "name").toString());
+            }
+            return List.of();
+        });
+
+        assertThrows(RuntimeException.class, () -> minioService.renameObject(SOURCE, TARGET));
+
+        // Удалены только копии (кроме несозданной), исходная папка цела
+        assertTrue(removed.stream().allMatch(name -> name.startsWith(TARGET)), removed.toString());
+        assertFalse(removed.contains(failing));
+        assertEquals(Set.copyOf(removed).size(), removed.size());
+
+        verify(moveJournal).rolledBack(eq(JOURNAL_ID), anyString());
+        verify(moveJournal, never()).copyCompleted(anyLong(), anyLong());
+    }
+
+    // === ТЕСТ 3: Прерванное копирование продолжается с контрольной точки ===
+    @Test
+    public void test03_recoveryResumesFromCheckpoint() throws Exception {
+        TreeSet<String> bucket = fakeBucket();
+        bucket.add(SOURCE);
+        for (int i = 0; i < 10; i++) {
+            bucket.add(SOURCE + String.format("obj-%02d", i));
+        }
+        // До падения скопированы obj-00..obj-03, точка записана на obj-02
+        bucket.add(TARGET);
+        for (int i = 0; i < 4; i++) {
+            bucket.add(TARGET + String.format("obj-%02d", i));
+        }
+        MoveJournalEntry entry = interruptedMove(MoveJournalEntry.Phase.COPYING);
+        entry.setCheckpointKey(SOURCE + "obj-02");
+        entry.setCopiedCount(3);
+        when(moveJournal.claimInterrupted()).thenReturn(List.of(entry));
+
+        minioService.recoverInterruptedMoves();
+
+        // Копируются только ключи после точки, obj-03 перезаписывается
+        verify(minioClient, times(7)).copyObject(any(CopyObjectArgs.class));
+        assertEquals(11, bucket.stream().filter(key -> key.startsWith(TARGET)).count());
+        assertTrue(bucket.stream().noneMatch(key -> key.startsWith(SOURCE)), bucket.toString());
+        verify(moveJournal).copyCompleted(JOURNAL_ID, 10);
+        verify(moveJournal).complete(JOURNAL_ID);
+    }
+
+    // === ТЕСТ 4: Фаза удаления доводится до конца, файлы без копии не удаляются ===
+    @Test
+    public void test04_recoveryFinishesDeletesKeepingUncopiedFiles() throws Exception {
+        TreeSet<String> bucket = fakeBucket();
+        bucket.add(SOURCE);
+        bucket.add(TARGET);
+        for (int i = 0; i < 10; i++) {
+            bucket.add(TARGET + String.format("obj-%02d", i));
+            // obj-00..obj-04 удалены до падения
+            if (i >= 5) {
+                bucket.add(SOURCE + String.format("obj-%02d", i));
+            }
+        }
+        // Загружен в старую папку уже после падения
+        bucket.add(SOURCE + "obj-05-new");
+        when(moveJournal.claimInterrupted()).thenReturn(List.of(interruptedMove(MoveJournalEntry.Phase.DELETING)));
+
+        minioService.recoverInterruptedMoves();
+
+        verify(minioClient, never()).copyObject(any(CopyObjectArgs.class));
+        assertEquals(Set.of(SOURCE + "obj-05-new"),
+                Set.copyOf(bucket.stream().filter(key -> key.startsWith(SOURCE)).toList()));
+        assertEquals(11, bucket.stream().filter(key -> key.startsWith(TARGET)).count());
+        verify(moveJournal).complete(JOURNAL_ID);
+    }
+
+    // === ТЕСТ 5: При recovery=rollback прерванное копирование откатывается ===
+    @Test
+    public void test05_recoveryRollsBackWhenConfigured() throws Exception {
+        storageProperties.getMove().setRecovery(StorageProperties.MoveRecovery.ROLLBACK);
+
+        TreeSet<String> bucket = fakeBucket();
+        bucket.add(SOURCE);
+        bucket.add(TARGET);
+        for (int i = 0; i < 10; i++) {
+            bucket.add(SOURCE + String.format("obj-%02d", i));
+            if (i < 4) {
+                bucket.add(TARGET + String.format("obj-%02d", i));
+            }
+        }
+        when(moveJournal.claimInterrupted()).thenReturn(List.of(interruptedMove(MoveJournalEntry.Phase.COPYING)));
+
+        minioService.recoverInterruptedMoves();
+
+        verify(minioClient, never()).copyObject(any(CopyObjectArgs.class));
+        assertTrue(bucket.stream().noneMatch(key -> key.startsWith(TARGET)), bucket.toString());
+        assertEquals(11, bucket.stream().filter(key -> key.startsWith(SOURCE)).count());
+        verify(moveJournal).rolledBack(eq(JOURNAL_ID), anyString());
+    }
+
+    // === ТЕСТ 6: Ошибка создания маркера новой папки закрывает запись журнала ===
+    @Test
+    public void test06_targetMarkerFailureClosesJournal() throws Exception {
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenThrow(new RuntimeException("MinIO unavailable"));
+
+        assertThrows(RuntimeException.class, () -> minioService.renameObject(SOURCE, TARGET));
+
+        verify(minioClient, never()).copyObject(any(CopyObjectArgs.class));
+        verify(moveJournal).rolledBack(eq(JOURNAL_ID), anyString());
+    }
+
+    // === ТЕСТ 7: Отметки жизни идут по таймеру, пока переименование не закончено ===
+    @Test
+    public void test07_heartbeatRunsWhileMoveInProgress() throws Exception {
+        MoveJournalRepository repository = mock(MoveJournalRepository.class);
+        StorageProperties properties = new StorageProperties();
+        properties.getMove().setJournalLease(Duration.ofSeconds(3));
+        MoveJournal journal = new MoveJournal(repository, properties);
+        try {
+            try (MoveJournal.Heartbeat heartbeat = journal.keepAlive(JOURNAL_ID)) {
+                // Контрольных точек нет — например, копируется один большой объект
+                verify(repository, timeout(3_000).atLeast(2)).touch(eq(JOURNAL_ID), any(), any(Instant.class));
+            }
+            clearInvocations(repository);
+            Thread.sleep(1_500);
+            verify(repository, never()).touch(anyLong(), any(), any(Instant.class));
+        } finally {
+            journal.shutdown();
+        }
+    }
+
+    // === HELPER METHODS ===
+    private MoveJournalEntry interruptedMove(MoveJournalEntry.Phase phase) {
+        MoveJournalEntry entry = new MoveJournalEntry(SOURCE, TARGET);
+        entry.setId(JOURNAL_ID);
+        entry.setPhase(phase);
+        entry.setAttempts(1);
+        return entry;
+    }
+
+    /**
+     * Бакет в памяти: листинг отсортирован и учитывает startAfter, как в MinIO
+     */
+    private TreeSet<String> fakeBucket() throws Exception {
+        TreeSet<String> bucket = new TreeSet<>();
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenAnswer(invocation -> {
+            ListObjectsArgs args = invocation.getArgument(0);
+            List<Result<Item>> listing = new ArrayList<>();
+            synchronized (bucket) {
+                for (String key : bucket.tailSet(args.prefix())) {
+                    if (!key.startsWith(args.prefix())) {
+                        break;
+                    }
+                    if (args.startAfter() == null || key.compareTo(args.startAfter()) > 0) {
+                        listing.add(new Result<>(item(key)));
+                    }
+                }
+            }
+            return listing;
+        });
+        when(minioClient.copyObject(any(CopyObjectArgs.class))).thenAnswer(invocation -> {
+            CopyObjectArgs args = invocation.getArgument(0);
+            synchronized (bucket) {
+                bucket.add(args.object());
+            }
+            return mock(ObjectWriteResponse.class);
+        });
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            PutObjectArgs args = invocation.getArgument(0);
+            synchronized (bucket) {
+                bucket.add(args.object());
+            }
+            return mock(ObjectWriteResponse.class);
+        });
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenAnswer(invocation -> {
+            RemoveObjectsArgs args = invocation.getArgument(0);
+            synchronized (bucket) {
+                for (DeleteObject object : args.objects()) {
+                    bucket.remove(ReflectionTestUtils.getField(object, "name").toString());
+                }
+            }
+            return List.of();
+        });
+        doAnswer(invocation -> {
+            RemoveObjectArgs args = invocation.getArgument(0);
+            synchronized (bucket) {
+                bucket.remove(args.object());
+            }
+            return null;
+        }).when(minioClient).removeObject(any(RemoveObjectArgs.class));
+        return bucket;
+    }
+}
@@ -0,0 +1,298 @@
+package com.project;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.multipart.MultipartFile;
+
+import static com.project.MinioTestFixtures.BUCKET;
+import static com.project.MinioTestFixtures.item;
+import com.project.config.StorageProperties;
+import com.project.entity.MinioObject;
+import com.project.repository.StorageNodeRepository;
+import com.project.storage.model.StorageNode;
+import com.project.storage.service.IndexedMinioService;
+import com.project.storage.service.StorageIndexReconciler;
+import com.project.storage.util.StorageTaskRunner;
+
+import io.minio.CopyObjectArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+
+/**
+ * Раскладка indexed: дерево путей в PostgreSQL, содержимое под ключами
+ * blobs/{uuid}. Репозиторий подменён деревом в памяти.
+ */
+public class IndexedLayoutTests {
+
+    private static final String ROOT = "user-1-files/";
+
+    private MinioClient minioClient;
+    private StorageNodeRepository nodeRepository;
+    private StorageTaskRunner taskRunner;
+    private IndexedMinioService minioService;
+    private List<StorageNode> nodes;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        this.minioClient = mock(MinioClient.class);
+        this.nodeRepository = mock(StorageNodeRepository.class);
+        this.nodes = new ArrayList<>();
+
+        StorageProperties storageProperties = new StorageProperties();
+        this.taskRunner = new StorageTaskRunner(storageProperties);
+        this.minioService = new IndexedMinioService(minioClient, storageProperties, taskRunner, nodeRepository);
+        ReflectionTestUtils.setField(minioService, "bucket", BUCKET);
+
+        AtomicLong ids = new AtomicLong();
+        when(nodeRepository.save(any(StorageNode.class))).thenAnswer(invocation -> {
+            StorageNode node = invocation.getArgument(0);
+            synchronized (nodes) {
+                if (node.getId() == null) {
+                    node.setId(ids.incrementAndGet());
+                    nodes.add(node);
+                }
+            }
+            return node;
+        });
+        when(nodeRepository.findByParentIdAndName(anyLong(), anyString())).thenAnswer(invocation -> {
+            Long parentId = invocation.getArgument(0);
+            String name = invocation.getArgument(1);
+            synchronized (nodes) {
+                return nodes.stream()
+                        .filter(node -> node.getParentId().equals(parentId) && node.getName().equals(name))
+                        .findFirst();
+            }
+        });
+        when(nodeRepository.findByParentIdOrderByName(anyLong())).thenAnswer(invocation -> {
+            Long parentId = invocation.getArgument(0);
+            synchronized (nodes) {
+                return nodes.stream()
+                        .filter(node -> node.getParentId().equals(parentId))
+                        .sorted(Comparator.comparing(StorageNode::getName))
+                        .toList();
+            }
+        });
+        // Спуск по сегментам, как рекурсивный запрос findByPath
+        when(nodeRepository.findByPath(anyString(), anyString(), anyInt())).thenAnswer(invocation -> {
+            String rootName = invocation.getArgument(0);
+            String path = invocation.getArgument(1);
+            int depth = invocation.getArgument(2);
+            Optional<StorageNode> current = nodeRepository.findByParentIdAndName(StorageNode.ROOT_PARENT_ID, rootName);
+            for (int i = 0; i < depth && current.isPresent(); i++) {
+                current = nodeRepository.findByParentIdAndName(current.get().getId(), path.split("/")[i]);
+            }
+            return current;
+        });
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenReturn(mock(ObjectWriteResponse.class));
+
+        minioService.createFolder(ROOT);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        taskRunner.shutdown();
+    }
+
+    // === ТЕСТ 1: Переименование большой папки — одно обновление строки, без копирования объектов ===
+    @Test
+    public void test01_folderRenameIsSingleUpdate() throws Exception {
+        minioService.createFolder(ROOT + "project/");
+        minioService.createFolder(ROOT + "project/src/");
+        for (int i = 0; i < 1000; i++) {
+            minioService.registerObject(ROOT + "project/src/file-" + i + ".txt", "blobs/key-" + i, 10, "text/plain");
+        }
+        clearInvocations(nodeRepository);
+
+        minioService.renameObject(ROOT + "project/", ROOT + "archive/");
+
+        verify(nodeRepository, times(1)).save(any(StorageNode.class));
+        verify(minioClient, never()).copyObject(any(CopyObjectArgs.class));
+
+        assertFalse(minioService.isObjectExists(ROOT + "project/"));
+        assertTrue(minioService.isObjectExists(ROOT + "archive/src/"));
+        MinioObject file = minioService.getObjectInfo(ROOT + "archive/src/file-42.txt");
+        assertEquals("blobs/key-42", file.getObjectKey());
+        assertEquals("blobs/key-42", minioService.resolveObjectKey(ROOT + "archive/src/file-42.txt"));
+        assertEquals(List.of("src"), minioService.listObjects(ROOT + "archive/").stream()
+                .map(MinioObject::getName)
+                .toList());
+    }
+
+    // === ТЕСТ 2: Содержимое пишется под неизменяемым ключом, повторная загрузка — конфликт ===
+    @Test
+    public void test02_uploadStoresBlobUnderOpaqueKey() throws Exception {
+        minioService.createFolder(ROOT + "docs/");
+
+        MinioObject uploaded = minioService.uploadStream(
+                ROOT + "docs/a.txt", new ByteArrayInputStream("hello".getBytes()), 5, "text/plain");
+
+        assertTrue(uploaded.getObjectKey().startsWith("blobs/"), uploaded.getObjectKey());
+        assertEquals(5L, uploaded.getSize());
+        verify(minioClient, times(1)).putObject(any(PutObjectArgs.class));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> minioService.uploadStream(
+                ROOT + "docs/a.txt", new ByteArrayInputStream("again".getBytes()), 5, "text/plain"));
+        assertTrue(e.getMessage().contains("File already exists"), e.getMessage());
+        verify(minioClient, times(1)).putObject(any(PutObjectArgs.class));
+
+        // Путь без слеша — файл, со слешем — папка
+        assertFalse(minioService.isObjectExists(ROOT + "docs/a.txt/"));
+        assertFalse(minioService.isObjectExists(ROOT + "docs"));
+    }
+
+    // === ТЕСТ 3: Сверка импортирует файлы раскладки path без копирования ===
+    @Test
+    public void test03_reconcileImportsPathLayoutTree() throws Exception {
+        String legacyRoot = "user-2-files/";
+        Map<String, List<Result<Item>>> listings = new HashMap<>();
+        listings.put("", List.of(new Result<>(item("blobs/")), new Result<>(item(legacyRoot))));
+        listings.put(legacyRoot, List.of(
+                new Result<>(item(legacyRoot)),
+                new Result<>(item(legacyRoot + "docs/")),
+                new Result<>(item(legacyRoot + "docs/a.txt")),
+                // Маркера у папки photos/2024/ нет — она создаётся по пути файла
+                new Result<>(item(legacyRoot + "photos/2024/b.jpg"))));
+        listings.put("blobs/", List.of());
+        stubListings(listings);
+        when(nodeRepository.findBlobRefsAfter(anyString(), anyString(), any(Instant.class), anyInt()))
+                .thenReturn(List.of());
+
+        StorageIndexReconciler.Report report = reconciler().reconcile();
+
+        assertEquals(1, report.getImportedUsers());
+        assertEquals(2, report.getImportedObjects());
+        assertEquals(legacyRoot + "photos/2024/b.jpg", minioService.resolveObjectKey(legacyRoot + "photos/2024/b.jpg"));
+        assertTrue(minioService.isObjectExists(legacyRoot + "docs/"));
+        assertEquals(List.of("docs", "photos"), minioService.listObjects(legacyRoot).stream()
+                .map(MinioObject::getName)
+                .toList());
+        verify(minioClient, never()).copyObject(any(CopyObjectArgs.class));
+
+        // Уже проиндексированный пользователь повторно не импортируется
+        assertEquals(0, reconciler().reconcile().getImportedUsers());
+    }
+
+    // === ТЕСТ 4: Сверка удаляет содержимое без узлов и узлы без содержимого ===
+    @Test
+    public void test04_reconcileRemovesOrphansAndDanglingNodes() throws Exception {
+        Map<String, List<Result<Item>>> listings = new HashMap<>();
+        listings.put("", List.of(new Result<>(item("blobs/"))));
+        listings.put("blobs/", List.of(
+                new Result<>(item("blobs/a")),
+                new Result<>(item("blobs/b")),   // без узла — удаляется
+                new Result<>(item("blobs/c"))));
+        stubListings(listings);
+        List<StorageNodeRepository.BlobRef> blobRefs =
+                List.of(blobRef(1L, "blobs/a"), blobRef(2L, "blobs/a2"), blobRef(3L, "blobs/c"));
+        when(nodeRepository.findBlobRefsAfter(anyString(), anyString(), any(Instant.class), anyInt()))
+                .thenReturn(blobRefs);
+
+        List<String> removed = new ArrayList<>();
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenAnswer(invocation -> {
+            RemoveObjectsArgs args = invocation.getArgument(0);
+            for (DeleteObject object : args.objects()) {
+                removed.add(ReflectionTestUtils.getField(object, "name").toString());
+            }
+            return List.of();
+        });
+
+        StorageIndexReconciler.Report report = reconciler().reconcile();
+
+        assertEquals(List.of("blobs/b"), removed);
+        assertEquals(1, report.getOrphanedBlobs());
+        assertEquals(1, report.getDanglingNodes());
+        verify(nodeRepository).deleteAllById(List.of(2L));
+    }
+
+    // === ТЕСТ 5: Загрузка папки кладёт файлы в подпапки, одинаковые имена в разных подпапках не конфликтуют ===
+    @Test
+    public void test05_folderUploadKeepsRelativePaths() throws Exception {
+        minioService.createFolder(ROOT + "docs/");
+        minioService.createFolder(ROOT + "docs/sub/");
+        minioService.createFolder(ROOT + "docs/a/");
+        minioService.createFolder(ROOT + "docs/b/");
+
+        MultipartFile[] files = {
+                new MockMultipartFile("object", "sub/a.txt", "text/plain", "a".getBytes()),
+                new MockMultipartFile("object", "a/x.txt", "text/plain", "x".getBytes()),
+                new MockMultipartFile("object", "b/x.txt", "text/plain", "x".getBytes())
+        };
+        List<MinioObject> uploaded = minioService.uploadFiles(ROOT + "docs/", files);
+
+        assertTrue(uploaded.stream().allMatch(object -> object.getError() == null));
+        assertTrue(minioService.isObjectExists(ROOT + "docs/sub/a.txt"));
+        assertTrue(minioService.isObjectExists(ROOT + "docs/a/x.txt"));
+        assertTrue(minioService.isObjectExists(ROOT + "docs/b/x.txt"));
+        assertEquals(List.of("a", "b", "sub"), minioService.listObjects(ROOT + "docs/").stream()
+                .map(MinioObject::getName)
+                .toList());
+
+        // Повторная загрузка в ту же подпапку — конфликт, до записи содержимого
+        MultipartFile[] again = {new MockMultipartFile("object", "sub/a.txt", "text/plain", "a".getBytes())};
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> minioService.uploadFiles(ROOT + "docs/", again));
+        assertTrue(e.getMessage().contains("File already exists"), e.getMessage());
+        verify(minioClient, times(3)).putObject(argThat(args -> args.object().startsWith("blobs/")));
+    }
+
+    // === HELPER METHODS ===
+    private StorageIndexReconciler reconciler() {
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.getIndex().setOrphanGrace(Duration.ZERO);
+        StorageIndexReconciler reconciler = new StorageIndexReconciler(
+                minioClient, storageProperties, nodeRepository, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(reconciler, "bucket", BUCKET);
+        return reconciler;
+    }
+
+    private void stubListings(Map<String, List<Result<Item>>> listings) {
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenAnswer(invocation -> {
+            ListObjectsArgs args = invocation.getArgument(0);
+            return listings.getOrDefault(args.prefix() == null ? "" : args.prefix(), List.of());
+        });
+    }
+
+    private StorageNodeRepository.BlobRef blobRef(Long id, String objectKey) {
+        StorageNodeRepository.BlobRef ref = mock(StorageNodeRepository.BlobRef.class);
+        when(ref.getId()).thenReturn(id);
+        when(ref.getObjectKey()).thenReturn(objectKey);
+        when(ref.getStale()).thenReturn(true);
+        return ref;
+    }
+}
@@ -0,0 +1,218 @@
+package com.project;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import com.project.config.StorageProperties;
+import com.project.storage.service.DownloadService;
+import com.project.storage.util.InstrumentedMinioClient;
+import com.project.storage.util.StorageObservationPostProcessor;
+import com.project.storage.util.StorageOperation;
+import com.project.storage.util.StorageTaskRunner;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.messages.Item;
+
+/**
+ * Учёт запросов к MinIO по API и эндпоинту и их span'ы внутри span'ов слоёв
+ * хранилища. MinIO недоступен: запросы падают сразу, но учитываются так же,
+ * как успешные. Span'ы собираются обработчиком наблюдений вместо экспорта.
+ */
+public class MinioMetricsTests {
+
+    private static final String BUCKET = "test-bucket";
+
+    private SimpleMeterRegistry meterRegistry;
+    private ObservationRegistry observationRegistry;
+    private List<Observation.Context> finished;
+    private StorageTaskRunner taskRunner;
+    private MinioClient minioClient;
+
+    @BeforeEach
+    public void setup() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.finished = new CopyOnWriteArrayList<>();
+        this.observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig()
+                .observationHandler(new DefaultMeterObservationHandler(meterRegistry))
+                .observationHandler(new ObservationHandler<>() {
+                    @Override
+                    public void onStop(Observation.Context context) {
+                        finished.add(context);
+                    }
+
+                    @Override
+                    public boolean supportsContext(Observation.Context context) {
+                        return true;
+                    }
+                });
+        ObservationThreadLocalAccessor.getInstance().setObservationRegistry(observationRegistry);
+        this.taskRunner = new StorageTaskRunner(new StorageProperties());
+        this.minioClient = new InstrumentedMinioClient(MinioClient.builder()
+                .endpoint("http://127.0.0.1:1")
+                .region("us-east-1")
+                .credentials("access", "secret")
+                .build(), observationRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        StorageOperation.clear();
+        taskRunner.shutdown();
+    }
+
+    // === ТЕСТ 1: Вызов учитывается с тегами api, operation и outcome ===
+    @Test
+    public void test01_callTaggedByOperation() {
+        StorageOperation.set("ResourceController.getResource");
+
+        assertThrows(Exception.class, () -> minioClient.statObject(
+                StatObjectArgs.builder().bucket(BUCKET).object("user-1-files/a.txt").build()));
+
+        Timer timer = meterRegistry.find(InstrumentedMinioClient.METRIC)
+                .tag("api", "statObject")
+                .tag("operation", "ResourceController.getResource")
+                .tag("outcome", "error")
+                .timer();
+        assertEquals(1, timer.count());
+    }
+
+    // === ТЕСТ 2: Ленивый листинг учитывается при первом hasNext(), операция переходит в пул ===
+    @Test
+    public void test02_lazyListingCountedOnIteration() throws Exception {
+        StorageOperation.set("ResourceController.getDirectory");
+
+        Iterable<Result<Item>> results = taskRunner.submit(() -> minioClient.listObjects(
+                ListObjectsArgs.builder().bucket(BUCKET).prefix("user-1-files/").build())).get();
+        assertNull(meterRegistry.find(InstrumentedMinioClient.METRIC).tag("api", "listObjects").timer(),
+                "Nothing is sent to MinIO before iteration");
+
+        Iterator<Result<Item>> iterator = results.iterator();
+        // Ошибка листинга приходит внутри Result
+        assertTrue(iterator.hasNext());
+        assertThrows(Exception.class, () -> iterator.next().get());
+
+        Timer timer = meterRegistry.find(InstrumentedMinioClient.METRIC)
+                .tag("api", "listObjects")
+                .tag("operation", "ResourceController.getDirectory")
+                .timer();
+        assertEquals(1, timer.count());
+    }
+
+    // === ТЕСТ 3: Запрос к MinIO — дочерний span слоя с атрибутами пользователя и пути ===
+    @Test
+    public void test03_minioSpanNestedInServiceSpan() {
+        DownloadService downloadService = (DownloadService) observed(new StatDownloadService(minioClient));
+
+        assertThrows(IllegalStateException.class,
+                () -> downloadService.getDownloadResource(7L, "docs/reports/a.txt"));
+
+        Observation.Context service = finishedSpan("DownloadService.getDownloadResource");
+        assertEquals("7", tag(service, "user.id"));
+        assertEquals("3", tag(service, "path.depth"));
+        assertEquals("error", tag(service, "outcome"));
+        assertNotNull(service.getError());
+
+        Observation.Context minio = finishedSpan("minio.statObject");
+        assertEquals(service, minio.getParentObservation().getContextView());
+        assertEquals("user-7-files/docs/reports/a.txt", tag(minio, "object"));
+
+        Timer timer = meterRegistry.find(StorageObservationPostProcessor.METRIC)
+                .tag("service", "DownloadService")
+                .tag("method", "getDownloadResource")
+                .timer();
+        assertEquals(1, timer.count());
+    }
+
+    // === ТЕСТ 4: Span запроса к MinIO из пула остаётся в трассе вызвавшего ===
+    @Test
+    public void test04_spanContextCarriedIntoPool() throws Exception {
+        Observation parent = Observation.start("test.request", observationRegistry);
+        try (Observation.Scope scope = parent.openScope()) {
+            taskRunner.submit(() -> {
+                assertThrows(Exception.class, () -> minioClient.statObject(
+                        StatObjectArgs.builder().bucket(BUCKET).object("user-1-files/a.txt").build()));
+                return null;
+            }).get();
+        } finally {
+            parent.stop();
+        }
+
+        Observation.Context minio = finishedSpan("minio.statObject");
+        assertNotNull(minio.getParentObservation(), "Pool thread sees the caller's observation");
+        assertEquals(parent.getContext(), minio.getParentObservation().getContextView());
+    }
+
+    // === HELPER METHODS ===
+
+    private Object observed(Object bean) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("observationRegistry", observationRegistry);
+        StorageObservationPostProcessor postProcessor =
+                new StorageObservationPostProcessor(beanFactory.getBeanProvider(ObservationRegistry.class));
+        return postProcessor.postProcessAfterInitialization(bean, "bean");
+    }
+
+    private Observation.Context finishedSpan(String contextualName) {
+        return finished.stream()
+                .filter(context -> contextualName.equals(context.getContextualName()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No span " + contextualName));
+    }
+
+    private static String tag(Observation.Context context, String key) {
+        KeyValue keyValue = context.getHighCardinalityKeyValue(key);
+        if (keyValue == null) {
+            keyValue = context.getLowCardinalityKeyValue(key);
+        }
+        return keyValue != null ? keyValue.getValue() : null;
+    }
+
+    /**
+     * Скачивание, которое только проверяет объект в MinIO
+     */
+    static class StatDownloadService implements DownloadService {
+
+        private final MinioClient minioClient;
+
+        StatDownloadService(MinioClient minioClient) {
+            this.minioClient = minioClient;
+        }
+
+        @Override
+        public DownloadResult getDownloadResource(Long userId, String path) {
+            try {
+                minioClient.statObject(StatObjectArgs.builder()
+                        .bucket(BUCKET)
+                        .object("user-" + userId + "-files/" + path)
+                        .build());
+                return null;
+            } catch (Exception e) {
+                throw new IllegalStateException("MinIO unavailable", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.project;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.project.config.StorageProperties;
+import com.project.storage.service.MinioServiceImpl;
+import com.project.storage.util.ListingCache;
+import com.project.storage.util.MoveJournal;
+import com.project.storage.util.StatCache;
+import com.project.storage.util.StorageMetrics;
+import com.project.storage.util.StorageTaskRunner;
+
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import io.minio.messages.Item;
+
+/**
+ * Общие заготовки тестов хранилища: MinioServiceImpl с кэшами поверх
+ * мока MinioClient, элементы листинга и ответ NoSuchKey.
+ */
+final class MinioTestFixtures {
+
+    static final String BUCKET = "test-bucket";
+
+    private MinioTestFixtures() {
+    }
+
+    static MinioServiceImpl minioService(MinioClient minioClient, StorageProperties storageProperties,
+                                         StorageTaskRunner taskRunner) {
+        return minioService(minioClient, storageProperties, taskRunner, mock(MoveJournal.class), new StorageMetrics());
+    }
+
+    static MinioServiceImpl minioService(MinioClient minioClient, StorageProperties storageProperties,
+                                         StorageTaskRunner taskRunner, MoveJournal moveJournal,
+                                         StorageMetrics storageMetrics) {
+        MinioServiceImpl minioService = new MinioServiceImpl(minioClient, storageProperties, taskRunner, moveJournal,
+                new ListingCache(storageProperties, storageMetrics, null),
+                new StatCache(storageProperties, storageMetrics, null));
+        ReflectionTestUtils.setField(minioService, "bucket", BUCKET);
+        return minioService;
+    }
+
+    /**
+     * Листинг папки: маркер самой папки и count объектов obj-{i}
+     */
+    static List<Result<Item>> listing(String folder, int count) {
+        List<Result<Item>> listing = new ArrayList<>();
+        listing.add(new Result<>(item(folder)));
+        for (int i = 0; i < count; i++) {
+            listing.add(new Result<>(item(folder + "obj-" + i)));
+        }
+        return listing;
+    }
+
+    /**
+     * Элемент листинга; ключ со слешем на конце — папка
+     */
+    static Item item(String objectName) {
+        boolean directory = objectName.endsWith("/");
+        Item item = mock(Item.class);
+        when(item.objectName()).thenReturn(objectName);
+        when(item.size()).thenReturn(directory ? 0L : 10L);
+        when(item.isDir()).thenReturn(directory);
+        when(item.lastModified()).thenReturn(ZonedDateTime.now().minusDays(1));
+        return item;
+    }
+
+    static ErrorResponseException noSuchKey(String objectName) {
+        return new ErrorResponseException(
+                new ErrorResponse("NoSuchKey", "Object does not exist", BUCKET, objectName, objectName, null, null),
+                null,
+                null);
+    }
+}
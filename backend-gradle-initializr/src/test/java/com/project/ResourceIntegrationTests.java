@@ -1,8 +1,11 @@
 package com.project;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,17 +16,23 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import com.jayway.jsonpath.JsonPath;
+import com.project.config.StorageProperties;
 import com.project.repository.UserRepository;
 
 @SpringBootTest
@@ -36,6 +45,9 @@ public class ResourceIntegrationTests {
     @Autowired
     private WebApplicationContext webApplicationContext;
 
+    @Autowired
+    private StorageProperties storageProperties;
+
     private MockMvc mockMvc;
 
     // Используем уникальные префиксы для каждого теста
@@ -537,7 +549,375 @@ public class ResourceIntegrationTests {
 
         System.out.println("[Done] 404 returned for directory info on non-existent folder");
     }
-    
+
+    // === ТЕСТ 21: Скачивание диапазона байт (Range) ===
+    @Test
+    public void test21_downloadRange() throws Exception {
+        String username = "testuser_range";
+        String password = "password";
+
+        registerAndLogin(username, password);
+
+        String filePath = basePath + "range-test.txt";
+        uploadFile(filePath, "0123456789");
+
+        MvcResult started = mockMvc.perform(get("/api/resource/download")
+                .param("path", filePath)
+                .header("Range", "bytes=2-5"))
+                .andExpect(request().asyncStarted())
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-5/10"))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(content().string("2345"));
+
+        // Диапазон за пределами файла
+        mockMvc.perform(get("/api/resource/download")
+                .param("path", filePath)
+                .header("Range", "bytes=100-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */10"));
+
+        System.out.println("[Done] Byte range served with 206");
+    }
+
+    // === ТЕСТ 22: Условный запрос (If-None-Match) ===
+    @Test
+    public void test22_downloadNotModified() throws Exception {
+        String username = "testuser_etag";
+        String password = "password";
+
+        registerAndLogin(username, password);
+
+        String filePath = basePath + "etag-test.txt";
+        uploadFile(filePath, "Cached content");
+
+        MvcResult first = mockMvc.perform(get("/api/resource/download")
+                .param("path", filePath))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn();
+
+        String etag = first.getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/resource/download")
+                .param("path", filePath)
+                .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        System.out.println("[Done] 304 returned for unchanged file, ETag: " + etag);
+    }
+
+    // === ТЕСТ 23: Потоковая загрузка файла (PUT, тело без multipart) ===
+    @Test
+    public void test23_streamUpload() throws Exception {
+        String username = "testuser_stream";
+        String password = "password";
+
+        registerAndLogin(username, password);
+
+        String filePath = basePath + "stream-dir/nested/stream.txt";
+        byte[] content = "Streamed content".getBytes(StandardCharsets.UTF_8);
+
+        mockMvc.perform(put("/api/resource/stream")
+                .param("path", filePath)
+                .contentType(MediaType.TEXT_PLAIN)
+                .content(content))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.name").value("stream.txt"))
+                .andExpect(jsonPath("$.size").value(content.length))
+                .andExpect(jsonPath("$.type").value("FILE"));
+
+        // Родительские папки созданы, файл доступен
+        mockMvc.perform(get("/api/resource")
+                .param("path", basePath + "stream-dir/nested/"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/resource")
+                .param("path", filePath))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(content.length));
+
+        // Повторная загрузка в тот же путь — конфликт
+        mockMvc.perform(put("/api/resource/stream")
+                .param("path", filePath)
+                .contentType(MediaType.TEXT_PLAIN)
+                .content(content))
+                .andExpect(status().isConflict());
+
+        System.out.println("[Done] File uploaded by stream: " + filePath);
+    }
+
+    // === ТЕСТ 24: Возобновляемая загрузка чанками ===
+    @Test
+    public void test24_chunkedUpload() throws Exception {
+        String username = "testuser_chunked";
+        String password = "password";
+
+        registerAndLogin(username, password);
+
+        String filePath = basePath + "chunked/big.bin";
+        int chunkSize = 5 * 1024 * 1024;
+        byte[] content = new byte[chunkSize + 100];
+        new Random(7).nextBytes(content);
+
+        MvcResult initiated = mockMvc.perform(post("/api/upload")
+                .param("path", filePath)
+                .param("size", String.valueOf(content.length))
+                .param("chunkSize", String.valueOf(chunkSize)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.totalParts").value(2))
+                .andReturn();
+        String uploadId = JsonPath.read(initiated.getResponse().getContentAsString(), "$.uploadId");
+
+        // Чанки можно присылать в любом порядке; состояние показывает принятые
+        mockMvc.perform(put("/api/upload/" + uploadId + "/parts/2")
+                .content(Arrays.copyOfRange(content, chunkSize, content.length)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uploadedParts[0]").value(2));
+
+        // Неполный файл собрать нельзя
+        mockMvc.perform(post("/api/upload/" + uploadId + "/complete"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(put("/api/upload/" + uploadId + "/parts/1")
+                .content(Arrays.copyOfRange(content, 0, chunkSize)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uploadedParts.length()").value(2));
+
+        mockMvc.perform(post("/api/upload/" + uploadId + "/complete"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.name").value("big.bin"))
+                .andExpect(jsonPath("$.size").value(content.length));
+
+        // Сессия закрыта после сборки
+        mockMvc.perform(get("/api/upload/" + uploadId))
+                .andExpect(status().isNotFound());
+
+        System.out.println("[Done] Chunked upload assembled: " + filePath);
+    }
+
+    // === ТЕСТ 25: Большая папка удаляется фоновой задачей ===
+    @Test
+    public void test25_asyncFolderDelete() throws Exception {
+        String username = "testuser_async_delete";
+        String password = "password";
+
+        registerAndLogin(username, password);
+
+        // Порог снижен, чтобы не создавать тысячу объектов
+        storageProperties.getDelete().setAsyncThreshold(2);
+
+        String dirPath = basePath + "big-dir/";
+        MockMultipartFile[] files = new MockMultipartFile[3];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = new MockMultipartFile("files", "file-" + i + ".txt", "text/plain",
+                    ("content " + i).getBytes(StandardCharsets.UTF_8));
+        }
+        mockMvc.perform(multipart("/api/resource")
+                .file(files[0]).file(files[1]).file(files[2])
+                .param("path", dirPath))
+                .andExpect(status().isCreated());
+
+        MvcResult accepted = mockMvc.perform(delete("/api/resource")
+                .param("path", dirPath))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.type").value("DELETE"))
+                .andReturn();
+        String jobId = JsonPath.read(accepted.getResponse().getContentAsString(), "$.jobId");
+
+        // Ждём завершения задачи
+        String jobStatus = null;
+        for (int attempt = 0; attempt < 50; attempt++) {
+            MvcResult job = mockMvc.perform(get("/api/jobs/" + jobId))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            jobStatus = JsonPath.read(job.getResponse().getContentAsString(), "$.status");
+            if ("COMPLETED".equals(jobStatus) || "FAILED".equals(jobStatus)) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertEquals("COMPLETED", jobStatus);
+
+        mockMvc.perform(get("/api/jobs/" + jobId))
+                .andExpect(jsonPath("$.processed").value(4)); // три файла и маркер папки
+        mockMvc.perform(get("/api/resource")
+                .param("path", dirPath))
+                .andExpect(status().isNotFound());
+
+        // Маленькая папка по-прежнему удаляется сразу
+        mockMvc.perform(post("/api/directory")
+                .param("path", basePath + "small-dir/"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(delete("/api/resource")
+                .param("path", basePath + "small-dir/"))
+                .andExpect(status().isNoContent());
+
+        System.out.println("[Done] Folder deleted by background job: " + jobId);
+    }
+
+    // === ТЕСТ 26: Поиск без учёта регистра с постраничной выдачей ===
+    @Test
+    public void test26_searchPagination() throws Exception {
+        String username = "testuser_search_page";
+        String password = "password";
+
+        registerAndLogin(username, password);
+
+        uploadFile(basePath + "Report-1.txt", "Content 1");
+        uploadFile(basePath + "report-2.txt", "Content 2");
+        uploadFile(basePath + "annual-REPORT.txt", "Content 3");
+        uploadFile(basePath + "notes.txt", "Other");
+
+        mockMvc.perform(get("/api/resource/search")
+                .param("query", "rEpOrT"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3));
+
+        mockMvc.perform(get("/api/resource/search")
+                .param("query", "report")
+                .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/api/resource/search")
+                .param("query", "report")
+                .param("offset", "2")
+                .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        // Размер страницы ограничен настройкой
+        storageProperties.getSearch().setMaxResults(1);
+        mockMvc.perform(get("/api/resource/search")
+                .param("query", "report")
+                .param("limit", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        mockMvc.perform(get("/api/resource/search")
+                .param("query", "report")
+                .param("offset", "-1"))
+                .andExpect(status().isBadRequest());
+
+        System.out.println("[Done] Search paginated");
+    }
+
+    // === ТЕСТ 27: Постраничный листинг папки по курсору ===
+    @Test
+    public void test27_directoryPagination() throws Exception {
+        String username = "testuser_directory_page";
+        String password = "password";
+
+        registerAndLogin(username, password);
+
+        String dirPath = basePath + "paged-dir/";
+        mockMvc.perform(post("/api/directory")
+                .param("path", dirPath))
+                .andExpect(status().isCreated());
+        for (int i = 1; i <= 5; i++) {
+            uploadFile(dirPath + "file-" + i + ".txt", "Content " + i);
+        }
+
+        MvcResult first = mockMvc.perform(get("/api/directory")
+                .param("path", dirPath)
+                .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("file-1.txt"))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn();
+
+        MvcResult second = mockMvc.perform(get("/api/directory")
+                .param("path", dirPath)
+                .param("limit", "2")
+                .param("cursor", first.getResponse().getHeader("X-Next-Cursor")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("file-3.txt"))
+                .andReturn();
+
+        mockMvc.perform(get("/api/directory")
+                .param("path", dirPath)
+                .param("limit", "2")
+                .param("cursor", second.getResponse().getHeader("X-Next-Cursor")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("file-5.txt"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        // Без параметров страницы — вся папка, как раньше
+        mockMvc.perform(get("/api/directory")
+                .param("path", dirPath))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mockMvc.perform(get("/api/directory")
+                .param("path", dirPath)
+                .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/directory")
+                .param("path", dirPath)
+                .param("sort", "color"))
+                .andExpect(status().isBadRequest());
+
+        System.out.println("[Done] Directory paginated");
+    }
+
+    // === ТЕСТ 28: Потоковая выдача содержимого папки и поиска в NDJSON ===
+    @Test
+    public void test28_ndjsonStreaming() throws Exception {
+        String username = "testuser_ndjson";
+        String password = "password";
+
+        registerAndLogin(username, password);
+
+        String dirPath = basePath + "ndjson-dir/";
+        mockMvc.perform(post("/api/directory")
+                .param("path", dirPath))
+                .andExpect(status().isCreated());
+        for (int i = 1; i <= 3; i++) {
+            uploadFile(dirPath + "stream-" + i + ".txt", "Content " + i);
+        }
+
+        MvcResult listing = mockMvc.perform(get("/api/directory")
+                .param("path", dirPath)
+                .header("Accept", "application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andExpect(status().isOk())
+                .andReturn();
+        String lines = mockMvc.perform(asyncDispatch(listing))
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] items = lines.split("\n");
+        assertEquals(3, items.length);
+        assertEquals("stream-1.txt", JsonPath.read(items[0], "$.name"));
+        assertEquals("FILE", JsonPath.read(items[2], "$.type"));
+
+        MvcResult search = mockMvc.perform(get("/api/resource/search")
+                .param("query", "STREAM-2")
+                .header("Accept", "application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String found = mockMvc.perform(asyncDispatch(search))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(1, found.split("\n").length);
+        assertEquals("stream-2.txt", JsonPath.read(found.trim(), "$.name"));
+
+        // Ошибки пути видны до начала потока
+        mockMvc.perform(get("/api/directory")
+                .param("path", basePath + "missing-dir/")
+                .header("Accept", "application/x-ndjson"))
+                .andExpect(status().isNotFound());
+
+        System.out.println("[Done] Listing streamed as NDJSON");
+    }
+
     // === HELPER METHODS ===
     private void registerAndLogin(String username, String password) throws Exception {
         // Регистрация
@@ -0,0 +1,660 @@
+package com.project;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.boot.logging.logback.StructuredLogEncoder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.utility.DockerImageName;
+
+import com.project.config.StorageProperties;
+import com.project.entity.MinioObject;
+import com.project.repository.StorageNodeRepository;
+import com.project.storage.service.DownloadService;
+import com.project.storage.service.MinioDownloadService;
+import com.project.storage.service.MinioServiceAdapter;
+import com.project.storage.service.MinioServiceImpl;
+import com.project.storage.util.DebugLogInterceptor;
+import com.project.storage.util.DebugLogTurboFilter;
+import com.project.storage.util.PathValidator;
+import com.project.storage.util.ListingCache;
+import com.project.storage.util.MoveJournal;
+import com.project.storage.util.StorageIndexSchema;
+import com.project.storage.util.StatCache;
+import com.project.storage.util.StorageMetrics;
+import com.project.storage.util.StorageTaskRunner;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import okhttp3.Headers;
+
+/**
+ * Бенчмарки хранилища. Не входят в обычный прогон тестов, запуск:
+ * ./gradlew benchmark
+ *
+ * MinIO эмулируется моком с задержкой на запрос и ограничением скорости на
+ * соединение, чтобы результаты не зависели от окружения. Поиск по имени
+ * измеряется на настоящем PostgreSQL в Testcontainers. Накладные расходы
+ * логирования меряются на logback, настроенном как в application.yml и в
+ * профиле prod.
+ */
+@Tag("benchmark")
+public class StorageBenchmarkTests {
+
+    private static final Long USER_ID = 1L;
+    private static final String BUCKET = "bench-bucket";
+    private static final String PREFIX = "user-" + USER_ID + "-files/";
+
+    // Эмуляция сети до MinIO
+    private static final long REQUEST_LATENCY_MS = 3;
+    private static final long CONNECTION_BYTES_PER_MS = 100 * 1024; // ~100 MB/s на соединение
+    private static final long DELETE_MICROS_PER_KEY = 20; // работа MinIO на ключ в пакетном удалении
+
+    private static final int SEARCH_OBJECTS = 1_000_000;
+
+    // === БЕНЧМАРК 1: ZIP папки — много мелких и мало крупных файлов ===
+    @Test
+    public void bench01_zipPrefetchThroughput() throws Exception {
+        int[] parallelismLevels = {1, 4, 8, 16};
+
+        System.out.println("\n=== ZIP assembly: many small files (2000 x 4KB) ===");
+        for (int parallelism : parallelismLevels) {
+            runZipScenario(parallelism, 2000, 4 * 1024);
+        }
+
+        System.out.println("\n=== ZIP assembly: few large files (8 x 16MB) ===");
+        for (int parallelism : parallelismLevels) {
+            runZipScenario(parallelism, 8, 16 * 1024 * 1024);
+        }
+    }
+
+    // === БЕНЧМАРК 2: Рекурсивное удаление большой папки ===
+    @Test
+    public void bench02_folderDeleteThroughput() throws Exception {
+        System.out.println("\n=== Folder delete: one removeObject per key (previous behaviour, 2000 objects) ===");
+        runPerKeyDeleteBaseline(2000);
+
+        System.out.println("\n=== Folder delete: batched removeObjects (50000 objects) ===");
+        for (int parallelism : new int[]{1, 4, 8}) {
+            runBatchDeleteScenario(parallelism, 50_000);
+        }
+    }
+
+    // === БЕНЧМАРК 3: Переименование большой папки ===
+    @Test
+    public void bench03_folderRenameThroughput() throws Exception {
+        System.out.println("\n=== Folder rename: sequential copyObject (previous behaviour, 2000 objects) ===");
+        runSequentialCopyBaseline(2000);
+
+        System.out.println("\n=== Folder rename: parallel copy + batched delete (20000 objects) ===");
+        for (int parallelism : new int[]{8, 16, 32}) {
+            runRenameScenario(parallelism, 20_000);
+        }
+    }
+
+    // === БЕНЧМАРК 4: Поиск по имени среди 1M объектов пользователя (нужен Docker) ===
+    @Test
+    public void bench04_nameSearchAtMillionObjects() throws Exception {
+        try (GenericContainer<?> postgres = new GenericContainer<>(DockerImageName.parse("postgres:16-alpine"))
+                .withEnv("POSTGRES_PASSWORD", "bench")
+                .withExposedPorts(5432)
+                .waitingFor(Wait.forLogMessage(".*database system is ready to accept connections.*", 2))) {
+            postgres.start();
+            String url = "jdbc:postgresql://" + postgres.getHost() + ":" + postgres.getMappedPort(5432) + "/postgres";
+
+            try (Connection connection = DriverManager.getConnection(url, "postgres", "bench");
+                 Statement statement = connection.createStatement()) {
+                long seedStart = System.nanoTime();
+                seedStorageNodes(statement, SEARCH_OBJECTS);
+                System.out.printf("%n=== Name search: %d objects of one user (seeded in %.1fs) ===%n",
+                        SEARCH_OBJECTS, (System.nanoTime() - seedStart) / 1_000_000_000.0);
+
+                String[] queries = {"7e3a1c", "budget-1", "report"};
+
+                // Прежний запрос раскладки indexed: обход всего поддерева рекурсивным CTE
+                String subtreeScan = StorageNodeRepository.SUBTREE + """
+                        SELECT id, path FROM tree
+                        WHERE lower(name) LIKE lower(:pattern) ESCAPE '\\'
+                        ORDER BY path
+                        LIMIT :limit OFFSET :offset
+                        """;
+                for (String query : queries) {
+                    runSearchScenario(statement, "subtree CTE scan", subtreeScan, query);
+                }
+
+                for (String query : queries) {
+                    runSearchScenario(statement, "by name, no trgm index", StorageNodeRepository.SEARCH_BY_NAME, query);
+                }
+
+                long indexStart = System.nanoTime();
+                for (String ddl : StorageIndexSchema.STATEMENTS) {
+                    statement.execute(ddl);
+                }
+                statement.execute("ANALYZE storage_nodes");
+                System.out.printf("trigram index built in %.1fs%n", (System.nanoTime() - indexStart) / 1_000_000_000.0);
+
+                for (String query : queries) {
+                    runSearchScenario(statement, "by name, trgm index", StorageNodeRepository.SEARCH_BY_NAME, query);
+                }
+            }
+        }
+    }
+
+    // === БЕНЧМАРК 5: Логирование горячих путей — текущая конфигурация против профиля prod ===
+    @Test
+    public void bench05_loggingProfileThroughput() throws Exception {
+        System.out.println("\n=== Logging overhead: isObjectExists + getObjectInfo, 8 threads x 100000 ops ===");
+        runLoggingScenario("TRACE, sync pattern (current)", false, false);
+        runLoggingScenario("INFO, async JSON (prod)", true, false);
+        runLoggingScenario("INFO, async JSON, debug for 1 user", true, true);
+    }
+
+    // === HELPER METHODS ===
+    private void seedStorageNodes(Statement statement, int objectCount) throws Exception {
+        statement.execute("""
+                CREATE TABLE storage_nodes (
+                    id BIGSERIAL PRIMARY KEY,
+                    user_id BIGINT NOT NULL,
+                    parent_id BIGINT NOT NULL,
+                    name VARCHAR(255) NOT NULL,
+                    type VARCHAR(255) NOT NULL,
+                    object_key VARCHAR(255),
+                    size BIGINT,
+                    content_type VARCHAR(255),
+                    etag VARCHAR(255),
+                    updated_at TIMESTAMPTZ NOT NULL,
+                    UNIQUE (parent_id, name)
+                )
+                """);
+        statement.execute("CREATE INDEX idx_storage_nodes_user ON storage_nodes (user_id)");
+
+        // Корень (id 1), 1000 папок (id 2..1001), файлы равномерно по папкам
+        statement.execute("INSERT INTO storage_nodes (user_id, parent_id, name, type, updated_at) "
+                + "VALUES (1, 0, 'user-1-files', 'DIRECTORY', now())");
+        statement.execute("INSERT INTO storage_nodes (user_id, parent_id, name, type, updated_at) "
+                + "SELECT 1, 1, 'folder-' || lpad(i::text, 4, '0'), 'DIRECTORY', now() "
+                + "FROM generate_series(0, 999) i");
+        statement.execute("INSERT INTO storage_nodes (user_id, parent_id, name, type, object_key, size, updated_at) "
+                + "SELECT 1, 2 + i % 1000, "
+                + "(ARRAY['report','invoice','photo','draft','budget','notes','scan','backup'])[1 + i % 8] "
+                + "|| '-' || substr(md5(i::text), 1, 10) || '.pdf', "
+                + "'FILE', 'blobs/' || md5(i::text), 1024, now() "
+                + "FROM generate_series(1, " + objectCount + ") i");
+        statement.execute("ANALYZE storage_nodes");
+    }
+
+    private void runSearchScenario(Statement statement, String label, String sql, String query) throws Exception {
+        String escaped = query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        String bound = sql
+                .replace(":prefixPattern", "'" + escaped + "%'")
+                .replace(":pattern", "'%" + escaped + "%'")
+                .replace(":userId", "1")
+                .replace(":rootId", "1")
+                .replace(":offset", "0")
+                .replace(":limit", "100");
+
+        long[] timings = new long[5];
+        int rows = 0;
+        for (int run = 0; run < timings.length; run++) {
+            long start = System.nanoTime();
+            rows = 0;
+            try (ResultSet resultSet = statement.executeQuery(bound)) {
+                while (resultSet.next()) {
+                    rows++;
+                }
+            }
+            timings[run] = System.nanoTime() - start;
+        }
+        Arrays.sort(timings);
+        System.out.printf("%-24s query=%-10s median=%9.2f ms  rows=%d%n",
+                label, query, timings[timings.length / 2] / 1_000_000.0, rows);
+    }
+
+    private void runSequentialCopyBaseline(int objectCount) throws Exception {
+        MinioClient minioClient = mock(MinioClient.class);
+        when(minioClient.copyObject(any(CopyObjectArgs.class))).thenAnswer(invocation -> {
+            sleepMillis(REQUEST_LATENCY_MS);
+            return null;
+        });
+
+        long start = System.nanoTime();
+        for (int i = 0; i < objectCount; i++) {
+            minioClient.copyObject(CopyObjectArgs.builder()
+                    .bucket(BUCKET)
+                    .object(PREFIX + "renamed/obj-" + i)
+                    .source(CopySource.builder()
+                            .bucket(BUCKET)
+                            .object(PREFIX + "bench/obj-" + i)
+                            .build())
+                    .build());
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("sequential     time=%7.2fs  objects/s=%9.1f%n", seconds, objectCount / seconds);
+    }
+
+    private void runRenameScenario(int parallelism, int objectCount) throws Exception {
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.getMove().setParallelism(parallelism);
+        StorageTaskRunner taskRunner = new StorageTaskRunner(storageProperties);
+
+        MinioClient minioClient = mock(MinioClient.class);
+        MinioServiceImpl minioService = new MinioServiceImpl(minioClient, storageProperties, taskRunner, mock(MoveJournal.class),
+                new ListingCache(storageProperties, new StorageMetrics(), null),
+                new StatCache(storageProperties, new StorageMetrics(), null));
+        ReflectionTestUtils.setField(minioService, "bucket", BUCKET);
+
+        String folder = PREFIX + "bench/";
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenReturn(lazyListing(folder, objectCount));
+
+        AtomicLong copied = new AtomicLong();
+        when(minioClient.copyObject(any(CopyObjectArgs.class))).thenAnswer(invocation -> {
+            sleepMillis(REQUEST_LATENCY_MS);
+            copied.incrementAndGet();
+            return null;
+        });
+        AtomicLong deleted = new AtomicLong();
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenAnswer(invocation -> {
+            RemoveObjectsArgs args = invocation.getArgument(0);
+            int count = 0;
+            for (DeleteObject ignored : args.objects()) {
+                count++;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(REQUEST_LATENCY_MS)
+                    + TimeUnit.MICROSECONDS.toNanos((long) count * DELETE_MICROS_PER_KEY));
+            deleted.addAndGet(count);
+            return List.of();
+        });
+
+        try {
+            long start = System.nanoTime();
+            minioService.renameObject(folder, PREFIX + "renamed/");
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            System.out.printf("parallelism=%-3d time=%7.2fs  objects/s=%9.1f%n",
+                    parallelism, seconds, objectCount / seconds);
+            assertEquals(objectCount, copied.get());
+            assertEquals(objectCount, deleted.get());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    private void runPerKeyDeleteBaseline(int objectCount) throws Exception {
+        MinioClient minioClient = mock(MinioClient.class);
+        doAnswer(invocation -> {
+            sleepMillis(REQUEST_LATENCY_MS);
+            return null;
+        }).when(minioClient).removeObject(any(RemoveObjectArgs.class));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < objectCount; i++) {
+            minioClient.removeObject(RemoveObjectArgs.builder()
+                    .bucket(BUCKET)
+                    .object(PREFIX + "bench/obj-" + i)
+                    .build());
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("per-key        time=%7.2fs  objects/s=%9.1f%n", seconds, objectCount / seconds);
+    }
+
+    private void runBatchDeleteScenario(int parallelism, int objectCount) throws Exception {
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.getDelete().setParallelism(parallelism);
+        StorageTaskRunner taskRunner = new StorageTaskRunner(storageProperties);
+
+        MinioClient minioClient = mock(MinioClient.class);
+        MinioServiceImpl minioService = new MinioServiceImpl(minioClient, storageProperties, taskRunner, mock(MoveJournal.class),
+                new ListingCache(storageProperties, new StorageMetrics(), null),
+                new StatCache(storageProperties, new StorageMetrics(), null));
+        ReflectionTestUtils.setField(minioService, "bucket", BUCKET);
+
+        String folder = PREFIX + "bench/";
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenReturn(lazyListing(folder, objectCount));
+
+        AtomicLong deleted = new AtomicLong();
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenAnswer(invocation -> {
+            RemoveObjectsArgs args = invocation.getArgument(0);
+            int count = 0;
+            for (DeleteObject ignored : args.objects()) {
+                count++;
+            }
+            // Запрос + работа сервера на каждый ключ
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(REQUEST_LATENCY_MS)
+                    + TimeUnit.MICROSECONDS.toNanos((long) count * DELETE_MICROS_PER_KEY));
+            deleted.addAndGet(count);
+            return List.of();
+        });
+
+        try {
+            long start = System.nanoTime();
+            minioService.deleteObject(folder);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            System.out.printf("parallelism=%-3d time=%7.2fs  objects/s=%9.1f%n",
+                    parallelism, seconds, objectCount / seconds);
+            assertEquals(objectCount, deleted.get());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    /**
+     * Листинг, который отдаёт объекты страницами по 1000 с задержкой на
+     * страницу и не держит их все в памяти
+     */
+    private Iterable<Result<Item>> lazyListing(String folder, int objectCount) {
+        return () -> new Iterator<>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < objectCount;
+            }
+
+            @Override
+            public Result<Item> next() {
+                if (index % 1000 == 0) {
+                    sleepMillis(REQUEST_LATENCY_MS);
+                }
+                return new Result<>(plainItem(folder + "obj-" + index++));
+            }
+        };
+    }
+
+    /**
+     * Лёгкий Item без Mockito — для листингов на десятки тысяч объектов
+     */
+    private Item plainItem(String objectName) {
+        Item item = new Item() {
+        };
+        ReflectionTestUtils.setField(item, "objectName", objectName);
+        return item;
+    }
+
+    private void runZipScenario(int parallelism, int fileCount, int fileSize) throws Exception {
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.getDownload().setZipPrefetchParallelism(parallelism);
+        StorageTaskRunner taskRunner = new StorageTaskRunner(storageProperties);
+
+        MinioClient minioClient = mock(MinioClient.class);
+        MinioServiceAdapter minioServiceAdapter = mock(MinioServiceAdapter.class);
+        MinioDownloadService downloadService = new MinioDownloadService(
+                minioClient, minioServiceAdapter, new PathValidator(), storageProperties, taskRunner,
+                new StorageMetrics());
+        ReflectionTestUtils.setField(downloadService, "bucket", BUCKET);
+
+        String folder = "bench/";
+        // Случайные данные не сжимаются, поэтому объём архива не меньше полезной нагрузки
+        byte[] content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+
+        List<MinioObject> listing = new ArrayList<>();
+        listing.add(entry(PREFIX + folder, 0));
+        for (int i = 0; i < fileCount; i++) {
+            listing.add(entry(PREFIX + folder + "file-" + i + ".bin", fileSize));
+        }
+
+        when(minioServiceAdapter.resolveResource(USER_ID, folder)).thenReturn(Optional.of(MinioObject.builder()
+                .name("bench")
+                .path(PREFIX + folder)
+                .isDirectory(true)
+                .build()));
+        when(minioServiceAdapter.walkTree(USER_ID, folder)).thenReturn(listing.iterator());
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> {
+            GetObjectArgs args = invocation.getArgument(0);
+            sleepMillis(REQUEST_LATENCY_MS);
+            return new GetObjectResponse(Headers.of(), BUCKET, null, args.object(),
+                    new ThrottledInputStream(new ByteArrayInputStream(content)));
+        });
+
+        try {
+            DownloadService.DownloadResult result = downloadService.getDownloadResource(USER_ID, folder);
+            CountingOutputStream out = new CountingOutputStream();
+
+            long start = System.nanoTime();
+            result.getBody().writeTo(out);
+            long elapsedNanos = System.nanoTime() - start;
+
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            double payloadMb = (double) fileCount * fileSize / (1024 * 1024);
+            System.out.printf("parallelism=%-3d time=%7.2fs  files/s=%9.1f  MB/s=%8.1f%n",
+                    parallelism, seconds, fileCount / seconds, payloadMb / seconds);
+
+            assertTrue(out.getCount() >= (long) fileCount * fileSize, "Archive must contain all payload");
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    private void runLoggingScenario(String label, boolean prodProfile, boolean debugOneUser) throws Exception {
+        int threads = 8;
+        int opsPerThread = 100_000;
+
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        ch.qos.logback.classic.Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        List<Appender<ILoggingEvent>> previousAppenders = new ArrayList<>();
+        root.iteratorForAppenders().forEachRemaining(previousAppenders::add);
+        previousAppenders.forEach(root::detachAppender);
+
+        CountingOutputStream out = new CountingOutputStream();
+        Appender<ILoggingEvent> appender = prodProfile ? asyncJsonAppender(context, out) : patternAppender(context, out);
+        root.addAppender(appender);
+        context.getLogger("com.project").setLevel(prodProfile ? Level.INFO : Level.DEBUG);
+        context.getLogger("com.project.storage").setLevel(prodProfile ? Level.INFO : Level.TRACE);
+        DebugLogTurboFilter turboFilter = new DebugLogTurboFilter();
+        turboFilter.start();
+        context.addTurboFilter(turboFilter);
+
+        StorageProperties storageProperties = new StorageProperties();
+        StorageTaskRunner taskRunner = new StorageTaskRunner(storageProperties);
+        MinioClient minioClient = mock(MinioClient.class);
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.size()).thenReturn(4096L);
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(stat);
+        MinioServiceImpl minioService = new MinioServiceImpl(minioClient, storageProperties, taskRunner, mock(MoveJournal.class),
+                new ListingCache(storageProperties, new StorageMetrics(), null),
+                new StatCache(storageProperties, new StorageMetrics(), null));
+        ReflectionTestUtils.setField(minioService, "bucket", BUCKET);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                boolean debug = debugOneUser && t == 0;
+                workers.add(() -> {
+                    if (debug) {
+                        MDC.put(DebugLogInterceptor.DEBUG_KEY, "true");
+                    }
+                    try {
+                        for (int i = 0; i < opsPerThread; i++) {
+                            String key = PREFIX + "hot/file-" + (i % 1000) + ".txt";
+                            minioService.isObjectExists(key);
+                            minioService.getObjectInfo(key);
+                        }
+                    } finally {
+                        MDC.remove(DebugLogInterceptor.DEBUG_KEY);
+                    }
+                    return null;
+                });
+            }
+            // Прогрев, затем замер
+            executor.invokeAll(workers.subList(0, 1));
+            long start = System.nanoTime();
+            for (Future<Void> future : executor.invokeAll(workers)) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            appender.stop(); // асинхронный аппендер дописывает очередь и останавливает вложенный
+
+            long ops = (long) threads * opsPerThread * 2;
+            System.out.printf("%-36s time=%6.2fs  ops/s=%11.1f  log MB=%8.1f%n",
+                    label, seconds, ops / seconds, out.getCount() / (1024.0 * 1024.0));
+            if (debugOneUser) {
+                assertTrue(out.getCount() > 0, "Debug-marked thread must still log at TRACE");
+            }
+        } finally {
+            executor.shutdownNow();
+            taskRunner.shutdown();
+            root.detachAppender(appender);
+            context.getTurboFilterList().remove(turboFilter);
+            context.getLogger("com.project").setLevel(null);
+            context.getLogger("com.project.storage").setLevel(null);
+            previousAppenders.forEach(root::addAppender);
+        }
+    }
+
+    /**
+     * Как консольный вывод Spring Boot по умолчанию: шаблон, запись в потоке вызова
+     */
+    private Appender<ILoggingEvent> patternAppender(LoggerContext context, OutputStream out) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%t] %-40.40logger{39} : %m%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(out);
+        appender.start();
+        return appender;
+    }
+
+    /**
+     * Как профиль prod (logback-spring.xml): ECS JSON за AsyncAppender
+     */
+    private Appender<ILoggingEvent> asyncJsonAppender(LoggerContext context, OutputStream out) {
+        context.putObject(Environment.class.getName(), new StandardEnvironment());
+        StructuredLogEncoder encoder = new StructuredLogEncoder();
+        encoder.setContext(context);
+        encoder.setFormat("ecs");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> json = new OutputStreamAppender<>();
+        json.setContext(context);
+        json.setEncoder(encoder);
+        json.setOutputStream(out);
+        json.start();
+
+        AsyncAppender appender = new AsyncAppender();
+        appender.setContext(context);
+        appender.setQueueSize(8192);
+        appender.setNeverBlock(true);
+        appender.addAppender(json);
+        appender.start();
+        return appender;
+    }
+
+    private MinioObject entry(String objectName, long size) {
+        return MinioObject.builder()
+                .path(objectName)
+                .objectKey(objectName)
+                .size(size)
+                .isDirectory(objectName.endsWith("/"))
+                .build();
+    }
+
+    private static void sleepMillis(long millis) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    // === HELPER CLASSES ===
+    /**
+     * Поток с ограничением скорости, как у одного HTTP-соединения
+     */
+    private static class ThrottledInputStream extends InputStream {
+
+        private final InputStream delegate;
+
+        ThrottledInputStream(InputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return delegate.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, Math.min(len, 64 * 1024));
+            if (n > 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(n * 1000L / CONNECTION_BYTES_PER_MS));
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Считает записанные байты и ничего не хранит
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.project;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import static com.project.MinioTestFixtures.item;
+import static com.project.MinioTestFixtures.minioService;
+import static com.project.MinioTestFixtures.noSuchKey;
+import com.project.config.StorageProperties;
+import com.project.entity.MinioObject;
+import com.project.storage.service.MinioServiceImpl;
+import com.project.storage.util.ListingCache;
+import com.project.storage.util.MoveJournal;
+import com.project.storage.util.StatCache;
+import com.project.storage.util.StorageMetrics;
+import com.project.storage.util.StorageTaskRunner;
+
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Item;
+
+/**
+ * Кэши MinioServiceImpl: повторные листинг и statObject не идут в MinIO,
+ * запись сбрасывает ровно то, что изменила. Бакет подменён множеством
+ * ключей в памяти.
+ */
+public class StorageCacheTests {
+
+    private static final String ROOT = "user-1-files/";
+
+    private MinioClient minioClient;
+    private StorageProperties storageProperties;
+    private StorageMetrics storageMetrics;
+    private StorageTaskRunner taskRunner;
+    private MinioServiceImpl minioService;
+    private NavigableSet<String> bucket;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        this.minioClient = mock(MinioClient.class);
+        this.storageProperties = new StorageProperties();
+        this.storageMetrics = new StorageMetrics();
+        this.taskRunner = new StorageTaskRunner(storageProperties);
+        this.bucket = Collections.synchronizedNavigableSet(new TreeSet<>());
+
+        bucket.add(ROOT);
+        bucket.add(ROOT + "docs/");
+        bucket.add(ROOT + "docs/a.txt");
+        bucket.add(ROOT + "photos/");
+        stubBucket();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        taskRunner.shutdown();
+    }
+
+    // === ТЕСТ 1: Повторный листинг отдаётся из памяти ===
+    @Test
+    public void test01_repeatedListingServedFromMemory() throws Exception {
+        createService();
+
+        assertEquals(List.of("a.txt"), names(minioService.listObjects(ROOT + "docs/")));
+        assertEquals(List.of("a.txt"), names(minioService.listObjects(ROOT + "docs")));
+
+        verify(minioClient, times(1)).listObjects(any(ListObjectsArgs.class));
+        assertEquals(1, storageMetrics.getListingCacheHits());
+        assertEquals(1, storageMetrics.getListingCacheMisses());
+    }
+
+    // === ТЕСТ 2: Запись сбрасывает листинг только изменённой папки ===
+    @Test
+    public void test02_writeInvalidatesOnlyAffectedFolder() throws Exception {
+        createService();
+        minioService.listObjects(ROOT);
+        minioService.listObjects(ROOT + "docs/");
+        minioService.listObjects(ROOT + "photos/");
+
+        minioService.uploadStream(ROOT + "docs/b.txt", new ByteArrayInputStream("b".getBytes()), 1, "text/plain");
+        minioService.createFolder(ROOT + "photos/2024/");
+
+        assertEquals(List.of("a.txt", "b.txt"), names(minioService.listObjects(ROOT + "docs/")));
+        assertEquals(List.of("2024"), names(minioService.listObjects(ROOT + "photos/")));
+        assertEquals(List.of("docs", "photos"), names(minioService.listObjects(ROOT)));
+
+        // 3 первых листинга + 2 повторных после записи; корень не менялся
+        verify(minioClient, times(5)).listObjects(any(ListObjectsArgs.class));
+    }
+
+    // === ТЕСТ 3: Большие папки и выключенный кэш всегда читаются из MinIO ===
+    @Test
+    public void test03_largeListingsAreNotCached() throws Exception {
+        storageProperties.getListing().getCache().setMaxListingSize(1);
+        createService();
+
+        minioService.listObjects(ROOT);
+        minioService.listObjects(ROOT);
+        minioService.listObjects(ROOT + "docs/");
+        minioService.listObjects(ROOT + "docs/");
+
+        // Корень (2 элемента) не кэшируется, docs/ (1 элемент) — кэшируется
+        verify(minioClient, times(3)).listObjects(any(ListObjectsArgs.class));
+
+        storageProperties.getListing().getCache().setEnabled(false);
+        createService();
+        minioService.listObjects(ROOT + "docs/");
+        minioService.listObjects(ROOT + "docs/");
+        verify(minioClient, times(5)).listObjects(any(ListObjectsArgs.class));
+    }
+
+    // === ТЕСТ 4: Переименование и удаление папки сбрасывают вложенные листинги ===
+    @Test
+    public void test04_treeInvalidationDropsNestedListings() throws Exception {
+        ListingCache listingCache = new ListingCache(storageProperties, storageMetrics, null);
+        List<MinioObject> nested = List.of(MinioObject.builder().name("x").path(ROOT + "docs/sub/x").build());
+
+        listingCache.get(ROOT + "docs/", () -> List.of());
+        listingCache.get(ROOT + "docs/sub/", () -> nested);
+        listingCache.get(ROOT + "photos/", () -> List.of());
+
+        listingCache.invalidateTree(ROOT + "docs/");
+
+        List<String> reloaded = new ArrayList<>();
+        listingCache.get(ROOT + "docs/", () -> {
+            reloaded.add("docs");
+            return List.of();
+        });
+        listingCache.get(ROOT + "docs/sub/", () -> {
+            reloaded.add("sub");
+            return nested;
+        });
+        listingCache.get(ROOT + "photos/", () -> {
+            reloaded.add("photos");
+            return List.of();
+        });
+        assertEquals(List.of("docs", "sub"), reloaded);
+    }
+
+    // === ТЕСТ 5: Существование ключа и его отсутствие проверяются в MinIO один раз ===
+    @Test
+    public void test05_statResultsAreCachedUntilWrite() throws Exception {
+        createService();
+
+        assertTrue(minioService.isObjectExists(ROOT + "docs/a.txt"));
+        assertEquals(10L, minioService.getObjectInfo(ROOT + "docs/a.txt").getSize());
+        assertFalse(minioService.isObjectExists(ROOT + "docs/b.txt"));
+        assertFalse(minioService.isObjectExists(ROOT + "docs/b.txt"));
+        verify(minioClient, times(2)).statObject(any(StatObjectArgs.class));
+        assertEquals(2, storageMetrics.getStatCacheMisses());
+
+        // Запись сбрасывает закэшированный NoSuchKey
+        minioService.uploadStream(ROOT + "docs/b.txt", new ByteArrayInputStream("b".getBytes()), 1, "text/plain");
+        assertTrue(minioService.isObjectExists(ROOT + "docs/b.txt"));
+
+        // Сброс папки сбрасывает всё, что в ней лежало
+        StatCache statCache = new StatCache(storageProperties, storageMetrics, null);
+        statCache.get(ROOT + "docs/a.txt", () -> Optional.of(new StatCache.ObjectStat(10, "etag", null, null)));
+        statCache.invalidateTree(ROOT + "docs/");
+        List<String> loaded = new ArrayList<>();
+        statCache.get(ROOT + "docs/a.txt", () -> {
+            loaded.add("a.txt");
+            return Optional.empty();
+        });
+        assertEquals(List.of("a.txt"), loaded);
+    }
+
+    // === ТЕСТ 6: Запись другого пользователя не мешает кэшу листингов ===
+    @Test
+    public void test06_otherUsersWritesDoNotBlockListingCache() {
+        ListingCache listingCache = new ListingCache(storageProperties, storageMetrics, null);
+        List<MinioObject> listing = List.of(MinioObject.builder().name("a.txt").path(ROOT + "docs/a.txt").build());
+
+        // Пока читается папка, пользователь 2 меняет свои
+        listingCache.get(ROOT + "docs/", () -> {
+            listingCache.invalidateFolder("user-2-files/docs/");
+            listingCache.invalidateTree("user-2-files/photos/");
+            return listing;
+        });
+        // Пока читается другая папка, тот же пользователь что-то меняет
+        listingCache.get(ROOT + "photos/", () -> {
+            listingCache.invalidateFolder(ROOT + "music/");
+            return List.of();
+        });
+
+        List<String> reloaded = new ArrayList<>();
+        listingCache.get(ROOT + "docs/", () -> {
+            reloaded.add("docs");
+            return listing;
+        });
+        listingCache.get(ROOT + "photos/", () -> {
+            reloaded.add("photos");
+            return List.of();
+        });
+        assertEquals(List.of("photos"), reloaded);
+    }
+
+    // === ТЕСТ 7: Запись другого пользователя не мешает кэшу stat ===
+    @Test
+    public void test07_otherUsersWritesDoNotBlockStatCache() throws Exception {
+        StatCache statCache = new StatCache(storageProperties, storageMetrics, null);
+        Optional<StatCache.ObjectStat> stat = Optional.of(new StatCache.ObjectStat(10, "etag", null, null));
+
+        // Пока читается stat, пользователь 2 меняет свои файлы
+        statCache.get(ROOT + "docs/a.txt", () -> {
+            statCache.invalidate("user-2-files/docs/a.txt");
+            statCache.invalidateTree("user-2-files/photos/");
+            return stat;
+        });
+        // Пока читается другой ключ, тот же пользователь что-то меняет
+        statCache.get(ROOT + "docs/b.txt", () -> {
+            statCache.invalidate(ROOT + "music/c.txt");
+            return stat;
+        });
+        // Сброс соседней папки не задевает ключи вне её
+        statCache.invalidateTree(ROOT + "doc/");
+
+        List<String> reloaded = new ArrayList<>();
+        statCache.get(ROOT + "docs/a.txt", () -> {
+            reloaded.add("a.txt");
+            return stat;
+        });
+        statCache.get(ROOT + "docs/b.txt", () -> {
+            reloaded.add("b.txt");
+            return stat;
+        });
+        assertEquals(List.of("b.txt"), reloaded);
+    }
+
+    // === HELPER METHODS ===
+    private void createService() {
+        this.minioService = minioService(minioClient, storageProperties, taskRunner, mock(MoveJournal.class),
+                storageMetrics);
+    }
+
+    private void stubBucket() throws Exception {
+        // Листинг без рекурсии: вложенные ключи сворачиваются в префикс подпапки
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenAnswer(invocation -> {
+            ListObjectsArgs args = invocation.getArgument(0);
+            String prefix = args.prefix();
+            TreeSet<String> names = new TreeSet<>();
+            synchronized (bucket) {
+                for (String key : bucket.tailSet(prefix, true)) {
+                    if (!key.startsWith(prefix)) {
+                        break;
+                    }
+                    int slash = key.indexOf('/', prefix.length());
+                    names.add(slash == -1 ? key : key.substring(0, slash + 1));
+                }
+            }
+            List<Result<Item>> results = new ArrayList<>();
+            for (String name : names) {
+                results.add(new Result<>(item(name)));
+            }
+            return results;
+        });
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenAnswer(invocation -> {
+            StatObjectArgs args = invocation.getArgument(0);
+            if (bucket.contains(args.object())) {
+                StatObjectResponse stat = mock(StatObjectResponse.class);
+                when(stat.size()).thenReturn(10L);
+                return stat;
+            }
+            throw noSuchKey(args.object());
+        });
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            PutObjectArgs args = invocation.getArgument(0);
+            bucket.add(args.object());
+            return mock(ObjectWriteResponse.class);
+        });
+    }
+
+    private List<String> names(List<MinioObject> objects) {
+        return objects.stream().map(MinioObject::getName).toList();
+    }
+}
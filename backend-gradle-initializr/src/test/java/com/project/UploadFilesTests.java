@@ -0,0 +1,192 @@
+package com.project;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import static com.project.MinioTestFixtures.minioService;
+import static com.project.MinioTestFixtures.noSuchKey;
+import com.project.config.StorageProperties;
+import com.project.entity.MinioObject;
+import com.project.storage.service.MinioServiceImpl;
+import com.project.storage.util.StorageTaskRunner;
+
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+
+/**
+ * Параллельная загрузка файлов в MinioServiceImpl.uploadFiles: ограничение
+ * параллелизма, проверка конфликтов до загрузки и частичный успех.
+ */
+public class UploadFilesTests {
+
+    private static final String DESTINATION = "user-1-files/upload/";
+    private static final int CONCURRENCY = 4;
+
+    private MinioClient minioClient;
+    private StorageTaskRunner taskRunner;
+    private MinioServiceImpl minioService;
+    private StatObjectResponse existing;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        this.minioClient = mock(MinioClient.class);
+        this.existing = mock(StatObjectResponse.class);
+
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.getUpload().setConcurrency(CONCURRENCY);
+        this.taskRunner = new StorageTaskRunner(storageProperties);
+
+        this.minioService = minioService(minioClient, storageProperties, taskRunner);
+
+        // Папки существуют, файлов ещё нет
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenAnswer(invocation -> {
+            StatObjectArgs args = invocation.getArgument(0);
+            if (args.object().endsWith("/")) {
+                return existing;
+            }
+            throw noSuchKey(args.object());
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        taskRunner.shutdown();
+    }
+
+    // === ТЕСТ 1: Файлы загружаются параллельно, но не больше лимита ===
+    @Test
+    public void test01_uploadsConcurrentlyWithinLimit() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            Thread.sleep(30);
+            inFlight.decrementAndGet();
+            return mock(ObjectWriteResponse.class);
+        });
+
+        MultipartFile[] files = files(20);
+        List<MinioObject> uploaded = minioService.uploadFiles(DESTINATION, files);
+
+        assertEquals(20, uploaded.size());
+        for (int i = 0; i < files.length; i++) {
+            // Порядок результата совпадает с порядком файлов
+            assertEquals(DESTINATION + files[i].getOriginalFilename(), uploaded.get(i).getPath());
+            assertNull(uploaded.get(i).getError());
+        }
+        assertTrue(maxInFlight.get() > 1, "Uploads must overlap, max in flight: " + maxInFlight.get());
+        assertTrue(maxInFlight.get() <= CONCURRENCY, "Concurrency limit exceeded: " + maxInFlight.get());
+    }
+
+    // === ТЕСТ 2: Конфликт обнаруживается до загрузки, ничего не пишется ===
+    @Test
+    public void test02_conflictUploadsNothing() throws Exception {
+        MultipartFile[] files = files(5);
+        String conflicting = DESTINATION + files[3].getOriginalFilename();
+
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenAnswer(invocation -> {
+            StatObjectArgs args = invocation.getArgument(0);
+            if (args.object().endsWith("/") || args.object().equals(conflicting)) {
+                return existing;
+            }
+            throw noSuchKey(args.object());
+        });
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> minioService.uploadFiles(DESTINATION, files));
+
+        assertTrue(e.getMessage().contains("File already exists"), e.getMessage());
+        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+    }
+
+    // === ТЕСТ 3: Ошибка одного файла не прерывает остальные ===
+    @Test
+    public void test03_partialFailureReported() throws Exception {
+        MultipartFile[] files = files(6);
+        String failing = DESTINATION + files[2].getOriginalFilename();
+
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            PutObjectArgs args = invocation.getArgument(0);
+            if (args.object().equals(failing)) {
+                throw new IOException("connection reset");
+            }
+            return mock(ObjectWriteResponse.class);
+        });
+
+        List<MinioObject> uploaded = minioService.uploadFiles(DESTINATION, files);
+
+        assertEquals(6, uploaded.size());
+        for (int i = 0; i < uploaded.size(); i++) {
+            if (i == 2) {
+                assertNotNull(uploaded.get(i).getError());
+            } else {
+                assertNull(uploaded.get(i).getError());
+            }
+        }
+    }
+
+    // === ТЕСТ 4: Набор папок создаётся по уровням, каждая папка проверяется один раз ===
+    @Test
+    public void test04_createFoldersShallowestFirst() throws Exception {
+        String root = "user-1-files/";
+        List<String> folders = List.of(
+                root + "a/b/c/", root + "a/", root + "a/b/", root + "a/b/d/", root + "a/");
+        List<String> created = Collections.synchronizedList(new ArrayList<>());
+
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenAnswer(invocation -> {
+            StatObjectArgs args = invocation.getArgument(0);
+            throw noSuchKey(args.object());
+        });
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            PutObjectArgs args = invocation.getArgument(0);
+            created.add(args.object());
+            return mock(ObjectWriteResponse.class);
+        });
+
+        assertEquals(4, minioService.createFolders(folders));
+
+        verify(minioClient, times(4)).statObject(any(StatObjectArgs.class));
+        assertEquals(root + "a/", created.get(0));
+        assertEquals(root + "a/b/", created.get(1));
+        assertTrue(created.subList(2, 4).containsAll(List.of(root + "a/b/c/", root + "a/b/d/")));
+    }
+
+    // === HELPER METHODS ===
+    private MultipartFile[] files(int count) {
+        MultipartFile[] files = new MultipartFile[count];
+        for (int i = 0; i < count; i++) {
+            files[i] = new MockMultipartFile(
+                    "files",
+                    "file-" + i + ".txt",
+                    "text/plain",
+                    ("content " + i).getBytes(StandardCharsets.UTF_8));
+        }
+        return files;
+    }
+}
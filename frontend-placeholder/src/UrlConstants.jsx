@@ -16,6 +16,7 @@ export const API_FILES = API_BASE_URL + API_CONTEXT + '/resource';
 export const API_FILES_SEARCH = API_FILES + '/search';
 export const API_DOWNLOAD_FILES = API_FILES + '/download';
 export const API_MOVE_FILES = API_FILES + '/move';
+export const API_JOBS = API_BASE_URL + API_CONTEXT + '/jobs';
 
 export const API_USER_INFO = API_BASE_URL + API_CONTEXT + '/user/me';
 
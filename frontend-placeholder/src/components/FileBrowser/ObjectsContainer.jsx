@@ -2,7 +2,7 @@ import { Box } from '@mui/material';
 import StorageTileObject from './StorageObject/StorageTileObject.jsx';
 import { useStorageNavigation } from '../../context/Storage/StorageNavigationProvider.jsx';
 import { AnimatePresence, motion } from 'framer-motion';
-import React, { useRef, useState } from 'react';
+import React, { useEffect, useRef, useState } from 'react';
 import StorageListObject from './StorageObject/StorageListObject.jsx';
 import './selected.css';
 import { FileSelection } from '../Selection/FileSelection.jsx';
@@ -20,6 +20,9 @@ export const ObjectsContainer = () => {
     folderContent,
     searchedContent,
     isSearchMode,
+    currentPath,
+    hasMoreContent,
+    loadMoreFolderContent,
   } = useStorageNavigation();
   const { filesView, sortFolder } = useStorageView();
   const {
@@ -58,6 +61,24 @@ export const ObjectsContainer = () => {
   const containerRef = useRef(null);
   const moveableRef = useRef(null);
   const selectoRef = useRef(null);
+  const sentinelRef = useRef(null);
+
+  // Следующая страница папки подгружается, когда конец списка подходит к экрану
+  useEffect(() => {
+    if (!hasMoreContent || isSearchMode || !sentinelRef.current) {
+      return;
+    }
+    const observer = new IntersectionObserver(
+      (entries) => {
+        if (entries[0].isIntersecting) {
+          loadMoreFolderContent();
+        }
+      },
+      { rootMargin: '400px' },
+    );
+    observer.observe(sentinelRef.current);
+    return () => observer.disconnect();
+  }, [hasMoreContent, isSearchMode, loadMoreFolderContent]);
 
   const handleKeyDown = (event) => {
     event.stopPropagation();
@@ -103,7 +124,7 @@ export const ObjectsContainer = () => {
   return (
     <AnimatePresence mode="wait">
       <motion.div
-        key={`${folderContent?.map((item) => item.id || item.name).join(',')}`}
+        key={currentPath}
         initial="hidden"
         animate="visible"
         variants={animationVariants}
@@ -194,6 +215,10 @@ export const ObjectsContainer = () => {
           </Box>
         )}
 
+        {hasMoreContent && !isSearchMode && (
+          <Box ref={sentinelRef} sx={{ height: 1 }} />
+        )}
+
         <FileSelection
           containerRef={containerRef}
           selectedIds={selectedIds}
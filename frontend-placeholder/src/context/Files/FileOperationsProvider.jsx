@@ -406,7 +406,9 @@ export const FileOperationsProvider = ({ children }) => {
   const executeDeleteTask = async (task) => {
     try {
       updateTask(task, 'progress', 'Удаляем...');
-      await sendDeleteObject(task.operation.source);
+      await sendDeleteObject(task.operation.source, (processed) =>
+        updateTask(task, 'progress', `Удаляем... (${processed} объектов)`)
+      );
       updateTask(task, 'completed', 'Удаление успешно выполнено');
     } catch (e) {
       updateTask(task, 'error', e.message);
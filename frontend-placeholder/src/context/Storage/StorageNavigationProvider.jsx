@@ -1,5 +1,5 @@
 import React, { createContext, useContext, useRef, useState } from 'react';
-import { sendGetFolderContent } from '../../services/fetch/auth/storage/SendGetFolderContent.js';
+import { sendGetFolderContentPage } from '../../services/fetch/auth/storage/SendGetFolderContent.js';
 import { useStorageSelection } from './StorageSelectionProvider.jsx';
 import { Box } from '@mui/material';
 import ConflictException from '../../exception/ConflictException.jsx';
@@ -46,6 +46,39 @@ export const StorageNavigationProvider = ({ children }) => {
 
   const [folderContent, setFolderContent] = useState([]);
 
+  // Папка грузится страницами: nextCursor — продолжение текущей папки, null — загружена целиком
+  const [nextCursor, setNextCursor] = useState(null);
+  const [moreContentLoading, setMoreContentLoading] = useState(false);
+  const loadedPathRef = useRef('');
+
+  const loadFirstPage = async (fullPath) => {
+    loadedPathRef.current = fullPath;
+    const page = await sendGetFolderContentPage(fullPath);
+    setFolderContent(page.items);
+    setNextCursor(page.nextCursor);
+  };
+
+  const loadMoreFolderContent = async () => {
+    if (!nextCursor || moreContentLoading) {
+      return;
+    }
+    const fullPath = loadedPathRef.current;
+    setMoreContentLoading(true);
+    try {
+      const page = await sendGetFolderContentPage(fullPath, nextCursor);
+      // Пока страница грузилась, пользователь мог перейти в другую папку
+      if (loadedPathRef.current !== fullPath) {
+        return;
+      }
+      setFolderContent((loaded) => [...loaded, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      showError('Не удалось загрузить содержимое папки. Попробуйте позже');
+    } finally {
+      setMoreContentLoading(false);
+    }
+  };
+
   const createSpoofObject = (object) => {
     setFolderContent([...folderContent, object]);
   };
@@ -62,8 +95,7 @@ export const StorageNavigationProvider = ({ children }) => {
     setSelectedIds([]);
     const fullPath = path.join('');
     try {
-      let content = await sendGetFolderContent(fullPath);
-      setFolderContent(content);
+      await loadFirstPage(fullPath);
 
       const base = import.meta.env.VITE_BASE;
       window.history.pushState(null, '', base + 'files/' + fullPath);
@@ -86,8 +118,7 @@ export const StorageNavigationProvider = ({ children }) => {
     setSelectedIds([]);
     setFolderContentLoading(true);
     try {
-      let content = await sendGetFolderContent(url); //todo add check for 404
-      setFolderContent(content);
+      await loadFirstPage(url); //todo add check for 404
 
       const base = import.meta.env.VITE_BASE;
       window.history.pushState(null, '', base + 'files/' + url);
@@ -144,6 +175,9 @@ export const StorageNavigationProvider = ({ children }) => {
         goToPrevFolder,
         goToFolder,
         loadFolder,
+        hasMoreContent: nextCursor !== null,
+        moreContentLoading,
+        loadMoreFolderContent,
         currentPathRef,
         createSpoofObject,
 
@@ -1,8 +1,35 @@
-import {API_FILES} from "../../../../UrlConstants.jsx";
+import {API_FILES, API_JOBS} from "../../../../UrlConstants.jsx";
 import {throwSpecifyException} from "../../../../exception/ThrowSpecifyException.jsx";
 
+const JOB_POLL_INTERVAL_MS = 1000;
 
-export const sendDeleteObject = async (objectName) => {
+// Большая папка удаляется на сервере фоном: ждём завершения задачи, сообщая прогресс
+const waitForJob = async (jobId, onProgress) => {
+    while (true) {
+        const response = await fetch(`${API_JOBS}/${jobId}`, {
+            method: 'GET',
+            credentials: 'include'
+        });
+
+        if (!response.ok) {
+            const error = await response.json();
+            throwSpecifyException(response.status, error);
+        }
+
+        const job = await response.json();
+        if (job.status === 'COMPLETED') {
+            return;
+        }
+        if (job.status === 'FAILED') {
+            throw new Error(job.error || 'Не удалось удалить папку');
+        }
+
+        onProgress?.(job.processed);
+        await new Promise(resolve => setTimeout(resolve, JOB_POLL_INTERVAL_MS));
+    }
+};
+
+export const sendDeleteObject = async (objectName, onProgress) => {
     if (import.meta.env.VITE_MOCK_FETCH_CALLS) {
         console.log("Mocked fetch call for delete object");
         return;
@@ -29,4 +56,9 @@ export const sendDeleteObject = async (objectName) => {
         throwSpecifyException(response.status, error);
     }
 
+    if (response.status === 202) {
+        const job = await response.json();
+        await waitForJob(job.jobId, onProgress);
+    }
+
 }
\ No newline at end of file
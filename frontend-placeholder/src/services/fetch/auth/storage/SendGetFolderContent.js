@@ -45,4 +45,38 @@ export const sendGetFolderContent = async (folderName = "", options = {}) => {
     console.log(`✅ Получено ${directory.length} элементов из:`, folderName || "корень");
 
     return directory.map(mapToFrontFormat);
-};
\ No newline at end of file
+};
+
+// Страница содержимого папки: курсор следующей страницы приходит в заголовке X-Next-Cursor
+export const sendGetFolderContentPage = async (folderName = "", cursor = null, limit = 200, options = {}) => {
+    if (import.meta.env.VITE_MOCK_FETCH_CALLS) {
+        const items = await sendGetFolderContent(folderName, options);
+        return { items, nextCursor: null };
+    }
+
+    const params = new URLSearchParams({ path: folderName || "/", limit: String(limit) });
+    if (cursor) {
+        params.set("cursor", cursor);
+    }
+    const url = `${API_DIRECTORY}?${params}`;
+
+    const response = await fetch(url, {
+        method: 'GET',
+        headers: { 'Content-Type': 'application/json' },
+        credentials: 'include',
+        signal: options.signal
+    });
+
+    if (!response.ok) {
+        const errorMessage = await response.json().catch(() => ({}));
+        throwSpecifyException(response.status, errorMessage);
+    }
+
+    const page = await response.json();
+    console.log(`✅ Получено ${page.length} элементов из:`, folderName || "корень");
+
+    return {
+        items: page.map(mapToFrontFormat),
+        nextCursor: response.headers.get("X-Next-Cursor")
+    };
+};